@@ -9,6 +9,7 @@ import com.proudlobster.stacks.ecp.ManagedEntity;
 import com.proudlobster.stacks.ecp.ManagedProcessor;
 import com.proudlobster.stacks.ecp.ManagedTransaction;
 import com.proudlobster.stacks.ecp.ManagedProcessor.ManagedProcessorFunction;
+import com.proudlobster.stacks.storage.InMemoryStorage;
 import com.proudlobster.stacks.structure.Configuration;
 import com.proudlobster.stacks.structure.Tuple;
 import com.proudlobster.stacks.utility.StringTemplate;
@@ -20,9 +21,16 @@ import com.proudlobster.stacks.utility.StringTemplate;
 public interface Managed {
 
     String PROC_CONF = "stacks.processor.list";
+    String PROC_PARALLEL_CONF = "stacks.processor.parallel";
+    String PROC_STAGED_CONF = "stacks.processor.staged";
+    String PROC_BUFFERED_CONF = "stacks.processor.buffered";
     Fallible ERR_NOT_MANAGED = Fallible.of("Stacks cannot be found.  This is not a managed instance.");
     Fallible ERR_NO_INSTANCE = Fallible.of("No managed instance found.");
     Fallible ERR_NO_PROC_CONF = Fallible.of("Missing configuration for '" + PROC_CONF + "'.");
+    Fallible ERR_NOT_BUFFERED = Fallible
+            .of("Processors are configured with ''" + PROC_BUFFERED_CONF + "'', but writes cannot be held.");
+    Fallible ERR_UNVERSIONED = Fallible.of("The in-memory engine ''" + InMemoryStorage.Engine.ARCHETYPE
+            + "'' is not versioned, so it cannot be read concurrently as ''{0}'' requires.");
     StringTemplate PROC_ACTIVE_CONF_NAME = StringTemplate.of("stacks.processor.{0}.active");
 
     /**
@@ -106,7 +114,35 @@ public interface Managed {
      * @return a supplier of the registered processor's active state
      */
     default Supplier<Boolean> $(final String n, final Component c, final ManagedProcessorFunction f) {
-        stacks().librarian().registerEntry(ManagedProcessor.class, n, ManagedProcessor.of(c, f, stacks()));
+        return $(n, ManagedProcessor.of(c, f, stacks()));
+    }
+
+    /**
+     * Side-effect: Registers a new processor which processes its entities in
+     * parallel chunks.
+     * 
+     * @param n the processor's name to register
+     * @param c the processor's component
+     * @param f the processor's function, which must only read while processing
+     * @param k the number of entities to process together
+     * @return a supplier of the registered processor's active state
+     */
+    default Supplier<Boolean> $(final String n, final Component c, final ManagedProcessorFunction f, final int k) {
+        return $(n, ManagedProcessor.of(c, f, stacks()).parallel(k));
+    }
+
+    /**
+     * Side-effect: Registers a new processor.
+     * 
+     * @param n the processor's name to register
+     * @param p the processor, which may process in chunks only if the in-memory
+     *          engine is versioned
+     * @return a supplier of the registered processor's active state
+     */
+    default Supplier<Boolean> $(final String n, final ManagedProcessor p) {
+        p.chunk().filter(k -> InMemoryStorage.engine(stacks().library().lookup(Configuration.class))
+                == InMemoryStorage.Engine.ARCHETYPE).ifPresent(k -> ERR_UNVERSIONED.throwIt(n));
+        stacks().librarian().registerEntry(ManagedProcessor.class, n, p);
         final String o = $(Configuration.class, PROC_CONF).orElseThrow(ERR_NO_PROC_CONF).value();
         stacks().librarian().registerEntry(Configuration.class, PROC_CONF, Configuration.of(PROC_CONF, o + "," + n));
         return stacks().setProcessorStatus(n, Boolean.TRUE);
@@ -5,8 +5,10 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import com.proudlobster.stacks.ecp.Component;
@@ -14,10 +16,15 @@ import com.proudlobster.stacks.ecp.Entity;
 import com.proudlobster.stacks.ecp.ManagedEntity;
 import com.proudlobster.stacks.ecp.ManagedProcessor;
 import com.proudlobster.stacks.ecp.ManagedTransaction;
+import com.proudlobster.stacks.ecp.ProcessorConflict;
+import com.proudlobster.stacks.ecp.ProcessorSchedule;
 import com.proudlobster.stacks.ecp.Transaction;
 import com.proudlobster.stacks.storage.EntityReader;
+import com.proudlobster.stacks.storage.EntityView;
+import com.proudlobster.stacks.storage.EntityViews;
 import com.proudlobster.stacks.storage.EntityWriter;
 import com.proudlobster.stacks.storage.InMemoryStorage;
+import com.proudlobster.stacks.storage.JdbcBatchEntityWriter;
 import com.proudlobster.stacks.storage.JdbcEntityReader;
 import com.proudlobster.stacks.storage.JdbcEntityWriter;
 import com.proudlobster.stacks.structure.Configuration;
@@ -63,23 +70,101 @@ public interface Stacks extends Managed {
      *         librarian
      */
     public static Stacks create(final Librarian l) {
-        final InMemoryStorage storage = InMemoryStorage.of();
         final Dictionary<Configuration> c = l.accessLibrary().lookup(Configuration.class);
-        return create(Transaction.Lock.create(), IdentifierSequence.create(), l, buildEntityReader(c, storage),
+        final InMemoryStorage storage = InMemoryStorage.of(c);
+        return create(Transaction.Versions.create(), IdentifierSequence.create(), l, buildEntityReader(c, storage),
                 buildEntityWriter(c, storage));
     }
 
     /**
-     * @param lock      the transaction lock to use
+     * @param versions  the version stamps to commit transactions against
      * @param sequence  the ID sequence to use
      * @param librarian the librarian to use
      * @param reader    the entity reader to use
      * @param writer    the entity writer to use
      * @return a new instance of Stacks using all of the provided components
      */
+    public static Stacks create(final Transaction.Versions versions, final IdentifierSequence sequence,
+            final Librarian librarian, final EntityReader reader, final EntityWriter writer) {
+        final EntityViews views = EntityViews.create();
+        return create(versions, sequence, librarian, reader, EntityWriter.of(writer, views.observer()), views);
+    }
+
+    /**
+     * @param lock      unused, as transactions are no longer started under a lock
+     * @param sequence  the ID sequence to use
+     * @param librarian the librarian to use
+     * @param reader    the entity reader to use
+     * @param writer    the entity writer to use
+     * @return a new instance of Stacks using all of the provided components,
+     *         committing transactions against new version stamps
+     * @deprecated transactions are committed against version stamps rather than
+     *             started under a lock; use
+     *             {@link #create(Transaction.Versions, IdentifierSequence, Librarian, EntityReader, EntityWriter)}
+     */
+    @Deprecated
     public static Stacks create(final Transaction.Lock lock, final IdentifierSequence sequence,
             final Librarian librarian, final EntityReader reader, final EntityWriter writer) {
-        return () -> () -> Stream.of(lock, sequence, librarian, reader, writer);
+        return create(Transaction.Versions.create(), sequence, librarian, reader, writer);
+    }
+
+    /**
+     * @param versions  the version stamps to commit transactions against
+     * @param sequence  the ID sequence to use
+     * @param librarian the librarian to use
+     * @param reader    the entity reader to use
+     * @param writer    the entity writer to use, which must keep the views current
+     * @param views     the entity view registry to use
+     * @return a new instance of Stacks using all of the provided components
+     */
+    public static Stacks create(final Transaction.Versions versions, final IdentifierSequence sequence,
+            final Librarian librarian, final EntityReader reader, final EntityWriter writer, final EntityViews views) {
+        final Tuple<Object> delegate = Tuple.of(versions, sequence, librarian, reader, writer, views);
+        return new Stacks() {
+
+            @Override
+            public Tuple<Object> delegate() {
+                return delegate;
+            }
+
+            @Override
+            public Transaction startUnmanagedTransaction() {
+                return Transaction.start(versions);
+            }
+
+            @Override
+            public boolean tryCommitTransaction(final Transaction t) {
+                return commit(versions, writer, t);
+            }
+
+            @Override
+            public EntityReader entityReader() {
+                return reader;
+            }
+
+            @Override
+            public EntityViews entityViews() {
+                return views;
+            }
+
+            @Override
+            public Librarian librarian() {
+                return librarian;
+            }
+
+            @Override
+            public Long nextId() {
+                return sequence.get();
+            }
+        };
+    }
+
+    private static boolean commit(final Transaction.Versions v, final EntityWriter w, final Transaction t) {
+        return v.exclusively(() -> {
+            final boolean c = v.commit(t, w);
+            w.flush();
+            return c;
+        });
     }
 
     private static EntityReader buildEntityReader(final Dictionary<Configuration> c, final InMemoryStorage s) {
@@ -103,7 +188,8 @@ public interface Stacks extends Managed {
         }
         if (c.lookup("stacks.entity.storage.jdbc.writer.enabled").map(Configuration::value).filter("true"::equals)
                 .isPresent()) {
-            ews.add(JdbcEntityWriter.of(c));
+            ews.add(c.lookup("stacks.entity.storage.jdbc.writer.batch").map(Configuration::value)
+                    .filter("true"::equals).isPresent() ? JdbcBatchEntityWriter.of(c) : JdbcEntityWriter.of(c));
         }
         return EntityWriter.of(ews.toArray(new EntityWriter[0]));
     }
@@ -117,7 +203,7 @@ public interface Stacks extends Managed {
      * @return a new unmanaged transaction
      */
     default Transaction startUnmanagedTransaction() {
-        return Transaction.start(delegate().requiredFirstOf(Transaction.Lock.class));
+        return Transaction.start(delegate().requiredFirstOf(Transaction.Versions.class));
     }
 
     /**
@@ -128,10 +214,33 @@ public interface Stacks extends Managed {
     }
 
     /**
-     * @param t a transaction to commit to this instance's writer
+     * @param t a transaction to commit to this instance's writer, rejected if it
+     *          collides with a commit made since it started
      */
     default void commitTransaction(final Transaction t) {
-        t.commit(delegate().requiredFirstOf(EntityWriter.class));
+        Optional.of(t).filter(this::tryCommitTransaction).orElseThrow(Transaction.ERR_COLLIDED);
+    }
+
+    /**
+     * @param t a transaction to commit to this instance's writer
+     * @return true if the transaction was committed, false if it collided with a
+     *         commit made since it started and nothing was written
+     */
+    default boolean tryCommitTransaction(final Transaction t) {
+        return commit(delegate().requiredFirstOf(Transaction.Versions.class),
+                delegate().requiredFirstOf(EntityWriter.class), t);
+    }
+
+    /**
+     * Side-effect: builds and commits transactions until one does not collide,
+     * building each afresh so it reads state committed since the last attempt.
+     *
+     * @param f       builds the transaction to commit
+     * @param retries the most attempts to make after the first collides
+     */
+    default void commitTransaction(final Supplier<? extends Transaction> f, final int retries) {
+        Stream.generate(f).limit(retries + 1L).filter(this::tryCommitTransaction).findFirst()
+                .orElseThrow(Transaction.ERR_COLLIDED);
     }
 
     /**
@@ -163,7 +272,37 @@ public interface Stacks extends Managed {
      *         instance's entity reader
      */
     default Stream<Entity> lookupUnmanagedEntities(final Component[] cs) {
-        return entityReader().read(cs);
+        return delegate().firstOf(EntityViews.class).flatMap(v -> v.lookup(cs)).map(EntityView::read)
+                .orElseGet(() -> entityReader().read(cs));
+    }
+
+    /**
+     * @param l the ID of the entity referenced
+     * @param c a reference or multiple reference component
+     * @return the unmanaged entities whose component references that entity in
+     *         the instance's entity reader
+     */
+    default Stream<Entity> lookupUnmanagedReferrers(final Long l, final Component c) {
+        return entityReader().readReferrers(l, c);
+    }
+
+    /**
+     * @return this instance's entity view registry
+     */
+    default EntityViews entityViews() {
+        return delegate().requiredFirstOf(EntityViews.class);
+    }
+
+    /**
+     * Side-effect: registers a view for the components if none exists yet. Once
+     * registered, lookups for exactly those components are answered by the view.
+     *
+     * @param cs the components belonging to the entities in the view
+     * @return a view of the entities which possess all given components, kept
+     *         current as transactions are committed
+     */
+    default EntityView view(final Component... cs) {
+        return entityViews().register(entityReader(), cs);
     }
 
     /**
@@ -191,6 +330,16 @@ public interface Stacks extends Managed {
         return lookupUnmanagedEntities(cs).map(e -> ManagedEntity.of(e, this));
     }
 
+    /**
+     * @param l the ID of the entity referenced
+     * @param c a reference or multiple reference component
+     * @return the managed entities whose component references that entity in the
+     *         instance's entity reader
+     */
+    default Stream<ManagedEntity> lookupManagedReferrers(final Long l, final Component c) {
+        return lookupUnmanagedReferrers(l, c).map(e -> ManagedEntity.of(e, this));
+    }
+
     /**
      * @return the instance's library
      */
@@ -239,18 +388,163 @@ public interface Stacks extends Managed {
         return Arrays.stream($(Configuration.class, PROC_CONF).orElseThrow(ERR_NO_PROC_CONF).value().split(","));
     }
 
-    /*
+    /**
+     * @return true if processors are configured to run concurrently
+     */
+    default boolean parallelProcessors() {
+        return $(Configuration.class, PROC_PARALLEL_CONF).map(Configuration::value).map(Boolean::parseBoolean)
+                .orElse(Boolean.FALSE);
+    }
+
+    /**
+     * @return true if processors are configured to run in stages
+     */
+    default boolean stagedProcessors() {
+        return $(Configuration.class, PROC_STAGED_CONF).map(Configuration::value).map(Boolean::parseBoolean)
+                .orElse(Boolean.FALSE);
+    }
+
+    /**
+     * @return true if processors are configured to read the previous tick and
+     *         publish their writes together
+     */
+    default boolean bufferedProcessors() {
+        return $(Configuration.class, PROC_BUFFERED_CONF).map(Configuration::value).map(Boolean::parseBoolean)
+                .orElse(Boolean.FALSE);
+    }
+
+    /**
+     * @return names of all active and registered processors, in registration order
+     */
+    default List<String> activeProcessorNames() {
+        return processorNames().filter(s -> processorStatus(s).get())
+                .filter(s -> $(ManagedProcessor.class, s).isPresent()).toList();
+    }
+
+    /**
+     * @return the stages the active processors run in when staged, from the
+     *         components they declare they read and write
+     */
+    default ProcessorSchedule processorSchedule() {
+        return ProcessorSchedule.of(activeProcessorNames(),
+                s -> $(ManagedProcessor.class, s).flatMap(ManagedProcessor::access));
+    }
+
+    /**
      * Side-effect: Run all active and registered processors once.
+     * 
+     * Processors only read while processing, so when configured to, they process
+     * concurrently on the common fork/join pool. Their transactions are committed
+     * in the same order either way, last registered first, and then flushed
+     * together.
+     * 
+     * When configured to run in stages, the processors of each stage of the
+     * schedule process concurrently, and are committed and flushed before the next
+     * stage processes, so later stages see the writes of earlier ones.
+     * 
+     * When configured to be buffered, every processor reads the state published
+     * before the run while processing. While its supplied values are read at
+     * commit, it reads that state overlaid with its own writes, so no processor
+     * reads another's writes and the order of commits only decides which of two
+     * writes to the same entity component is kept. All processors process
+     * concurrently, and their writes are published together when the run ends.
+     * Stages are not used, and the entity writer must be able to hold writes.
+     * 
+     * Running processors concurrently, in stages or buffered needs the in-memory
+     * engine to be versioned, and fails with the ARCHETYPE engine.
      */
     default void runProcessors() {
-        processorNames().filter(s -> processorStatus(s).get()).map(s -> $(ManagedProcessor.class, s))
-                .filter(Optional::isPresent).map(Optional::get).map(ManagedProcessor::process)
-                .reduce(ManagedTransaction::compose).ifPresent(ManagedTransaction::commit);
+        runProcessorsForConflicts();
+    }
+
+    /**
+     * Side-effect: Run all active and registered processors once, as
+     * {@link #runProcessors()} does.
+     * 
+     * @return the conflicts between processors of the same run or stage writing
+     *         the same entity components
+     */
+    default List<ProcessorConflict> runProcessorsForConflicts() {
+        return runProcessorsForConflicts((n, l) -> {
+        });
+    }
+
+    /**
+     * Side-effect: Run all active and registered processors once, as
+     * {@link #runProcessors()} does.
+     * 
+     * @param t told the nanoseconds each processor spent processing and committing,
+     *          possibly from several threads at once
+     * @return the conflicts between processors of the same run or stage writing
+     *         the same entity components
+     */
+    default List<ProcessorConflict> runProcessorsForConflicts(final ObjLongConsumer<String> t) {
+        Optional.of(InMemoryStorage.engine(library().lookup(Configuration.class)))
+                .filter(InMemoryStorage.Engine.ARCHETYPE::equals)
+                .flatMap(e -> Stream.of(PROC_PARALLEL_CONF, PROC_STAGED_CONF, PROC_BUFFERED_CONF)
+                        .filter(n -> $(Configuration.class, n).map(Configuration::value).map(Boolean::parseBoolean)
+                                .orElse(Boolean.FALSE))
+                        .findFirst())
+                .ifPresent(n -> ERR_UNVERSIONED.throwIt(n));
+        return bufferedProcessors()
+                ? runProcessors(
+                        Optional.of(activeProcessorNames())
+                                .filter(x -> delegate().requiredFirstOf(EntityWriter.class).holds())
+                                .orElseThrow(ERR_NOT_BUFFERED),
+                        true, true, t)
+                : stagedProcessors()
+                        ? processorSchedule().stages().stream()
+                                .flatMap(ns -> runProcessors(ns, true, false, t).stream()).toList()
+                        : runProcessors(activeProcessorNames(), parallelProcessors(), false, t);
+    }
+
+    /**
+     * @param ns the names of the processors to run together
+     * @param p  true to process concurrently
+     * @param h  true to hold the writes of each processor back from the
+     *           commit-time reads of the others until flushed
+     * @param t  told the nanoseconds each processor spent processing and
+     *           committing
+     * @return the conflicts between the processors writing the same entity
+     *         components
+     */
+    private List<ProcessorConflict> runProcessors(final List<String> ns, final boolean p, final boolean h,
+            final ObjLongConsumer<String> t) {
+        final List<ManagedTransaction> ts = (p ? ns.parallelStream() : ns.stream()).map(s -> {
+            final long n = System.nanoTime();
+            final ManagedTransaction x = $(ManagedProcessor.class, s).get().process();
+            t.accept(s, System.nanoTime() - n);
+            return x;
+        }).toList();
+        final EntityWriter w = delegate().requiredFirstOf(EntityWriter.class);
+        final Transaction.Versions v = delegate().requiredFirstOf(Transaction.Versions.class);
+        final ProcessorConflict.Detector d = ProcessorConflict.Detector.create();
+        return v.exclusively(() -> {
+            try {
+                IntStream.iterate(ts.size() - 1, i -> i >= 0, i -> i - 1).forEach(i -> {
+                    final long n = System.nanoTime();
+                    w.hold(h);
+                    v.apply(ts.get(i), d.track(ns.get(i), w));
+                    t.accept(ns.get(i), System.nanoTime() - n);
+                });
+            } finally {
+                w.hold(false);
+            }
+            w.flush();
+            return d.conflicts();
+        });
+    }
+
+    /**
+     * @return a new tick engine running this instance's processors at the
+     *         configured rate
+     */
+    default TickEngine tickEngine() {
+        return TickEngine.of(this);
     }
 
     @Override
     default Tuple<Object> managedDelegate() {
         return Single.of(this);
     }
-
 }
@@ -0,0 +1,295 @@
+package com.proudlobster.stacks;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+import com.proudlobster.stacks.ecp.ProcessorConflict;
+import com.proudlobster.stacks.structure.Configuration;
+import com.proudlobster.stacks.utility.LatencyHistogram;
+import com.proudlobster.stacks.utility.StringTemplate;
+
+/**
+ * Runs the processors of a Stacks instance on a fixed timestep.
+ *
+ * Elapsed time is accumulated as the engine is updated, and a tick runs for
+ * every tick period accumulated. When ticks fall behind, the policy decides
+ * whether the missed ticks are caught up, up to a limit, or skipped.
+ *
+ * Every tick's duration and every processor's share of it are recorded in
+ * latency histograms. A tick exceeding its budget, or running a processor which
+ * exceeds its own, is recorded as an overrun naming the processor furthest
+ * over, or nearest to, its budget.
+ */
+@FunctionalInterface
+public interface TickEngine {
+
+    /**
+     * What to do with ticks missed while a tick, or the caller, ran long.
+     */
+    public static enum Policy {
+        /**
+         * Run the missed ticks back to back, up to the catch-up limit.
+         */
+        CATCH_UP,
+        /**
+         * Run one tick and drop the rest.
+         */
+        SKIP
+    }
+
+    /**
+     * A tick which exceeded its budget, or ran a processor which exceeded its own.
+     *
+     * @param tick            the number of the tick, counting from 1
+     * @param nanos           the duration of the tick
+     * @param budget          the budget of the tick
+     * @param processor       the name of the processor furthest over, or nearest
+     *                        to, its budget, or empty if none ran
+     * @param processorNanos  the time that processor spent processing and
+     *                        committing
+     * @param processorBudget the budget of that processor
+     */
+    public static record Overrun(long tick, long nanos, long budget, String processor, long processorNanos,
+            long processorBudget) {
+    }
+
+    String CONF_TICK_PREFIX = "stacks.tick.";
+    String CONF_TICK_RATE = CONF_TICK_PREFIX + "rate";
+    String CONF_TICK_POLICY = CONF_TICK_PREFIX + "policy";
+    String CONF_TICK_CATCH_UP = CONF_TICK_PREFIX + "catchup.max";
+    String CONF_TICK_BUDGET = CONF_TICK_PREFIX + "budget";
+    StringTemplate PROC_BUDGET_CONF_NAME = StringTemplate.of("stacks.processor.{0}.budget");
+    Fallible ERR_TICK_RATE = Fallible.of("Tick rate must be positive, not {0}.");
+    Fallible ERR_CATCH_UP = Fallible.of("Catch-up limit must be positive, not {0}.");
+    Fallible ERR_TICK_POLICY = Fallible.of("Tick policy must be one of {0}, not ''{1}''.");
+
+    int OVERRUNS_KEPT = 1024;
+
+    /**
+     * @param s the Stacks instance whose processors to run
+     * @return a new engine timed by the system clock and configured by the
+     *         instance
+     */
+    public static TickEngine of(final Stacks s) {
+        return of(s, System::nanoTime);
+    }
+
+    /**
+     * @param s the Stacks instance whose processors to run
+     * @param c the clock to time ticks by, in nanoseconds
+     * @return a new engine configured by the instance
+     */
+    public static TickEngine of(final Stacks s, final LongSupplier c) {
+        return of(s, c, setting(s, CONF_TICK_RATE, 60), policy(setting(s, CONF_TICK_POLICY, Policy.CATCH_UP.name())),
+                setting(s, CONF_TICK_CATCH_UP, 5), TimeUnit.MICROSECONDS.toNanos(setting(s, CONF_TICK_BUDGET, 0)));
+    }
+
+    /**
+     * The budgets of the processors registered are resolved as the engine is
+     * built, and those of processors registered later when they first run.
+     *
+     * @param s the Stacks instance whose processors to run
+     * @param c the clock to time ticks by, in nanoseconds
+     * @param r the number of ticks per second
+     * @param p the policy for missed ticks
+     * @param k the most ticks run by one update when catching up
+     * @param b the budget of each tick in nanoseconds, or 0 for the tick period
+     * @return a new engine
+     */
+    public static TickEngine of(final Stacks s, final LongSupplier c, final int r, final Policy p, final int k,
+            final long b) {
+        Optional.of(r).filter(i -> i > 0).orElseThrow(ERR_TICK_RATE.apply(r));
+        Optional.of(k).filter(i -> i > 0).orElseThrow(ERR_CATCH_UP.apply(k));
+        final long period = TimeUnit.SECONDS.toNanos(1) / r;
+        final Loop l = new Loop(s, c, period, p, k, b > 0 ? b : period);
+        final TickEngine t = () -> l;
+        s.processorNames().forEach(t::budget);
+        return t;
+    }
+
+    /**
+     * @param v the configured name of a policy, in any case
+     * @return the policy of that name
+     */
+    private static Policy policy(final String v) {
+        return Stream.of(Policy.values()).filter(p -> p.name().equalsIgnoreCase(v.trim())).findFirst()
+                .orElseThrow(ERR_TICK_POLICY.apply(Arrays.toString(Policy.values()), v));
+    }
+
+    private static int setting(final Stacks s, final String k, final int d) {
+        return s.$(Configuration.class, k).map(Configuration::value).map(Integer::parseInt).orElse(d);
+    }
+
+    private static String setting(final Stacks s, final String k, final String d) {
+        return s.$(Configuration.class, k).map(Configuration::value).orElse(d);
+    }
+
+    /**
+     * @return accessor to the internal state of the engine
+     */
+    Loop loop();
+
+    /**
+     * @return the nanoseconds between ticks
+     */
+    default long period() {
+        return loop().period;
+    }
+
+    /**
+     * @return the budget of each tick in nanoseconds
+     */
+    default long budget() {
+        return loop().budget;
+    }
+
+    /**
+     * @param n the name of a processor
+     * @return the budget of the processor in nanoseconds, configured in
+     *         microseconds, or the tick budget if it has none; read from the
+     *         configuration once and remembered
+     */
+    default long budget(final String n) {
+        return loop().budgets.computeIfAbsent(n, x -> loop().stacks.$(Configuration.class, PROC_BUDGET_CONF_NAME.get(x))
+                .map(Configuration::value).map(Long::parseLong).map(TimeUnit.MICROSECONDS::toNanos).orElse(budget()));
+    }
+
+    /**
+     * @return the number of ticks run
+     */
+    default long ticks() {
+        return loop().ticks;
+    }
+
+    /**
+     * @return the number of ticks dropped by the policy
+     */
+    default long skipped() {
+        return loop().skipped;
+    }
+
+    /**
+     * @return the durations of the ticks run
+     */
+    default LatencyHistogram tickLatency() {
+        return loop().tickLatency;
+    }
+
+    /**
+     * @param n the name of a processor
+     * @return the time the processor spent in each tick it ran, if it has run
+     */
+    default Optional<LatencyHistogram> processorLatency(final String n) {
+        return Optional.ofNullable(loop().processorLatency.get(n));
+    }
+
+    /**
+     * @return the most recent overruns, oldest first
+     */
+    default List<Overrun> overruns() {
+        return List.copyOf(loop().overruns);
+    }
+
+    /**
+     * Side-effect: runs the processors once, recording how long they took.
+     *
+     * @return the conflicts between processors writing the same entity components
+     */
+    default List<ProcessorConflict> tick() {
+        final Loop l = loop();
+        final Map<String, Long> ns = new ConcurrentHashMap<>();
+        final long start = l.clock.getAsLong();
+        final List<ProcessorConflict> cs = l.stacks.runProcessorsForConflicts((p, n) -> ns.merge(p, n, Long::sum));
+        final long n = l.clock.getAsLong() - start;
+        l.ticks++;
+        l.tickLatency.record(n);
+        ns.forEach((p, x) -> l.processorLatency.computeIfAbsent(p, y -> LatencyHistogram.create()).record(x));
+        final Optional<Map.Entry<String, Long>> w = ns.entrySet().stream()
+                .max(Comparator.comparingLong(e -> e.getValue() - budget(e.getKey())));
+        if (n > budget() || w.filter(e -> e.getValue() > budget(e.getKey())).isPresent()) {
+            if (l.overruns.size() == OVERRUNS_KEPT) {
+                l.overruns.removeFirst();
+            }
+            l.overruns.addLast(w.map(e -> new Overrun(l.ticks, n, budget(), e.getKey(), e.getValue(),
+                    budget(e.getKey()))).orElseGet(() -> new Overrun(l.ticks, n, budget(), "", 0, 0)));
+        }
+        return cs;
+    }
+
+    /**
+     * Side-effect: accumulates the time elapsed since the last update, then runs
+     * a tick for each whole period accumulated as the policy allows.
+     *
+     * @return the number of ticks run
+     */
+    default int update() {
+        final Loop l = loop();
+        final long now = l.clock.getAsLong();
+        l.accumulated += now - l.last;
+        l.last = now;
+        final long due = l.accumulated / l.period;
+        final int run = (int) Math.min(due, l.policy == Policy.SKIP ? 1 : l.catchUp);
+        l.accumulated -= due * l.period;
+        l.skipped += due - run;
+        for (int i = 0; i < run; i++) {
+            tick();
+        }
+        return run;
+    }
+
+    /**
+     * Side-effect: updates the engine until the condition fails, parking the
+     * thread between ticks.
+     *
+     * @param c checked before every update
+     */
+    default void run(final BooleanSupplier c) {
+        while (c.getAsBoolean()) {
+            update();
+            LockSupport.parkNanos(loop().period - loop().accumulated);
+        }
+    }
+
+    /**
+     * The accumulated time, counters and histograms of an engine.
+     */
+    static final class Loop {
+
+        private final Stacks stacks;
+        private final LongSupplier clock;
+        private final long period;
+        private final Policy policy;
+        private final int catchUp;
+        private final long budget;
+        private final LatencyHistogram tickLatency = LatencyHistogram.create();
+        private final Map<String, LatencyHistogram> processorLatency = new ConcurrentHashMap<>();
+        private final Map<String, Long> budgets = new ConcurrentHashMap<>();
+        private final Deque<Overrun> overruns = new ArrayDeque<>();
+        private long last;
+        private long accumulated;
+        private long ticks;
+        private long skipped;
+
+        Loop(final Stacks stacks, final LongSupplier clock, final long period, final Policy policy, final int catchUp,
+                final long budget) {
+            this.stacks = stacks;
+            this.clock = clock;
+            this.period = period;
+            this.policy = policy;
+            this.catchUp = catchUp;
+            this.budget = budget;
+            this.last = clock.getAsLong();
+        }
+    }
+}
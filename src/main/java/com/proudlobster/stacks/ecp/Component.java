@@ -1,8 +1,10 @@
 package com.proudlobster.stacks.ecp;
 
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import com.proudlobster.stacks.Fallible;
@@ -86,15 +88,176 @@ public interface Component extends Couple<String> {
         EXPIRED(DataType.NONE);
 
         Couple<String> couple;
+        private final DataType type;
+        private final int id;
 
         Core(final DataType type) {
             this.couple = Couple.of(name(), type.name());
+            this.type = type;
+            this.id = Registry.id(name());
         }
 
         @Override
         public Optional<String> get(final long i) {
             return couple.get(i);
         }
+
+        @Override
+        public DataType type() {
+            return type;
+        }
+
+        @Override
+        public int id() {
+            return id;
+        }
+    }
+
+    /**
+     * Assigns every component name a dense int ID the first time it is seen, so
+     * that storage can index components by position rather than by name. IDs are
+     * never reused or released, as storage keeps arrays indexed by them, so the
+     * registry is shared by every instance in the process and only grows. Names
+     * must come from a bounded set, such as the components a program declares,
+     * rather than from data; registering more than MAX_SIZE names fails. Also
+     * remembers which names have been given to multiple reference components, so
+     * storage can tell a list of references from a string without the component.
+     */
+    public static final class Registry {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        /**
+         * The most component names which can be registered in the process.
+         */
+        public static final int MAX_SIZE = 1 << 16;
+
+        private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+        private static volatile String[] names = new String[INITIAL_CAPACITY];
+        private static volatile boolean[] multirefs = new boolean[INITIAL_CAPACITY];
+        private static volatile int size;
+
+        private Registry() {
+        }
+
+        /**
+         * @param n a component name
+         * @return the ID of the name, registering it if it is new
+         */
+        public static int id(final String n) {
+            final Integer i = IDS.get(n);
+            return i != null ? i : register(n);
+        }
+
+        /**
+         * @param n a component name
+         * @param t the data type of a component with the name
+         * @return the ID of the name, registering it if it is new, and remembering
+         *         it as a multiple reference if the type is one
+         */
+        public static int id(final String n, final DataType t) {
+            final int i = id(n);
+            if (t == DataType.MULTIREF && !multiref(i)) {
+                multiref(i, true);
+            }
+            return i;
+        }
+
+        /**
+         * @param i a component ID
+         * @return true if a multiple reference component has been created with the
+         *         name registered with the ID
+         */
+        public static boolean multiref(final int i) {
+            final boolean[] m = multirefs;
+            return i >= 0 && i < m.length && m[i];
+        }
+
+        private static synchronized void multiref(final int i, final boolean m) {
+            final boolean[] a = Arrays.copyOf(multirefs, names.length);
+            a[i] = m;
+            multirefs = a;
+        }
+
+        private static synchronized int register(final String n) {
+            final Integer i = IDS.get(n);
+            if (i != null) {
+                return i;
+            }
+            if (size == MAX_SIZE) {
+                ERR_REGISTRY_FULL.throwIt(n, Integer.toString(MAX_SIZE));
+            }
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+            }
+            names[size] = n;
+            IDS.put(n, size);
+            return size++;
+        }
+
+        /**
+         * @param i a registered component ID
+         * @return the name registered with the ID
+         */
+        public static String name(final int i) {
+            return names[i];
+        }
+
+        /**
+         * @return the number of names registered, one more than the highest ID
+         */
+        public static int size() {
+            return size;
+        }
+    }
+
+    /**
+     * A component whose name, ID and data type are resolved once, when it is
+     * created.
+     */
+    static final class Interned implements Component {
+
+        private final Couple<String> couple;
+        private final String name;
+        private final DataType type;
+        private final int id;
+
+        Interned(final String name, final String type) {
+            this.couple = Couple.of(name, type);
+            this.name = name;
+            this.type = Optional.ofNullable(type).filter(DataType.VALID_NAMES::contains).map(DataType::valueOf)
+                    .orElse(null);
+            this.id = name == null ? NO_ID : Registry.id(name, this.type);
+        }
+
+        @Override
+        public Optional<String> get(final long i) {
+            return couple.get(i);
+        }
+
+        @Override
+        public String name() {
+            if (name == null) {
+                ERR_NAME_NOT_FOUND.throwIt(this);
+            }
+            return name;
+        }
+
+        @Override
+        public DataType type() {
+            if (type == null) {
+                ERR_TYPE_NOT_FOUND.throwIt(this);
+            }
+            return type;
+        }
+
+        @Override
+        public int id() {
+            if (id == NO_ID) {
+                ERR_NAME_NOT_FOUND.throwIt(this);
+            }
+            return id;
+        }
     }
 
     /**
@@ -112,8 +275,7 @@ public interface Component extends Couple<String> {
      * @return a component representing the name and type
      */
     public static Component of(final String n, final String t) {
-        final Couple<String> c = Couple.of(n, t);
-        return i -> c.get(i);
+        return new Interned(n, t);
     }
 
     /**
@@ -126,6 +288,8 @@ public interface Component extends Couple<String> {
 
     Fallible ERR_NAME_NOT_FOUND = Fallible.of("Component name not found.");
     Fallible ERR_TYPE_NOT_FOUND = Fallible.of("Component data type not found.");
+    Fallible ERR_REGISTRY_FULL = Fallible.of(
+            "Component name ''{0}'' cannot be registered, as the {1} names allowed are registered already.");
     Fallible ERR_COULD_NOT_RESOLVE = Fallible.of("Could not resolve component with name ''{0}''' and type ''{1}''.");
 
     /**
@@ -138,6 +302,11 @@ public interface Component extends Couple<String> {
      */
     int TYPE_POSITION = 1;
 
+    /**
+     * ID of a component without a name: {@value}
+     */
+    int NO_ID = -1;
+
     /**
      * @return the component name
      */
@@ -153,4 +322,11 @@ public interface Component extends Couple<String> {
                 .orElseThrow(ERR_TYPE_NOT_FOUND.apply(this));
     }
 
+    /**
+     * @return the registered ID of the component name
+     */
+    default int id() {
+        return Registry.id(name());
+    }
+
 }
@@ -1,10 +1,12 @@
 package com.proudlobster.stacks.ecp;
 
 import java.util.Optional;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.proudlobster.stacks.Fallible;
 import com.proudlobster.stacks.structure.Dictionary;
+import com.proudlobster.stacks.structure.LongSet;
 import com.proudlobster.stacks.utility.StringAdapter;
 
 /**
@@ -64,10 +66,12 @@ public interface Entity extends Comparable<Entity> {
 
     /**
      * @param c a component
-     * @return the string value of that component
+     * @return the string value of that component, with references held as a set
+     *         joined as they would be written
      */
     default Optional<String> stringValue(final Component c) {
-        return value(c, String.class);
+        return value(c, String.class).or(() -> references(c)
+                .map(s -> s.stream().mapToObj(Long::toString).collect(Collectors.joining("|"))));
     }
 
     /**
@@ -78,13 +82,33 @@ public interface Entity extends Comparable<Entity> {
         return value(c, Long.class);
     }
 
+    /**
+     * @param c a multiple reference component
+     * @return a view of the references of that component which cannot change
+     *         them, if they are held as a set rather than written as a string
+     */
+    default Optional<LongSet> references(final Component c) {
+        return c.type().valueType.filter(String.class::equals)
+                .flatMap(t -> delegate().lookup(c.name(), LongSet.class)).map(LongSet::unmodifiable);
+    }
+
     /**
      * @param c a component
      * @return a stream of long values for that component
      */
     default Stream<Long> referenceValues(final Component c) {
-        return stringValue(c).map(StringAdapter::of).map(StringAdapter::splitToNumbers)
-                .orElse(longValue(c).map(Stream::of).orElse(Stream.empty()));
+        return references(c).map(s -> s.stream().boxed()).orElseGet(() -> value(c, String.class)
+                .map(StringAdapter::of).map(StringAdapter::splitToNumbers)
+                .orElse(longValue(c).map(Stream::of).orElse(Stream.empty())));
+    }
+
+    /**
+     * @param c a component
+     * @param l the ID of an entity
+     * @return true if the component references that entity
+     */
+    default boolean hasReference(final Component c, final Long l) {
+        return references(c).map(s -> s.contains(l)).orElseGet(() -> referenceValues(c).anyMatch(l::equals));
     }
 
     @Override
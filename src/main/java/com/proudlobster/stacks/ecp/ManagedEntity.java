@@ -1,7 +1,8 @@
 package com.proudlobster.stacks.ecp;
 
+import java.util.Arrays;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import com.proudlobster.stacks.Managed;
@@ -44,6 +45,14 @@ public interface ManagedEntity extends Managed, Entity {
         return referenceValues(c).flatMap(i -> $(i));
     }
 
+    /**
+     * @param c a reference or multiple reference component
+     * @return the entities whose component references this entity
+     */
+    default Stream<ManagedEntity> referrers(final Component c) {
+        return stacks().lookupManagedReferrers(identifier(), c);
+    }
+
     default ManagedTransaction assignComponent(final Component c, final String s) {
         return $().assignComponent(identifier(), c, s);
     }
@@ -65,16 +74,28 @@ public interface ManagedEntity extends Managed, Entity {
     }
 
     default ManagedTransaction addReference(final Component c, final Long l) {
-        return $().assignComponentString(identifier(), c,
-                () -> stringValue(c).map(v -> v + "|" + l).orElse(l.toString()));
+        return $().addReference(identifier(), c, l);
     }
 
     default ManagedTransaction removeReference(final Component c, final Long l) {
-        return $().assignComponentString(identifier(), c, () -> referenceValues(c).filter(v -> !v.equals(l))
-                .map(v -> v.toString()).collect(Collectors.joining("|")));
+        return $().removeReference(identifier(), c, l);
     }
 
     default ManagedTransaction expire() {
         return assignComponent(Component.Core.EXPIRED);
     }
+
+    /**
+     * @param cs reference or multiple reference components which may reference
+     *           this entity
+     * @return a transaction expiring this entity, removing every multiple
+     *         reference to it through the components and every reference
+     *         component holding it
+     */
+    default ManagedTransaction expire(final Component... cs) {
+        return Arrays.stream(cs).flatMap(c -> referrers(c).map(e -> (Function<ManagedTransaction, ManagedTransaction>) (
+                t -> c.type() == Component.DataType.MULTIREF ? t.removeReference(e.identifier(), c, identifier())
+                        : t.removeComponent(e.identifier(), c))))
+                .reduce(Function.identity(), (r, a) -> r.andThen(a)).apply(expire());
+    }
 }
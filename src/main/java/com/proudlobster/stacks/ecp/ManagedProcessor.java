@@ -1,8 +1,17 @@
 package com.proudlobster.stacks.ecp;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+import com.proudlobster.stacks.Fallible;
 import com.proudlobster.stacks.Managed;
 import com.proudlobster.stacks.Stacks;
 import com.proudlobster.stacks.structure.Couple;
@@ -22,6 +31,66 @@ public interface ManagedProcessor extends Managed, Processor {
     public static interface ManagedProcessorFunction extends Function<ManagedEntity, ManagedTransaction> {
     }
 
+    /**
+     * The number of entities a data-parallel Processor processes together.
+     */
+    @FunctionalInterface
+    public static interface Chunk {
+
+        /**
+         * @return the number of entities in each chunk
+         */
+        int size();
+    }
+
+    /**
+     * The Components a Processor declares it reads and writes, by name.
+     */
+    @FunctionalInterface
+    public static interface Access {
+
+        /**
+         * @param rs the names of the Components read
+         * @param ws the names of the Components written
+         * @return the declared access
+         */
+        public static Access of(final Set<String> rs, final Set<String> ws) {
+            final Couple<Set<String>> c = Couple.of(Collections.unmodifiableSet(rs), Collections.unmodifiableSet(ws));
+            return () -> c;
+        }
+
+        /**
+         * @return the names of the Components read and written
+         */
+        Couple<Set<String>> components();
+
+        /**
+         * @return the names of the Components read
+         */
+        default Set<String> reads() {
+            return components().first();
+        }
+
+        /**
+         * @return the names of the Components written
+         */
+        default Set<String> writes() {
+            return components().second();
+        }
+
+        /**
+         * @param a the access of another Processor
+         * @return true if either Processor writes a Component the other reads or
+         *         writes, so the two cannot run together
+         */
+        default boolean conflicts(final Access a) {
+            return a.writes().stream().anyMatch(c -> reads().contains(c) || writes().contains(c))
+                    || writes().stream().anyMatch(a.reads()::contains);
+        }
+    }
+
+    Fallible ERR_CHUNK_SIZE = Fallible.of("Chunk size must be positive, not {0}.");
+
     /**
      * @param c the Component this Processor handles
      * @param f the function operation performed
@@ -57,13 +126,103 @@ public interface ManagedProcessor extends Managed, Processor {
         return processor().delegate();
     }
 
+    /**
+     * @return the chunking of this Processor's entities, if it processes them in
+     *         parallel
+     */
+    default Optional<Chunk> chunk() {
+        return managedDelegate().firstOf(Chunk.class);
+    }
+
+    /**
+     * The function must only read while processing, as it is applied to several
+     * chunks at once.
+     * 
+     * @param n the number of entities to process together
+     * @return this Processor, processing its entities in chunks across cores
+     */
+    default ManagedProcessor parallel(final int n) {
+        final Chunk k = Optional.of(n).filter(i -> i > 0).map(i -> (Chunk) () -> i)
+                .orElseThrow(ERR_CHUNK_SIZE.apply(n));
+        return with(Optional.of(k), access());
+    }
+
+    /**
+     * @return the Components this Processor declares it reads and writes, if it
+     *         has declared any
+     */
+    default Optional<Access> access() {
+        return managedDelegate().firstOf(Access.class);
+    }
+
+    /**
+     * Declaring access lets a staged scheduler run this Processor alongside others
+     * whose access does not conflict. The handled Component is always read.
+     * 
+     * @param cs Components this Processor reads, in addition to any already
+     *           declared
+     * @return this Processor, declaring that it reads the Components
+     */
+    default ManagedProcessor reads(final Component... cs) {
+        final Access a = access().orElseGet(this::declared);
+        return with(chunk(), Optional.of(Access.of(union(a.reads(), cs), a.writes())));
+    }
+
+    /**
+     * @param cs Components this Processor writes, in addition to any already
+     *           declared
+     * @return this Processor, declaring that it writes the Components
+     */
+    default ManagedProcessor writes(final Component... cs) {
+        final Access a = access().orElseGet(this::declared);
+        return with(chunk(), Optional.of(Access.of(a.reads(), union(a.writes(), cs))));
+    }
+
+    private Access declared() {
+        return Access.of(Set.of(component().name()), Set.of());
+    }
+
+    private static Set<String> union(final Set<String> s, final Component... cs) {
+        return Stream.concat(s.stream(), Arrays.stream(cs).map(Component::name))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private ManagedProcessor with(final Optional<Chunk> k, final Optional<Access> a) {
+        final Object[] es = Stream.of(Optional.of(processor()), Optional.of(stacks()), k, a)
+                .flatMap(Optional::stream).toArray();
+        return () -> Tuple.of(es);
+    }
+
     /**
      * @return a Transaction resulting from performing the operation on all Entities
-     *         with the matching Component
+     *         with the matching Component, found through a view of that Component;
+     *         each Entity's Transaction applies before those of the Entities ahead
+     *         of it in the view, whether or not the Entities are processed in
+     *         chunks
      */
     default ManagedTransaction process() {
-        return $().$(component()).map(this::process).map(t -> ManagedTransaction.of(t, stacks()))
-                .reduce(ManagedTransaction::compose).orElse($());
+        return chunk().map(k -> process(k.size())).orElseGet(() -> stacks().view(component()).read()
+                .map(this::process).map(t -> ManagedTransaction.of(t, stacks())).reduce(ManagedTransaction::compose)
+                .orElse($()));
+    }
+
+    /**
+     * Splits the Entities into chunks of consecutive positions in the view's read
+     * and processes the chunks in parallel. The Entities are loaded together
+     * before they are split, and the resulting Transactions apply in the same
+     * order as they do when processed one at a time, however the chunks are
+     * scheduled.
+     * 
+     * @param n the number of Entities in each chunk
+     * @return a Transaction resulting from performing the operation on all Entities
+     *         with the matching Component
+     */
+    default ManagedTransaction process(final int n) {
+        final List<Entity> es = stacks().view(component()).read().toList();
+        return IntStream.range(0, (es.size() + n - 1) / n).parallel()
+                .mapToObj(i -> es.subList(i * n, Math.min(es.size(), (i + 1) * n)).stream().map(this::process)
+                        .map(t -> ManagedTransaction.of(t, stacks())).reduce(ManagedTransaction::compose))
+                .toList().stream().flatMap(Optional::stream).reduce(ManagedTransaction::compose).orElse($());
     }
 
 }
@@ -93,6 +93,11 @@ public interface ManagedTransaction extends Managed, Transaction {
         return createEntitiesFromTemplate(EntityTemplate.fromProperties(t), args);
     }
 
+    @Override
+    default Optional<Transaction.Buffer> commands() {
+        return transaction().commands();
+    }
+
     @Override
     default void commit(final EntityWriter w) {
         transaction().commit(w);
@@ -158,4 +163,14 @@ public interface ManagedTransaction extends Managed, Transaction {
         return manage(transaction().removeComponent(i, c));
     }
 
+    @Override
+    default ManagedTransaction addReference(final Long i, final Component c, final Long r) {
+        return manage(transaction().addReference(i, c, r));
+    }
+
+    @Override
+    default ManagedTransaction removeReference(final Long i, final Component c, final Long r) {
+        return manage(transaction().removeReference(i, c, r));
+    }
+
 }
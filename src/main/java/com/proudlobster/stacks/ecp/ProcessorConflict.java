@@ -0,0 +1,123 @@
+package com.proudlobster.stacks.ecp;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.proudlobster.stacks.Fallible;
+import com.proudlobster.stacks.storage.EntityWriter;
+import com.proudlobster.stacks.structure.Tuple;
+
+/**
+ * Two processors run together writing the same component of the same entity.
+ * Their writes are applied in the order the processors' transactions are
+ * committed, so the later one overwrites the earlier unless its value is
+ * computed from the entity at commit time.
+ */
+@FunctionalInterface
+public interface ProcessorConflict {
+
+    /**
+     * Tracks the entity components written by each processor in a run.
+     */
+    @FunctionalInterface
+    public static interface Detector {
+
+        /**
+         * @return a new detector with no writes tracked
+         */
+        public static Detector create() {
+            final Map<List<Object>, Set<String>> m = new LinkedHashMap<>();
+            return () -> m;
+        }
+
+        /**
+         * @return accessor to the internal map of entity components, as ID and
+         *         component name, to the processors which wrote them in order
+         */
+        Map<List<Object>, Set<String>> writes();
+
+        /**
+         * @param p the name of the processor whose transaction is committed
+         * @param w the writer the transaction is committed to
+         * @return a writer passing records to the other, recording each as written
+         *         by the processor
+         */
+        default EntityWriter track(final String p, final EntityWriter w) {
+            return r -> {
+                writes().computeIfAbsent(List.of(r.requiredIdentifier(), r.requiredComponent()),
+                        k -> new LinkedHashSet<>()).add(p);
+                w.write(r);
+            };
+        }
+
+        /**
+         * @return a conflict for every processor writing an entity component already
+         *         written by another, against the first to write it
+         */
+        default List<ProcessorConflict> conflicts() {
+            return writes().entrySet().stream().filter(e -> e.getValue().size() > 1)
+                    .flatMap(e -> e.getValue().stream().skip(1)
+                            .map(s -> ProcessorConflict.of((Long) e.getKey().get(0), (String) e.getKey().get(1),
+                                    e.getValue().iterator().next(), s)))
+                    .toList();
+        }
+    }
+
+    Fallible ERR_MALFORMED = Fallible.of("Processor conflict is missing element {0}.");
+
+    int COMPONENT_POSITION = 1;
+    int FIRST_POSITION = 2;
+    int SECOND_POSITION = 3;
+
+    /**
+     * @param id the ID of the entity written
+     * @param c  the name of the component written
+     * @param f  the name of the processor which wrote it first
+     * @param s  the name of the processor which wrote it again
+     * @return the conflict between the processors
+     */
+    public static ProcessorConflict of(final Long id, final String c, final String f, final String s) {
+        final Tuple<Object> t = Tuple.of(id, c, f, s);
+        return () -> t;
+    }
+
+    /**
+     * @return the elements of the conflict
+     */
+    Tuple<Object> delegate();
+
+    private String element(final int i) {
+        return delegate().get(i).map(String.class::cast).orElseThrow(ERR_MALFORMED.apply(i));
+    }
+
+    /**
+     * @return the ID of the entity written
+     */
+    default Long identifier() {
+        return delegate().requiredFirstOf(Long.class);
+    }
+
+    /**
+     * @return the name of the component written
+     */
+    default String component() {
+        return element(COMPONENT_POSITION);
+    }
+
+    /**
+     * @return the name of the processor which wrote the component first
+     */
+    default String first() {
+        return element(FIRST_POSITION);
+    }
+
+    /**
+     * @return the name of the processor which wrote the component again
+     */
+    default String second() {
+        return element(SECOND_POSITION);
+    }
+}
@@ -0,0 +1,75 @@
+package com.proudlobster.stacks.ecp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.proudlobster.stacks.ecp.ManagedProcessor.Access;
+
+/**
+ * The stages a set of Processors run in, derived from the Components each
+ * declares it reads and writes.
+ *
+ * A Processor depends on every Processor registered before it whose access
+ * conflicts with its own, and runs in the stage after the last of them. The
+ * Processors in one stage never conflict, so they may run together. A Processor
+ * which declares no access conflicts with every other.
+ */
+@FunctionalInterface
+public interface ProcessorSchedule {
+
+    /**
+     * @param ns the names of the Processors in registration order
+     * @param f  a function finding the declared access of a named Processor
+     * @return the schedule of the Processors
+     */
+    public static ProcessorSchedule of(final List<String> ns, final Function<String, Optional<Access>> f) {
+        final List<Optional<Access>> as = ns.stream().map(f).toList();
+        final int[] ss = new int[ns.size()];
+        final List<List<String>> l = new ArrayList<>();
+        IntStream.range(0, ns.size()).forEach(i -> {
+            ss[i] = IntStream.range(0, i).filter(j -> conflicts(as.get(i), as.get(j))).map(j -> ss[j] + 1).max()
+                    .orElse(0);
+            if (ss[i] == l.size()) {
+                l.add(new ArrayList<>());
+            }
+            l.get(ss[i]).add(ns.get(i));
+        });
+        final List<List<String>> stages = l.stream().map(List::copyOf).toList();
+        return () -> stages;
+    }
+
+    /**
+     * @param a the access of one Processor, if declared
+     * @param b the access of another Processor, if declared
+     * @return true if the Processors cannot run together
+     */
+    private static boolean conflicts(final Optional<Access> a, final Optional<Access> b) {
+        return a.flatMap(x -> b.map(x::conflicts)).orElse(Boolean.TRUE);
+    }
+
+    /**
+     * @return the names of the Processors in each stage, in the order the stages
+     *         run
+     */
+    List<List<String>> stages();
+
+    /**
+     * @param n the name of a Processor
+     * @return the index of the stage the Processor runs in, if it is scheduled
+     */
+    default Optional<Integer> stageOf(final String n) {
+        return IntStream.range(0, stages().size()).filter(i -> stages().get(i).contains(n)).boxed().findFirst();
+    }
+
+    /**
+     * @return a readable plan of the schedule, one numbered stage per line
+     */
+    default String plan() {
+        return IntStream.range(0, stages().size()).mapToObj(i -> (i + 1) + ": " + String.join(", ", stages().get(i)))
+                .collect(Collectors.joining(System.lineSeparator()));
+    }
+}
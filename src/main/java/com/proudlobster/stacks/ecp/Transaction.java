@@ -1,5 +1,6 @@
 package com.proudlobster.stacks.ecp;
 
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
@@ -7,6 +8,8 @@ import java.util.function.Supplier;
 
 import com.proudlobster.stacks.Fallible;
 import com.proudlobster.stacks.storage.EntityWriter;
+import com.proudlobster.stacks.structure.LongIntMap;
+import com.proudlobster.stacks.structure.LongSet;
 import com.proudlobster.stacks.utility.EntityTemplate;
 
 /**
@@ -61,11 +64,197 @@ public interface Transaction extends Consumer<EntityWriter> {
         }
     }
 
+    /**
+     * Version stamps of entity components, used to commit transactions built
+     * concurrently without a lock.
+     *
+     * A transaction started from the versions remembers the last stamp committed
+     * when it started. Committing it stamps every entity component it writes with
+     * a new stamp, unless another commit has stamped one of the components it
+     * assigns or removes outright since it started, in which case it collides and
+     * nothing is written. Values supplied at commit time are read from current
+     * state, so they never collide. Validating and writing is serial and brief;
+     * starting and building transactions is not restricted at all. The stamp a
+     * transaction starts from only advances once a commit, and the flush
+     * publishing it, has finished, so a transaction started during a commit is
+     * validated against it. Expiring an entity replaces the stamps of its
+     * components with the stamp of its expiry, which every component of the
+     * entity collides with, so a transaction started before the expiry cannot
+     * write part of the entity back.
+     */
+    @FunctionalInterface
+    public static interface Versions {
+
+        /**
+         * @return new versions with no entity components stamped
+         */
+        public static Versions create() {
+            final Table t = new Table();
+            return () -> t;
+        }
+
+        long UNSTAMPED = 0L;
+
+        /**
+         * @return accessor to the internal stamps
+         */
+        Table table();
+
+        /**
+         * @return the last stamp committed
+         */
+        default long stamp() {
+            return table().clock;
+        }
+
+        /**
+         * @param id the ID of an entity
+         * @param c  the registered ID of a component
+         * @return the stamp of the last commit writing that component of the entity
+         *         or expiring the entity, or UNSTAMPED if none has
+         */
+        default long version(final long id, final int c) {
+            synchronized (table()) {
+                return table().version(id, c);
+            }
+        }
+
+        /**
+         * Side-effect: writes the transaction and stamps what it wrote, unless it
+         * collides with a commit made since it started.
+         *
+         * @param t the transaction to commit
+         * @param w the entity writer to apply the transaction to
+         * @return true if the transaction was written, false if it collided
+         */
+        default boolean commit(final Transaction t, final EntityWriter w) {
+            synchronized (table()) {
+                if (t.commands().filter(b -> b.collides(this)).isPresent()) {
+                    return false;
+                }
+                apply(t, w);
+                return true;
+            }
+        }
+
+        /**
+         * Side-effect: writes the transaction and stamps what it wrote without
+         * checking for collisions, for writers which order their own commits.
+         *
+         * @param t the transaction to commit
+         * @param w the entity writer to apply the transaction to
+         */
+        default void apply(final Transaction t, final EntityWriter w) {
+            synchronized (table()) {
+                final long s = ++table().next;
+                t.commit(r -> {
+                    w.write(r);
+                    table().stamp(r, s);
+                });
+                if (!Thread.holdsLock(table().writing)) {
+                    table().clock = s;
+                }
+            }
+        }
+
+        /**
+         * Side-effect: runs the work while no other commit can be written, so
+         * commits and the flushes publishing them are never interleaved, then
+         * advances the stamp new transactions start from past the commits made.
+         * Starting a transaction meanwhile is not blocked.
+         *
+         * @param <T> the type of the result
+         * @param s   the work to run
+         * @return the result of the work
+         */
+        default <T> T exclusively(final Supplier<T> s) {
+            final boolean outermost = !Thread.holdsLock(table().writing);
+            synchronized (table().writing) {
+                try {
+                    return s.get();
+                } finally {
+                    if (outermost) {
+                        synchronized (table()) {
+                            table().clock = table().next;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * The commit clock and the stamps of each entity's components, addressed
+         * through a primitive map of entity IDs to rows and guarded by the table
+         * itself, and the lock held while commits are written and flushed.
+         */
+        static final class Table {
+
+            private static final int INITIAL_ROWS = 16;
+
+            private final LongIntMap rows = LongIntMap.create();
+            private long[][] stamps = new long[INITIAL_ROWS][];
+            private int size;
+            private final Object writing = new Object();
+            private long next = UNSTAMPED;
+            private volatile long clock = UNSTAMPED;
+
+            private long version(final long id, final int c) {
+                final int r = rows.get(id);
+                if (r == LongIntMap.NO_VALUE) {
+                    return UNSTAMPED;
+                }
+                final long[] a = stamps[r];
+                final int x = Component.Core.EXPIRED.id();
+                return Math.max(x < a.length ? a[x] : UNSTAMPED, c >= 0 && c < a.length ? a[c] : UNSTAMPED);
+            }
+
+            private void stamp(final EntityWriter.Record r, final long s) {
+                final long id = r.identifier().orElse(0L);
+                if (r.active() && r.componentId() == Component.Core.EXPIRED.id()) {
+                    final long[] a = new long[Component.Core.EXPIRED.id() + 1];
+                    a[Component.Core.EXPIRED.id()] = s;
+                    row(id, a);
+                } else {
+                    stamp(id, r.componentId(), s);
+                }
+            }
+
+            private void stamp(final long id, final int c, final long s) {
+                if (c == Component.NO_ID) {
+                    return;
+                }
+                final int r = rows.get(id);
+                final long[] a = r == LongIntMap.NO_VALUE ? null : stamps[r];
+                final long[] b = a != null && c < a.length ? a
+                        : Arrays.copyOf(a == null ? new long[0] : a, Math.max(c + 1, Component.Registry.size()));
+                b[c] = s;
+                if (b != a) {
+                    row(id, b);
+                }
+            }
+
+            private void row(final long id, final long[] a) {
+                final int r = rows.get(id);
+                if (r != LongIntMap.NO_VALUE) {
+                    stamps[r] = a;
+                    return;
+                }
+                if (size == stamps.length) {
+                    stamps = Arrays.copyOf(stamps, size * 2);
+                }
+                rows.put(id, size);
+                stamps[size++] = a;
+            }
+        }
+    }
+
     Fallible ERR_CANNOT_COMMIT = Fallible.of("This is not a managed transaction. It cannot be committed freely.");
     Fallible ERR_CANNOT_LOCK = Fallible.of("You cannot start a new transaction chain until the last one completes.");
+    Fallible ERR_COLLIDED = Fallible.of("Transaction collided with a commit made since it started and was rejected.");
     Fallible ERR_NOT_STRING = Fallible.of("''{0}'' is not a string component.");
     Fallible ERR_NOT_LONG = Fallible.of("''{0}'' is not a long component.");
     Fallible ERR_NOT_FLAG = Fallible.of("''{0}'' is not a flag component.");
+    Fallible ERR_NOT_MULTIREF = Fallible.of("''{0}'' is not a multiple reference component.");
 
     /**
      * @param l the lock to contorl the transaction
@@ -73,7 +262,16 @@ public interface Transaction extends Consumer<EntityWriter> {
      *         transactions
      */
     public static Transaction start(final Lock l) {
-        return Optional.of(l).filter(Lock::lock).map(Lock::unlock).orElseThrow(ERR_CANNOT_LOCK);
+        return Optional.of(l).filter(Lock::lock).map(Buffer::unlocking).orElseThrow(ERR_CANNOT_LOCK);
+    }
+
+    /**
+     * @param v the versions to validate the transaction against when committed
+     * @return an empty transaction remembering the last stamp committed, used to
+     *         compose with further transactions
+     */
+    public static Transaction start(final Versions v) {
+        return Buffer.beginning(v);
     }
 
     /**
@@ -96,13 +294,20 @@ public interface Transaction extends Consumer<EntityWriter> {
         throw ERR_CANNOT_COMMIT.get();
     }
 
+    /**
+     * @return the command buffer backing this transaction, if it is buffered
+     */
+    default Optional<Buffer> commands() {
+        return Optional.empty();
+    }
+
     /**
      * @param t the transaction to execute before the other one
      * @return a transaction which applies the parameter transaction and then the
      *         previous transaction
      */
     default Transaction compose(final Transaction t) {
-        return t.andThen(this)::accept;
+        return Buffer.of(this).compose(t);
     }
 
     /**
@@ -111,7 +316,7 @@ public interface Transaction extends Consumer<EntityWriter> {
      *         parameter transaction
      */
     default Transaction andThen(final Transaction t) {
-        return Consumer.super.andThen(t)::accept;
+        return Buffer.of(this).andThen(t);
     }
 
     /**
@@ -119,7 +324,7 @@ public interface Transaction extends Consumer<EntityWriter> {
      * @return a transaction composing the entity creation
      */
     default Transaction createEntity(final Long i) {
-        return ((Transaction) (w -> w.writeEntity(i))).andThen(this)::accept;
+        return Buffer.of(this).createEntity(i);
     }
 
     /**
@@ -127,7 +332,7 @@ public interface Transaction extends Consumer<EntityWriter> {
      * @return a transaction composing the transient entity creation
      */
     default Transaction createTransientEntity(final Long i) {
-        return this.compose(w -> w.writeTransientEntity(i));
+        return Buffer.of(this).createTransientEntity(i);
     }
 
     /**
@@ -146,9 +351,7 @@ public interface Transaction extends Consumer<EntityWriter> {
      * @return a transaction composing the component assignment
      */
     default Transaction assignComponent(final Long i, final Component c, final String s) {
-        return Optional.of(c.type().valueType).filter(Optional::isPresent).filter(t -> t.get().equals(String.class))
-                .map(t -> this.compose(w -> w.writeAssignComponent(i, c.name(), s)))
-                .orElseThrow(ERR_NOT_STRING.apply(c));
+        return Buffer.of(this).assignComponent(i, c, s);
     }
 
     /**
@@ -158,9 +361,7 @@ public interface Transaction extends Consumer<EntityWriter> {
      * @return a transaction composing the component assignment
      */
     default Transaction assignComponentString(final Long i, final Component c, final Supplier<String> s) {
-        final Transaction doit = w -> w.writeAssignComponent(i, c.name(), s.get());
-        return this.compose(Optional.of(c.type().valueType).filter(Optional::isPresent)
-                .filter(t -> t.get().equals(String.class)).map(t -> doit).orElseThrow(ERR_NOT_STRING.apply(c)));
+        return Buffer.of(this).assignComponentString(i, c, s);
     }
 
     /**
@@ -170,7 +371,7 @@ public interface Transaction extends Consumer<EntityWriter> {
      * @return a transaction composing the component assignment
      */
     default Transaction assignComponent(final Long i, final Component c, final Long l) {
-        return assignComponentLong(i, c, () -> l);
+        return Buffer.of(this).assignComponent(i, c, l);
     }
 
     /**
@@ -180,9 +381,7 @@ public interface Transaction extends Consumer<EntityWriter> {
      * @return a transaction composing the component assignment
      */
     default Transaction assignComponentLong(final Long i, final Component c, final Supplier<Long> l) {
-        final Transaction doit = w -> w.writeAssignComponent(i, c.name(), l.get());
-        return this.compose(Optional.of(c.type().valueType).filter(Optional::isPresent)
-                .filter(t -> t.get().equals(Long.class)).map(t -> doit).orElseThrow(ERR_NOT_LONG.apply(c)));
+        return Buffer.of(this).assignComponentLong(i, c, l);
     }
 
     /**
@@ -191,8 +390,7 @@ public interface Transaction extends Consumer<EntityWriter> {
      * @return a transaction composing the component assignment
      */
     default Transaction assignComponent(final Long i, final Component c) {
-        return Optional.of(c.type().valueType).filter(Optional::isEmpty)
-                .map(t -> this.compose(w -> w.writeAssignComponent(i, c.name()))).orElseThrow(ERR_NOT_FLAG.apply(c));
+        return Buffer.of(this).assignComponent(i, c);
     }
 
     /**
@@ -201,7 +399,27 @@ public interface Transaction extends Consumer<EntityWriter> {
      * @return a transaction composing the component removal
      */
     default Transaction removeComponent(final Long i, final Component c) {
-        return this.compose(w -> w.writeRemoveComponent(i, c.name()));
+        return Buffer.of(this).removeComponent(i, c);
+    }
+
+    /**
+     * @param i the ID of the entity to update
+     * @param c the multiple reference component to add the reference to
+     * @param r the ID of the entity to reference
+     * @return a transaction composing the reference addition
+     */
+    default Transaction addReference(final Long i, final Component c, final Long r) {
+        return Buffer.of(this).addReference(i, c, r);
+    }
+
+    /**
+     * @param i the ID of the entity to update
+     * @param c the multiple reference component to remove the reference from
+     * @param r the ID of the entity no longer referenced
+     * @return a transaction composing the reference removal
+     */
+    default Transaction removeReference(final Long i, final Component c, final Long r) {
+        return Buffer.of(this).removeReference(i, c, r);
     }
 
     @Override
@@ -209,4 +427,406 @@ public interface Transaction extends Consumer<EntityWriter> {
         commit(w);
     }
 
+
+    /**
+     * A transaction kept as a flat run of write commands, committed by iterating
+     * the run in order rather than by calling through a chain of closures.
+     *
+     * Each command is an opcode, an entity ID, a registered component ID, and a
+     * primitive long or reference value. Transactions which are not buffered are
+     * kept as a single nested command.
+     *
+     * A buffer is a view of a range of shared command storage. Extending the
+     * newest view of the storage writes in place at either end, so a chain of
+     * compositions fills one array rather than allocating a closure per step.
+     * Extending an older view copies its range first, leaving the newer one
+     * untouched.
+     */
+    static final class Buffer implements Transaction {
+
+        static final byte NESTED = 0;
+        static final byte ENTITY = 1;
+        static final byte TRANSIENT = 2;
+        static final byte STRING = 3;
+        static final byte LONG = 4;
+        static final byte FLAG = 5;
+        static final byte REMOVE = 6;
+        static final byte SUPPLIED_STRING = 7;
+        static final byte SUPPLIED_LONG = 8;
+        static final byte UNLOCK = 9;
+        static final byte BEGIN = 10;
+        static final byte ADD_REFERENCE = 11;
+        static final byte REMOVE_REFERENCE = 12;
+
+        private final Commands commands;
+        private final int head;
+        private final int tail;
+
+        private Buffer(final Commands commands, final int head, final int tail) {
+            this.commands = commands;
+            this.head = head;
+            this.tail = tail;
+        }
+
+        /**
+         * @param t a transaction
+         * @return the buffer backing the transaction, or a new buffer nesting it
+         */
+        static Buffer of(final Transaction t) {
+            return t.commands()
+                    .orElseGet(() -> new Buffer(new Commands(0), 0, 0).push(false, NESTED, 0, Component.NO_ID, 0, t));
+        }
+
+        /**
+         * @param l a locked lock
+         * @return a new buffer unlocking the lock
+         */
+        static Buffer unlocking(final Lock l) {
+            return new Buffer(new Commands(0), 0, 0).push(false, UNLOCK, 0, Component.NO_ID, 0, l);
+        }
+
+        /**
+         * @param v the versions to validate against
+         * @return a new buffer remembering the last stamp committed to the versions
+         */
+        static Buffer beginning(final Versions v) {
+            return new Buffer(new Commands(0), 0, 0).push(false, BEGIN, 0, Component.NO_ID, v.stamp(), v);
+        }
+
+        /**
+         * @param v versions which the buffer may have begun from
+         * @return true if a component assigned or removed outright by the buffer was
+         *         stamped by the versions after the earliest start from them;
+         *         changes to single references apply to whatever references are
+         *         current, so they never collide
+         */
+        boolean collides(final Versions v) {
+            final Commands s = snapshot();
+            long since = Long.MAX_VALUE;
+            for (int p = s.base + head; p < s.base + tail; p++) {
+                if (s.ops[p] == BEGIN && s.values[p] == v) {
+                    since = Math.min(since, s.longs[p]);
+                }
+            }
+            for (int p = s.base + head; since != Long.MAX_VALUE && p < s.base + tail; p++) {
+                if (s.ops[p] >= STRING && s.ops[p] <= REMOVE && v.version(s.ids[p], s.components[p]) > since) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return the number of commands in the buffer
+         */
+        int size() {
+            return tail - head;
+        }
+
+        /**
+         * @param i the position of a command in the buffer
+         * @return the opcode of the command
+         */
+        byte opcode(final int i) {
+            final Commands s = snapshot();
+            return s.ops[s.base + head + i];
+        }
+
+        private Buffer push(final boolean front, final byte op, final long id, final int c, final long l,
+                final Object v) {
+            synchronized (commands) {
+                if (commands.claim(front, front ? head : tail, 1)) {
+                    commands.set(front ? head - 1 : tail, op, id, c, l, v);
+                    return new Buffer(commands, front ? head - 1 : head, front ? tail : tail + 1);
+                }
+            }
+            return fork(1).push(front, op, id, c, l, v);
+        }
+
+        private Buffer push(final boolean front, final Buffer b) {
+            final Commands s = b.snapshot();
+            final int n = b.size();
+            synchronized (commands) {
+                if (commands.claim(front, front ? head : tail, n)) {
+                    commands.copy(s, b.head, front ? head - n : tail, n);
+                    return new Buffer(commands, front ? head - n : head, front ? tail : tail + n);
+                }
+            }
+            return fork(n).push(front, b);
+        }
+
+        /**
+         * @return storage holding this buffer's commands at the same positions,
+         *         unaffected by the storage growing later
+         */
+        private Commands snapshot() {
+            synchronized (commands) {
+                return commands.snapshot();
+            }
+        }
+
+        /**
+         * @param n the number of further commands to make room for
+         * @return a buffer holding a copy of this one's commands in new storage
+         */
+        private Buffer fork(final int n) {
+            final Commands c = new Commands(size() + n);
+            c.claim(false, 0, size());
+            c.copy(snapshot(), head, 0, size());
+            return new Buffer(c, 0, size());
+        }
+
+        @Override
+        public Optional<Buffer> commands() {
+            return Optional.of(this);
+        }
+
+        /**
+         * Finds the writes which a later write to the same entity component replaces
+         * before anything could read them. Supplied values and nested transactions
+         * may read any component when committed, so writes before them are kept.
+         * Changes to single references are replaced by later writes, but keep the
+         * writes before them, which they change.
+         *
+         * @param s a snapshot of the storage of this buffer
+         * @return for each command, true if committing it can be skipped
+         */
+        private boolean[] overwritten(final Commands s) {
+            final boolean[] o = new boolean[size()];
+            final LongSet[] w = new LongSet[Component.Registry.size()];
+            final int[] ws = new int[size()];
+            int n = 0;
+            for (int i = size() - 1; i >= 0; i--) {
+                final int p = s.base + head + i;
+                final byte op = s.ops[p];
+                final int c = s.components[p];
+                if ((op >= STRING && op <= SUPPLIED_LONG || op == ADD_REFERENCE || op == REMOVE_REFERENCE)
+                        && w[c] != null && w[c].contains(s.ids[p])) {
+                    o[i] = true;
+                } else if (op >= STRING && op <= REMOVE) {
+                    if (w[c] == null) {
+                        w[c] = LongSet.create();
+                        ws[n++] = c;
+                    }
+                    w[c].add(s.ids[p]);
+                } else if (op == SUPPLIED_STRING || op == SUPPLIED_LONG || op == NESTED) {
+                    while (n > 0) {
+                        w[ws[--n]] = null;
+                    }
+                }
+            }
+            return o;
+        }
+
+        /**
+         * Side-effect: writes the commands in order, skipping any write replaced by a
+         * later one to the same entity component, so only the final value or
+         * removal reaches storage.
+         *
+         * @param w the entity writer to apply the transaction to
+         */
+        @Override
+        public void commit(final EntityWriter w) {
+            final Commands s = snapshot();
+            final boolean[] o = size() > 1 ? overwritten(s) : new boolean[size()];
+            for (int i = 0; i < size(); i++) {
+                if (o[i]) {
+                    continue;
+                }
+                final int p = s.base + head + i;
+                final long id = s.ids[p];
+                final String c = s.components[p] == Component.NO_ID ? null
+                        : Component.Registry.name(s.components[p]);
+                switch (s.ops[p]) {
+                case ENTITY -> w.writeEntity(id);
+                case TRANSIENT -> w.writeTransientEntity(id);
+                case STRING -> w.writeAssignComponent(id, c, (String) s.values[p]);
+                case LONG -> w.writeAssignComponent(id, c, s.longs[p]);
+                case FLAG -> w.writeAssignComponent(id, c);
+                case REMOVE -> w.writeRemoveComponent(id, c);
+                case SUPPLIED_STRING -> w.writeAssignComponent(id, c, (String) ((Supplier<?>) s.values[p]).get());
+                case SUPPLIED_LONG -> w.writeAssignComponent(id, c, (Long) ((Supplier<?>) s.values[p]).get());
+                case UNLOCK -> ((Lock) s.values[p]).unlock().commit(w);
+                case BEGIN -> {
+                }
+                case ADD_REFERENCE -> w.writeAddReference(id, c, s.longs[p]);
+                case REMOVE_REFERENCE -> w.writeRemoveReference(id, c, s.longs[p]);
+                default -> ((Transaction) s.values[p]).commit(w);
+                }
+            }
+        }
+
+        @Override
+        public Transaction compose(final Transaction t) {
+            return t.commands().map(b -> push(true, b)).orElseGet(() -> push(true, NESTED, 0, Component.NO_ID, 0, t));
+        }
+
+        @Override
+        public Transaction andThen(final Transaction t) {
+            return t.commands().map(b -> push(false, b)).orElseGet(() -> push(false, NESTED, 0, Component.NO_ID, 0, t));
+        }
+
+        @Override
+        public Transaction createEntity(final Long i) {
+            return push(true, ENTITY, i, Component.NO_ID, 0, null);
+        }
+
+        @Override
+        public Transaction createTransientEntity(final Long i) {
+            return push(true, TRANSIENT, i, Component.NO_ID, 0, null);
+        }
+
+        @Override
+        public Transaction assignComponent(final Long i, final Component c, final String s) {
+            return Optional.of(c.type().valueType).filter(Optional::isPresent).filter(t -> t.get().equals(String.class))
+                    .map(t -> push(true, STRING, i, c.id(), 0, s)).orElseThrow(ERR_NOT_STRING.apply(c));
+        }
+
+        @Override
+        public Transaction assignComponentString(final Long i, final Component c, final Supplier<String> s) {
+            return Optional.of(c.type().valueType).filter(Optional::isPresent).filter(t -> t.get().equals(String.class))
+                    .map(t -> push(true, SUPPLIED_STRING, i, c.id(), 0, s)).orElseThrow(ERR_NOT_STRING.apply(c));
+        }
+
+        @Override
+        public Transaction assignComponent(final Long i, final Component c, final Long l) {
+            return Optional.ofNullable(l).isEmpty() ? assignComponentLong(i, c, () -> l)
+                    : Optional.of(c.type().valueType).filter(Optional::isPresent)
+                            .filter(t -> t.get().equals(Long.class)).map(t -> push(true, LONG, i, c.id(), l, null))
+                            .orElseThrow(ERR_NOT_LONG.apply(c));
+        }
+
+        @Override
+        public Transaction assignComponentLong(final Long i, final Component c, final Supplier<Long> l) {
+            return Optional.of(c.type().valueType).filter(Optional::isPresent).filter(t -> t.get().equals(Long.class))
+                    .map(t -> push(true, SUPPLIED_LONG, i, c.id(), 0, l)).orElseThrow(ERR_NOT_LONG.apply(c));
+        }
+
+        @Override
+        public Transaction assignComponent(final Long i, final Component c) {
+            return Optional.of(c.type().valueType).filter(Optional::isEmpty)
+                    .map(t -> push(true, FLAG, i, c.id(), 0, null)).orElseThrow(ERR_NOT_FLAG.apply(c));
+        }
+
+        @Override
+        public Transaction removeComponent(final Long i, final Component c) {
+            return push(true, REMOVE, i, c.id(), 0, null);
+        }
+
+        @Override
+        public Transaction addReference(final Long i, final Component c, final Long r) {
+            return Optional.of(c).filter(x -> x.type() == Component.DataType.MULTIREF)
+                    .map(x -> push(true, ADD_REFERENCE, i, c.id(), r, null)).orElseThrow(ERR_NOT_MULTIREF.apply(c));
+        }
+
+        @Override
+        public Transaction removeReference(final Long i, final Component c, final Long r) {
+            return Optional.of(c).filter(x -> x.type() == Component.DataType.MULTIREF)
+                    .map(x -> push(true, REMOVE_REFERENCE, i, c.id(), r, null)).orElseThrow(ERR_NOT_MULTIREF.apply(c));
+        }
+    }
+
+    /**
+     * Storage for the commands of buffers, growing at either end. Positions are
+     * logical, relative to where the first command was written, so they stay
+     * valid for every buffer viewing the storage as it grows.
+     */
+    static final class Commands {
+
+        private static final int MIN_CAPACITY = 8;
+
+        private byte[] ops;
+        private long[] ids;
+        private int[] components;
+        private long[] longs;
+        private Object[] values;
+        private int base;
+        private int head;
+        private int tail;
+
+        Commands(final int n) {
+            final int c = Math.max(MIN_CAPACITY, n * 2);
+            allocate(c, c / 2);
+        }
+
+        private Commands(final Commands c) {
+            ops = c.ops;
+            ids = c.ids;
+            components = c.components;
+            longs = c.longs;
+            values = c.values;
+            base = c.base;
+        }
+
+        /**
+         * @return storage sharing the current arrays, whose written commands are
+         *         never rewritten, as growing replaces the arrays instead
+         */
+        Commands snapshot() {
+            return new Commands(this);
+        }
+
+        private void allocate(final int n, final int b) {
+            ops = new byte[n];
+            ids = new long[n];
+            components = new int[n];
+            longs = new long[n];
+            values = new Object[n];
+            base = b;
+        }
+
+        /**
+         * @param front true to claim space before the head, false after the tail
+         * @param edge  the end of the buffer claiming the space
+         * @param n     the number of commands to claim space for
+         * @return true if the buffer ends where the storage does, and the space is
+         *         now claimed for it
+         */
+        boolean claim(final boolean front, final int edge, final int n) {
+            if (edge != (front ? head : tail)) {
+                return false;
+            }
+            final int f = front ? n : 0;
+            final int e = front ? 0 : n;
+            if (base + head - f < 0 || base + tail + e > ops.length) {
+                grow(f, e);
+            }
+            head -= f;
+            tail += e;
+            return true;
+        }
+
+        private void grow(final int f, final int e) {
+            final int size = tail - head;
+            final int n = Math.max(MIN_CAPACITY, (size + f + e) * 2);
+            final int from = base + head;
+            final byte[] os = ops;
+            final long[] is = ids;
+            final int[] cs = components;
+            final long[] ls = longs;
+            final Object[] vs = values;
+            allocate(n, f + (n - size - f - e) / 2 - head);
+            System.arraycopy(os, from, ops, base + head, size);
+            System.arraycopy(is, from, ids, base + head, size);
+            System.arraycopy(cs, from, components, base + head, size);
+            System.arraycopy(ls, from, longs, base + head, size);
+            System.arraycopy(vs, from, values, base + head, size);
+        }
+
+        void set(final int i, final byte op, final long id, final int c, final long l, final Object v) {
+            ops[base + i] = op;
+            ids[base + i] = id;
+            components[base + i] = c;
+            longs[base + i] = l;
+            values[base + i] = v;
+        }
+
+        void copy(final Commands s, final int from, final int to, final int n) {
+            System.arraycopy(s.ops, s.base + from, ops, base + to, n);
+            System.arraycopy(s.ids, s.base + from, ids, base + to, n);
+            System.arraycopy(s.components, s.base + from, components, base + to, n);
+            System.arraycopy(s.longs, s.base + from, longs, base + to, n);
+            System.arraycopy(s.values, s.base + from, values, base + to, n);
+        }
+    }
 }
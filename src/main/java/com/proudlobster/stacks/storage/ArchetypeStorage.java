@@ -0,0 +1,366 @@
+package com.proudlobster.stacks.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.proudlobster.stacks.ecp.Component;
+import com.proudlobster.stacks.ecp.Entity;
+import com.proudlobster.stacks.structure.LongIntMap;
+
+/**
+ * Entity reader and writer for keeping entities in memory, grouped by
+ * archetype.
+ *
+ * An archetype is the set of component names held by an entity. All entities
+ * sharing an archetype are stored together in contiguous per-component
+ * columns, so that reading every entity with a set of components walks whole
+ * archetypes row by row rather than probing one map per entity.
+ */
+@FunctionalInterface
+public interface ArchetypeStorage extends InMemoryStorage {
+
+    /**
+     * The storage mode of a single column.
+     */
+    public static enum ColumnType {
+
+        /**
+         * Values held in a long array.
+         */
+        LONG,
+
+        /**
+         * Values held in a bit set, for components with no value.
+         */
+        FLAG,
+
+        /**
+         * Values held in an object array.
+         */
+        OBJECT;
+
+        /**
+         * @param v a component value
+         * @return the column type best suited to hold the value
+         */
+        public static ColumnType of(final Object v) {
+            return v instanceof Long ? LONG : v instanceof Boolean ? FLAG : OBJECT;
+        }
+    }
+
+    /**
+     * A single component's values for every entity in an archetype.
+     */
+    public static final class Column {
+
+        private ColumnType type;
+        private int capacity;
+        private long[] longs;
+        private BitSet flags;
+        private Object[] objects;
+
+        Column(final ColumnType type, final int capacity) {
+            this.type = type;
+            this.capacity = capacity;
+            switch (type) {
+                case LONG:
+                    longs = new long[capacity];
+                    break;
+                case FLAG:
+                    flags = new BitSet(capacity);
+                    break;
+                default:
+                    objects = new Object[capacity];
+            }
+        }
+
+        /**
+         * @return the storage mode of the column
+         */
+        public ColumnType type() {
+            return type;
+        }
+
+        Object get(final int row) {
+            switch (type) {
+                case LONG:
+                    return longs[row];
+                case FLAG:
+                    return flags.get(row) ? EntityStorageDescriptor.DEFAULT_FLAG : null;
+                default:
+                    return objects[row];
+            }
+        }
+
+        void set(final int row, final Object v) {
+            if (type != ColumnType.OBJECT && type != ColumnType.of(v)) {
+                promote();
+            }
+            switch (type) {
+                case LONG:
+                    longs[row] = (Long) v;
+                    break;
+                case FLAG:
+                    flags.set(row, (Boolean) v);
+                    break;
+                default:
+                    objects[row] = v;
+            }
+        }
+
+        void move(final int from, final int to) {
+            switch (type) {
+                case LONG:
+                    longs[to] = longs[from];
+                    break;
+                case FLAG:
+                    flags.set(to, flags.get(from));
+                    break;
+                default:
+                    objects[to] = objects[from];
+            }
+            clear(from);
+        }
+
+        void clear(final int row) {
+            switch (type) {
+                case FLAG:
+                    flags.clear(row);
+                    break;
+                case OBJECT:
+                    objects[row] = null;
+                    break;
+                default:
+            }
+        }
+
+        void grow(final int c) {
+            capacity = c;
+            switch (type) {
+                case LONG:
+                    longs = Arrays.copyOf(longs, c);
+                    break;
+                case OBJECT:
+                    objects = Arrays.copyOf(objects, c);
+                    break;
+                default:
+            }
+        }
+
+        private void promote() {
+            final Object[] os = new Object[capacity];
+            for (int i = 0; i < capacity; i++) {
+                os[i] = get(i);
+            }
+            type = ColumnType.OBJECT;
+            objects = os;
+            longs = null;
+            flags = null;
+        }
+    }
+
+    /**
+     * All entities sharing one set of component names.
+     */
+    public static final class Archetype {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final Set<String> signature;
+        private final Map<String, Column> columns = new HashMap<>();
+        private final Map<String, Archetype> additions = new HashMap<>();
+        private final Map<String, Archetype> removals = new HashMap<>();
+        private final LongIntMap rows = LongIntMap.create();
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private int size;
+
+        Archetype(final Set<String> signature) {
+            this.signature = signature;
+        }
+
+        /**
+         * @return the component names shared by every entity in the archetype
+         */
+        public Set<String> signature() {
+            return signature;
+        }
+
+        /**
+         * @return the number of entities in the archetype
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param c a component name
+         * @return the column holding that component, if it belongs to the archetype
+         */
+        public Optional<Column> column(final String c) {
+            return Optional.ofNullable(columns.get(c));
+        }
+
+        Optional<Object> value(final long id, final String c) {
+            final int r = rows.get(id);
+            return r == LongIntMap.NO_VALUE ? Optional.empty() : column(c).map(l -> l.get(r));
+        }
+
+        long[] ids() {
+            return Arrays.copyOf(ids, size);
+        }
+
+        int add(final long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                columns.values().forEach(l -> l.grow(size * 2));
+            }
+            ids[size] = id;
+            rows.put(id, size);
+            return size++;
+        }
+
+        void set(final long id, final String c, final Object v) {
+            columns.computeIfAbsent(c, x -> new Column(ColumnType.of(v), ids.length)).set(rows.get(id), v);
+        }
+
+        void remove(final long id) {
+            final int row = rows.remove(id);
+            final int last = --size;
+            if (row != last) {
+                ids[row] = ids[last];
+                rows.put(ids[row], row);
+                columns.values().forEach(l -> l.move(last, row));
+            } else {
+                columns.values().forEach(l -> l.clear(last));
+            }
+        }
+    }
+
+    /**
+     * The registry of archetypes and the archetype each entity belongs to.
+     */
+    public static final class World {
+
+        private final Map<Set<String>, Archetype> archetypes = new HashMap<>();
+        private final Map<Long, Archetype> entities = new HashMap<>();
+
+        Archetype archetype(final Set<String> s) {
+            return archetypes.computeIfAbsent(s, Archetype::new);
+        }
+
+        Optional<Archetype> locate(final long id) {
+            return Optional.ofNullable(entities.get(id));
+        }
+
+        Stream<Archetype> matching(final Set<String> cs) {
+            return archetypes.values().stream().filter(a -> a.size() > 0 && a.signature().containsAll(cs));
+        }
+
+        void move(final long id, final Archetype from, final Archetype to) {
+            to.add(id);
+            Optional.ofNullable(from).ifPresent(f -> {
+                final int row = f.rows.get(id);
+                f.columns.entrySet().stream().filter(e -> to.signature().contains(e.getKey()))
+                        .forEach(e -> to.set(id, e.getKey(), e.getValue().get(row)));
+                f.remove(id);
+            });
+            entities.put(id, to);
+        }
+
+        void expire(final long id) {
+            locate(id).ifPresent(a -> a.remove(id));
+            entities.remove(id);
+        }
+    }
+
+    /**
+     * @return new archetype storage
+     */
+    public static ArchetypeStorage of() {
+        final World w = new World();
+        return () -> w;
+    }
+
+    private static Set<String> signatureWith(final Set<String> s, final String c) {
+        final Set<String> n = new HashSet<>(s);
+        n.add(c);
+        return Set.copyOf(n);
+    }
+
+    private static Set<String> signatureWithout(final Set<String> s, final String c) {
+        final Set<String> n = new HashSet<>(s);
+        n.remove(c);
+        return Set.copyOf(n);
+    }
+
+    /**
+     * @return the archetypes and entity locations backing this storage
+     */
+    World world();
+
+    /**
+     * @param id the ID of an entity
+     * @return a view of the entity which resolves its components on lookup
+     */
+    default Entity view(final long id) {
+        return () -> c -> world().locate(id).flatMap(a -> a.value(id, c));
+    }
+
+    @Override
+    default Stream<Entity> handle(final EntityStorageDescriptor r, final boolean w) {
+        return w ? writeInternal(r) : readInternal(r);
+    }
+
+    @Override
+    default Stream<Entity> read(final Component... cs) {
+        final Set<String> ns = Arrays.stream(cs).map(Component::name).collect(Collectors.toSet());
+        return scan(ns);
+    }
+
+    /**
+     * @param cs component names to match
+     * @return every entity whose archetype holds all the component names, read
+     *         archetype by archetype
+     */
+    default Stream<Entity> scan(final Set<String> cs) {
+        final List<long[]> ids = world().matching(cs).map(Archetype::ids).collect(Collectors.toCollection(ArrayList::new));
+        return ids.stream().flatMapToLong(Arrays::stream).mapToObj(this::view);
+    }
+
+    private Stream<Entity> readInternal(final EntityStorageDescriptor r) {
+        return r.identifier().map(i -> world().locate(i).map(a -> Stream.of(view(i))).orElseGet(Stream::empty))
+                .orElseGet(() -> r.component().map(Set::of).map(this::scan).orElseGet(Stream::empty));
+    }
+
+    private Stream<Entity> writeInternal(final EntityStorageDescriptor r) {
+        final long id = r.identifier().get();
+        final String c = r.component().get();
+        final Optional<Archetype> from = world().locate(id);
+        if (r.active()) {
+            final Archetype to = from.filter(a -> a.signature().contains(c))
+                    .orElseGet(() -> from.map(a -> a.additions.computeIfAbsent(c,
+                            x -> world().archetype(signatureWith(a.signature(), c))))
+                            .orElseGet(() -> world().archetype(Set.of(c))));
+            if (from.filter(to::equals).isEmpty()) {
+                world().move(id, from.orElse(null), to);
+            }
+            to.set(id, c, r.reference().map(a -> (Object) r.referenced(to.value(id, c).orElse(null)))
+                    .orElseGet(r::value));
+        } else {
+            from.filter(a -> a.signature().contains(c)).ifPresent(a -> world().move(id, a,
+                    a.removals.computeIfAbsent(c, x -> world().archetype(signatureWithout(a.signature(), c)))));
+        }
+
+        r.component().filter(n -> Component.Core.EXPIRED.name().equals(n)).ifPresent(n -> world().expire(id));
+        return Stream.of();
+    }
+}
@@ -1,13 +1,17 @@
 package com.proudlobster.stacks.storage;
 
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Optional;
+import java.util.Spliterator;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.proudlobster.stacks.ecp.Component;
 import com.proudlobster.stacks.ecp.Entity;
+import com.proudlobster.stacks.structure.Tuple;
 
 /**
  * Used to read entity data from storage.
@@ -30,7 +34,7 @@ public interface EntityReader extends Function<Stream<EntityReader.Record>, Stre
          */
         public static Record of(final Optional<Long> id, final Optional<String> c, final Optional<String> s,
                 final Optional<Long> l) {
-            return () -> EntityStorageDescriptor.of(id, c, s, l, true).stream();
+            return Indexed.of(id, c, s, l, true);
         }
 
         /**
@@ -50,13 +54,60 @@ public interface EntityReader extends Function<Stream<EntityReader.Record>, Stre
         }
     }
 
+    /**
+     * An entity reader composed of others, passing every read through to each of
+     * them and merging the results by entity identifier.
+     */
+    @FunctionalInterface
+    public static interface Composite extends EntityReader {
+
+        /**
+         * @return the composed readers
+         */
+        Tuple<EntityReader> readers();
+
+        /**
+         * @param es entities read from each composed reader
+         * @return the entities with duplicate identifiers removed, keeping the first
+         */
+        default Stream<Entity> merge(final Stream<Entity> es) {
+            return readers().count() == 1 ? es
+                    : es.collect(Collectors.toMap(Entity::identifier, Function.identity(), (e, t) -> e)).values()
+                            .stream();
+        }
+
+        @Override
+        default Stream<Entity> read(final EntityReader.Record r) {
+            return merge(readers().stream().flatMap(er -> er.read(r)));
+        }
+
+        @Override
+        default Stream<Entity> read(final Component... cs) {
+            return merge(readers().stream().flatMap(er -> er.read(cs)));
+        }
+
+        @Override
+        default Stream<Entity> readReferrers(final Long id, final Component c) {
+            return merge(readers().stream().flatMap(er -> er.readReferrers(id, c)));
+        }
+    }
+
     /**
      * @param ers entity readers to compose
      * @return an entity reader composed of the others
      */
     public static EntityReader of(final EntityReader... ers) {
-        return r -> Stream.of(ers).flatMap(er -> er.read(r))
-                .collect(Collectors.toMap(Entity::identifier, Function.identity(), (e, t) -> e)).values().stream();
+        final Tuple<EntityReader> t = Tuple.of(ers);
+        return (Composite) () -> t;
+    }
+
+    /**
+     * @param s a spliterator over entities
+     * @return the number of entities the spliterator will produce, or the largest
+     *         possible number if that is not known in advance
+     */
+    private static long cardinality(final Spliterator<Entity> s) {
+        return Optional.of(s.getExactSizeIfKnown()).filter(l -> l >= 0).orElse(Long.MAX_VALUE);
     }
 
     /**
@@ -92,11 +143,44 @@ public interface EntityReader extends Function<Stream<EntityReader.Record>, Stre
     }
 
     /**
+     * @param c a component
+     * @return the number of entities with the component, if the reader knows it
+     *         without reading them, or -1 otherwise
+     */
+    default long cardinality(final Component c) {
+        return -1;
+    }
+
+    /**
+     * Plans the read from the rarest component: the component with the fewest
+     * entities drives the iteration, and every other component is probed on the
+     * entities it produces. Unless the reader knows how many entities have each
+     * component, each component's entities are opened without being traversed
+     * and the smallest known result drives the iteration instead.
+     * 
      * @param cs components of the entities to find
      * @return the entities with those components
      */
     default Stream<Entity> read(final Component... cs) {
-        return apply(Arrays.stream(cs).map(Component::name).map(Record::of))
-                .filter(e -> Arrays.stream(cs).allMatch(e::is));
+        final String[] ns = Arrays.stream(cs).map(Component::name).distinct().toArray(String[]::new);
+        final Component[] fs = Arrays.stream(ns).map(Component::flagOf).toArray(Component[]::new);
+        return (Arrays.stream(fs).allMatch(c -> cardinality(c) >= 0)
+                ? Arrays.stream(fs).min(Comparator.comparingLong(this::cardinality)).map(c -> read(Record.of(c.name())))
+                : Arrays.stream(ns).map(Record::of).map(r -> read(r).spliterator())
+                        .min(Comparator.comparingLong(EntityReader::cardinality))
+                        .map(s -> StreamSupport.stream(s, false)))
+                .orElseGet(Stream::empty).filter(e -> Arrays.stream(ns).allMatch(e::is));
+    }
+
+    /**
+     * Scans every entity with the component; readers keeping an index of
+     * references answer from it instead.
+     * 
+     * @param id the ID of the entity referenced
+     * @param c  a reference or multiple reference component
+     * @return the entities whose component references that entity
+     */
+    default Stream<Entity> readReferrers(final Long id, final Component c) {
+        return read(Record.of(c.name())).filter(e -> e.hasReference(c, id));
     }
 }
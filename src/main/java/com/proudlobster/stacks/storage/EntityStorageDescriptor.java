@@ -4,13 +4,34 @@ import java.util.Optional;
 import java.util.stream.Stream;
 
 import com.proudlobster.stacks.Fallible;
+import com.proudlobster.stacks.ecp.Component;
+import com.proudlobster.stacks.structure.LongSet;
 import com.proudlobster.stacks.structure.Tuple;
+import com.proudlobster.stacks.utility.StringAdapter;
 
 /**
  * A structure used to describe entity data to be read or written
  */
+@FunctionalInterface
 public interface EntityStorageDescriptor extends Tuple<Object> {
 
+    /**
+     * The changes which can be described to a single reference of a multiple
+     * reference component, leaving its other references as they are.
+     */
+    public static enum Reference {
+
+        /**
+         * The reference is added, if not already present.
+         */
+        ADD,
+
+        /**
+         * The reference is removed, if present.
+         */
+        REMOVE
+    }
+
     /**
      * @param id the ID of the entity
      * @param c  the component of the entity described
@@ -21,13 +42,52 @@ public interface EntityStorageDescriptor extends Tuple<Object> {
      */
     public static EntityStorageDescriptor of(final Optional<Long> id, final Optional<String> c,
             final Optional<String> s, final Optional<Long> l, final boolean a) {
-        return () -> Stream.of(id.orElse(null), c.orElse(null), s.orElse(null), l.orElse(null), a);
+        return Indexed.of(id, c, s, l, a);
+    }
+
+    /**
+     * @param id the ID of the entity
+     * @param c  the multiple reference component of the entity described
+     * @param r  the ID of the entity referenced
+     * @param a  the change to the reference
+     * @return a record representing the change to the one reference
+     */
+    public static EntityStorageDescriptor of(final Long id, final String c, final Long r, final Reference a) {
+        return Indexed.of(id, c, r, a);
     }
 
     Boolean DEFAULT_FLAG = true;
 
     Fallible ERR_NO_ACTIVE = Fallible.of("No active flag associated with this record.");
 
+    /**
+     * @return the elements of the descriptor as a tuple, held indexed by
+     *         descriptors built with the factories
+     */
+    default Tuple<Object> delegate() {
+        return this::stream;
+    }
+
+    @Override
+    default Optional<Object> get(final long i) {
+        return delegate().get(i);
+    }
+
+    @Override
+    default <N> Optional<N> firstOf(final Class<N> c) {
+        return delegate().firstOf(c);
+    }
+
+    @Override
+    default <N> Optional<N> nthOf(final Class<N> c, final long n) {
+        return delegate().nthOf(c, n);
+    }
+
+    @Override
+    default long count() {
+        return delegate().count();
+    }
+
     /**
      * @return the identifier for the record entity
      */
@@ -42,18 +102,27 @@ public interface EntityStorageDescriptor extends Tuple<Object> {
         return firstOf(String.class);
     }
 
+    /**
+     * @return the registered ID of the component name, or NO_ID if there is no
+     *         component
+     */
+    default int componentId() {
+        return firstOf(Integer.class)
+                .orElseGet(() -> component().map(Component.Registry::id).orElse(Component.NO_ID));
+    }
+
     /**
      * @return the string value
      */
     default Optional<String> stringValue() {
-        return morph(String.class).get(1);
+        return nthOf(String.class, 1);
     }
 
     /**
      * @return the long value
      */
     default Optional<Long> longValue() {
-        return morph(Long.class).get(1);
+        return nthOf(Long.class, 1);
     }
 
     /**
@@ -64,10 +133,72 @@ public interface EntityStorageDescriptor extends Tuple<Object> {
                 .orElse(longValue().map(Object.class::cast).orElse(DEFAULT_FLAG));
     }
 
+    /**
+     * @return the change described to a single reference of the component, if one
+     *         is described rather than its whole value
+     */
+    default Optional<Reference> reference() {
+        return firstOf(Reference.class);
+    }
+
+    /**
+     * @param v the current value of the component, or null if it is absent
+     * @return the references of the value with the described reference changed,
+     *         in the order they were added; a value already held as a set is
+     *         changed in place, and any other is converted to a new set once
+     */
+    default LongSet referenced(final Object v) {
+        final LongSet s = v instanceof LongSet ? (LongSet) v
+                : v instanceof String ? LongSet.ordered(StringAdapter.of((String) v).splitToNumbers()
+                        .mapToLong(Long::longValue).toArray())
+                        : v instanceof Long ? LongSet.ordered((Long) v) : LongSet.ordered();
+        reference().ifPresent(a -> longValue().ifPresent(r -> {
+            if (a == Reference.ADD) {
+                s.add(r);
+            } else {
+                s.remove(r);
+            }
+        }));
+        return s;
+    }
+
     /**
      * @return the active value (if false then delete the entity component)
      */
     default Boolean active() {
         return firstOf(Boolean.class).orElseThrow(ERR_NO_ACTIVE);
     }
+
+    /**
+     * A descriptor, usable as either kind of record, backed by an indexed tuple
+     * of its elements built once.
+     */
+    static final class Indexed implements EntityWriter.Record, EntityReader.Record {
+
+        private final Tuple<Object> elements;
+
+        Indexed(final Tuple<Object> elements) {
+            this.elements = elements;
+        }
+
+        static Indexed of(final Optional<Long> id, final Optional<String> c, final Optional<String> s,
+                final Optional<Long> l, final boolean a) {
+            final Integer ci = c.map(Component.Registry::id).orElse(null);
+            return new Indexed(Tuple.of(id.orElse(null), c.orElse(null), ci, s.orElse(null), l.orElse(null), a));
+        }
+
+        static Indexed of(final Long id, final String c, final Long r, final Reference a) {
+            return new Indexed(Tuple.of(id, c, Component.Registry.id(c), null, r, true, a));
+        }
+
+        @Override
+        public Stream<Object> stream() {
+            return elements.stream();
+        }
+
+        @Override
+        public Tuple<Object> delegate() {
+            return elements;
+        }
+    }
 }
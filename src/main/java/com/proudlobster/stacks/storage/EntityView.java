@@ -0,0 +1,173 @@
+package com.proudlobster.stacks.storage;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.proudlobster.stacks.ecp.Component;
+import com.proudlobster.stacks.ecp.Entity;
+import com.proudlobster.stacks.structure.SparseSet;
+
+/**
+ * A standing query for the entities holding a set of components, kept current
+ * by observing written records rather than re-reading storage.
+ *
+ * Only the writing thread changes a view, but any thread may read it, so the IDs
+ * are changed and read while holding their set's monitor.
+ */
+public interface EntityView {
+
+    /**
+     * @param r  the reader to populate the view from and resolve entities with
+     * @param cs the components every entity in the view must hold
+     * @return a view populated with the entities currently matching
+     */
+    public static EntityView of(final EntityReader r, final Component... cs) {
+        final Maintained v = new Maintained(r, Arrays.stream(cs).map(Component::name).collect(Collectors.toSet()));
+        synchronized (v.ids) {
+            r.read(cs).map(Entity::identifier).forEach(v.ids::add);
+        }
+        return v;
+    }
+
+    /**
+     * @param cs component names
+     * @return the key identifying a view of those component names, regardless of
+     *         their order
+     */
+    public static String signature(final Stream<String> cs) {
+        return cs.distinct().sorted().collect(Collectors.joining(","));
+    }
+
+    /**
+     * @return the names of the components every entity in the view holds
+     */
+    Set<String> components();
+
+    /**
+     * @return the IDs of the entities currently in the view, to be used only while
+     *         holding the set's monitor
+     */
+    SparseSet ids();
+
+    /**
+     * @return the reader used to resolve entities in the view
+     */
+    EntityReader reader();
+
+    /**
+     * @return the key identifying this view
+     */
+    default String signature() {
+        return signature(components().stream());
+    }
+
+    /**
+     * @param e an entity
+     * @return true if the entity holds every component of the view
+     */
+    default boolean matches(final Entity e) {
+        return components().stream().allMatch(e::is);
+    }
+
+    /**
+     * Side-effect: adds or removes the record's entity from the view. The record
+     * must already have been written to the view's reader.
+     *
+     * @param r a record written for one of the view's components
+     */
+    default void observe(final EntityWriter.Record r) {
+        final long id = r.requiredIdentifier();
+        if (!r.active()) {
+            remove(id);
+        } else if (!contains(id) && (components().size() == 1
+                || reader().read(id).filter(this::matches).isPresent())) {
+            synchronized (ids()) {
+                ids().add(id);
+            }
+        }
+    }
+
+    /**
+     * @param id the ID of an entity
+     * @return true if the entity is in the view
+     */
+    default boolean contains(final long id) {
+        synchronized (ids()) {
+            return ids().contains(id);
+        }
+    }
+
+    /**
+     * Side-effect: removes the entity from the view, if it is in it.
+     *
+     * @param id the ID of an entity
+     */
+    default void remove(final long id) {
+        synchronized (ids()) {
+            ids().remove(id);
+        }
+    }
+
+    /**
+     * @return the number of entities in the view
+     */
+    default int count() {
+        synchronized (ids()) {
+            return ids().size();
+        }
+    }
+
+    /**
+     * @return a copy of the IDs of the entities currently in the view, unaffected
+     *         by later changes to it
+     */
+    default long[] identifiers() {
+        synchronized (ids()) {
+            return ids().toArray();
+        }
+    }
+
+    /**
+     * Loads the entities with one read of the view's components rather than one
+     * read per ID, so an ID the view gained before its entity's components could
+     * be read is left out rather than resolved to an entity lacking them.
+     *
+     * @return the entities currently in the view
+     */
+    default Stream<Entity> read() {
+        return reader().read(components().stream().map(Component::flagOf).toArray(Component[]::new))
+                .filter(e -> contains(e.identifier()));
+    }
+
+    /**
+     * Implementation holding the matching IDs in a sparse set.
+     */
+    static final class Maintained implements EntityView {
+
+        private final EntityReader reader;
+        private final Set<String> components;
+        private final SparseSet ids = SparseSet.create();
+
+        Maintained(final EntityReader reader, final Set<String> components) {
+            this.reader = reader;
+            this.components = Set.copyOf(components);
+        }
+
+        @Override
+        public Set<String> components() {
+            return components;
+        }
+
+        @Override
+        public SparseSet ids() {
+            return ids;
+        }
+
+        @Override
+        public EntityReader reader() {
+            return reader;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.proudlobster.stacks.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.proudlobster.stacks.ecp.Component;
+
+/**
+ * A registry of entity views, indexed by the components they hold.
+ */
+@FunctionalInterface
+public interface EntityViews {
+
+    /**
+     * @return a new, empty registry
+     */
+    public static EntityViews create() {
+        final Map<Integer, List<EntityView>> m = new HashMap<>();
+        return () -> m;
+    }
+
+    /**
+     * @return accessor to the internal map of component IDs to the views
+     *         including them
+     */
+    Map<Integer, List<EntityView>> map();
+
+    /**
+     * @param cs components of a view
+     * @return the registered view for exactly those components, if one exists
+     */
+    default Optional<EntityView> lookup(final Component... cs) {
+        final String s = EntityView.signature(Arrays.stream(cs).map(Component::name));
+        synchronized (map()) {
+            return Optional.of(cs).filter(a -> a.length > 0).map(a -> map().get(a[0].id()))
+                    .flatMap(l -> l.stream().filter(v -> v.signature().equals(s)).findFirst());
+        }
+    }
+
+    /**
+     * Side-effect: registers a new view if none exists for the components. Safe to
+     * call from processors running concurrently.
+     *
+     * @param r  the reader to populate a new view from
+     * @param cs components of the view
+     * @return the view for exactly those components
+     */
+    default EntityView register(final EntityReader r, final Component... cs) {
+        synchronized (map()) {
+            return lookup(cs).orElseGet(() -> {
+                final EntityView v = EntityView.of(r, cs);
+                v.components().forEach(
+                        c -> map().computeIfAbsent(Component.Registry.id(c), x -> new ArrayList<>()).add(v));
+                return v;
+            });
+        }
+    }
+
+    /**
+     * Side-effect: updates every view affected by the record. Expiring an entity
+     * removes it from every view. Holds the same monitor as registration, so a
+     * view registered concurrently is never iterated while it is being added.
+     *
+     * @param r a record which has already been written
+     */
+    default void observe(final EntityWriter.Record r) {
+        synchronized (map()) {
+            r.component().filter(Component.Core.EXPIRED.name()::equals).ifPresentOrElse(
+                    c -> map().values().forEach(l -> l.forEach(v -> v.remove(r.requiredIdentifier()))),
+                    () -> Optional.ofNullable(map().get(r.componentId()))
+                            .ifPresent(l -> l.forEach(v -> v.observe(r))));
+        }
+    }
+
+    /**
+     * @return a writer which keeps the registered views current, to be composed
+     *         after the writers it observes; while held, it keeps the records it
+     *         observes back from the views until the hold is released
+     */
+    default EntityWriter observer() {
+        return new Observer(this);
+    }
+
+    /**
+     * A writer updating the views of a registry with every record written, or with
+     * every record held once a hold is released.
+     */
+    static final class Observer implements EntityWriter {
+
+        private final EntityViews views;
+        private final List<EntityWriter.Record> held = new ArrayList<>();
+        private boolean holding;
+
+        Observer(final EntityViews views) {
+            this.views = views;
+        }
+
+        @Override
+        public void write(final EntityWriter.Record r) {
+            if (holding) {
+                held.add(r);
+            } else {
+                views.observe(r);
+            }
+        }
+
+        @Override
+        public void hold(final boolean h) {
+            holding = h;
+            if (!h) {
+                held.forEach(views::observe);
+                held.clear();
+            }
+        }
+
+        @Override
+        public boolean holds() {
+            return true;
+        }
+    }
+}
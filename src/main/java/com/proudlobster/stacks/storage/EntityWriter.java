@@ -2,10 +2,10 @@ package com.proudlobster.stacks.storage;
 
 import java.util.Optional;
 import java.util.function.Consumer;
-import java.util.stream.Stream;
 
 import com.proudlobster.stacks.Fallible;
 import com.proudlobster.stacks.ecp.Component;
+import com.proudlobster.stacks.structure.Tuple;
 
 /**
  * Used to write entity data to storage of some kind.
@@ -31,7 +31,19 @@ public interface EntityWriter extends Consumer<EntityWriter.Record> {
          */
         public static Record of(final Long id, final String c, final Optional<String> s, final Optional<Long> l,
                 final boolean a) {
-            return () -> EntityStorageDescriptor.of(Optional.of(id), Optional.of(c), s, l, a).stream();
+            return Indexed.of(Optional.of(id), Optional.of(c), s, l, a);
+        }
+
+        /**
+         * @param id the ID of the entity
+         * @param c  the multiple reference component to affect
+         * @param r  the ID of the entity referenced
+         * @param a  the change to the reference
+         * @return a record representing the change to the one reference, leaving
+         *         the other references of the component as they are
+         */
+        public static Record of(final Long id, final String c, final Long r, final Reference a) {
+            return Indexed.of(id, c, r, a);
         }
 
         Fallible ERR_NO_IDENTITY = Fallible.of("No entity identity associated with this record.");
@@ -56,13 +68,46 @@ public interface EntityWriter extends Consumer<EntityWriter.Record> {
     Boolean DELETE_VAL = false;
     Boolean ACTIVE_VAL = true;
 
+    /**
+     * An entity writer composed of others, passing every record and flush through
+     * to each of them in order.
+     */
+    @FunctionalInterface
+    public static interface Composite extends EntityWriter {
+
+        /**
+         * @return the composed writers
+         */
+        Tuple<EntityWriter> writers();
+
+        @Override
+        default void write(final Record r) {
+            writers().stream().forEach(w -> w.accept(r));
+        }
+
+        @Override
+        default void flush() {
+            writers().stream().forEach(EntityWriter::flush);
+        }
+
+        @Override
+        default void hold(final boolean h) {
+            writers().stream().forEach(w -> w.hold(h));
+        }
+
+        @Override
+        default boolean holds() {
+            return writers().stream().allMatch(EntityWriter::holds);
+        }
+    }
+
     /**
      * @param ews entity writers to compose
      * @return an entity writer composed of the others
      */
     public static EntityWriter of(final EntityWriter... ews) {
-        return r -> Stream.of(ews).reduce((ew1, ew2) -> (EntityWriter) d -> ew1.andThen(ew2).accept(d))
-                .ifPresent(w -> w.accept(r));
+        final Tuple<EntityWriter> t = Tuple.of(ews);
+        return (Composite) () -> t;
     }
 
     /**
@@ -70,6 +115,34 @@ public interface EntityWriter extends Consumer<EntityWriter.Record> {
      */
     void write(final Record r);
 
+    /**
+     * Side-effect: writes any records held back by this writer to storage. Called
+     * once a whole transaction has been committed to the writer.
+     */
+    default void flush() {
+    }
+
+    /**
+     * Side-effect: while held, storage which can read what this writer writes
+     * reads what was last flushed. The thread which began the hold also reads its
+     * own writes made since, over what was last flushed, so a commit reads back
+     * its own writes but not those of commits held before it. Holding again
+     * begins a new commit.
+     *
+     * @param h true to hold writes back from reads until flushed, false to read
+     *          them as they are written
+     */
+    default void hold(final boolean h) {
+    }
+
+    /**
+     * @return true if this writer honours a hold, so nothing it writes is read by
+     *         other commits until it is flushed
+     */
+    default boolean holds() {
+        return false;
+    }
+
     @Override
     default void accept(final Record r) {
         write(r);
@@ -108,6 +181,24 @@ public interface EntityWriter extends Consumer<EntityWriter.Record> {
         write(Record.of(id, c, Optional.empty(), Optional.empty(), ACTIVE_VAL));
     }
 
+    /**
+     * @param id the ID of the entity to write
+     * @param c  the multiple reference component name to add the reference to
+     * @param r  the ID of the entity to reference
+     */
+    default void writeAddReference(final Long id, final String c, final Long r) {
+        write(Record.of(id, c, r, EntityStorageDescriptor.Reference.ADD));
+    }
+
+    /**
+     * @param id the ID of the entity to write
+     * @param c  the multiple reference component name to remove the reference from
+     * @param r  the ID of the entity no longer referenced
+     */
+    default void writeRemoveReference(final Long id, final String c, final Long r) {
+        write(Record.of(id, c, r, EntityStorageDescriptor.Reference.REMOVE));
+    }
+
     /**
      * @param id the entity to write as transient
      */
@@ -1,51 +1,807 @@
 package com.proudlobster.stacks.storage;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 import com.proudlobster.stacks.ecp.Component;
 import com.proudlobster.stacks.ecp.Entity;
+import com.proudlobster.stacks.structure.Configuration;
 import com.proudlobster.stacks.structure.Dictionary;
+import com.proudlobster.stacks.structure.LongIntMap;
+import com.proudlobster.stacks.structure.LongSet;
+import com.proudlobster.stacks.structure.SparseSet;
+import com.proudlobster.stacks.utility.StringAdapter;
 
 /**
  * Entity reader and writer for keeping entities in memory.
  * 
- * Uses a pair of maps to retain state.
+ * Uses versioned component maps addressed through a primitive map of entity IDs
+ * to slots, and a sparse set of entity IDs per component ID published as a
+ * snapshot with each commit, to retain state.
+ * Reference components are indexed by the entities they reference once a read
+ * asks who references an entity through them.
  */
 @FunctionalInterface
 public interface InMemoryStorage extends EntityReader, EntityWriter {
 
+    /**
+     * The available in-memory storage engines.
+     */
+    public static enum Engine {
+
+        /**
+         * Entities kept as maps of component names to values.
+         */
+        MAP,
+
+        /**
+         * Entities grouped by archetype into per-component columns. Not versioned:
+         * reads see writes as they are made and must not run while a commit is
+         * written, so processors cannot run concurrently, in stages, buffered or in
+         * chunks with it.
+         */
+        ARCHETYPE
+    }
+
+    String CONF_ENGINE = "stacks.entity.storage.inmemory.engine";
+
+    /**
+     * @param cl dictionary of storage configuration
+     * @return the configured engine, MAP unless ARCHETYPE is configured
+     */
+    public static Engine engine(final Dictionary<Configuration> cl) {
+        return cl.lookup(CONF_ENGINE).map(Configuration::value).map(String::toUpperCase)
+                .filter(Engine.ARCHETYPE.name()::equals).map(e -> Engine.ARCHETYPE).orElse(Engine.MAP);
+    }
+
+    /**
+     * @param cl dictionary of storage configuration
+     * @return new in-memory storage using the configured engine
+     */
+    public static InMemoryStorage of(final Dictionary<Configuration> cl) {
+        return engine(cl) == Engine.ARCHETYPE ? ArchetypeStorage.of() : of();
+    }
+
+    /**
+     * The component maps of every entity, addressed through a primitive map of
+     * entity IDs to slots and kept in versions so that reads see a stable
+     * snapshot while a commit is being written.
+     *
+     * One thread writes at a time, and each commit ends by publishing it. The
+     * writing thread reads its own writes as it makes them, or while it holds, the
+     * last snapshot published overlaid with the components it has written since
+     * the hold began; every other thread reads the last snapshot published when
+     * its read began. Writing copies an entity's map the first time a commit
+     * changes it, along with any sets of references in it, which are changed in
+     * place, and records the replaced map against the published snapshot, so
+     * readers of that snapshot find it there. Snapshots link forward to their
+     * successors only, so the versions kept for a snapshot are released once no
+     * reader holds it. The slots and the maps recorded against the snapshot being
+     * written are changed under a write lock, which other threads take to read
+     * them; the writing thread reads them without it.
+     */
+    public static final class Entities {
+
+        private static final Map<String, Object> ABSENT = Collections.unmodifiableMap(new HashMap<>());
+        private static final int INITIAL_FREE = 16;
+
+        private final StampedLock lock = new StampedLock();
+        private final LongIntMap slots = LongIntMap.create();
+        private final List<Map<String, Object>> heads = new ArrayList<>();
+        private int[] free = new int[INITIAL_FREE];
+        private int freeCount;
+        private final Index index = new Index();
+        private final Referrers referrers = new Referrers();
+        private volatile Snapshot latest = new Snapshot(new Snapshot.Ids[0]);
+        private LongIntMap held = LongIntMap.create();
+        private final List<Set<String>> heldComponents = new ArrayList<>();
+        private volatile Thread writer;
+        private volatile Thread holder;
+
+        /**
+         * @return the snapshot reads by the calling thread see, or null if the
+         *         thread is writing a commit and sees its own writes
+         */
+        public Snapshot snapshot() {
+            final Thread t = Thread.currentThread();
+            return t == writer && t != holder ? null : latest;
+        }
+
+        /**
+         * Side-effect: forgets the writes held so far, so a new hold reads only the
+         * writes made after it.
+         *
+         * @param h true for the calling thread to read the last snapshot published
+         *          overlaid with the components it writes from now on, false to
+         *          read its own writes as they are made
+         */
+        public void hold(final boolean h) {
+            held = LongIntMap.create();
+            heldComponents.clear();
+            holder = h ? Thread.currentThread() : null;
+        }
+
+        /**
+         * Side-effect: while the calling thread holds, overlays the component on the
+         * last snapshot published for the thread's later reads.
+         *
+         * @param id the ID of the entity written
+         * @param c  the name of the component written or removed
+         */
+        public void wrote(final long id, final String c) {
+            if (Thread.currentThread() == holder) {
+                final int i = held.get(id);
+                if (i == LongIntMap.NO_VALUE) {
+                    held.put(id, heldComponents.size());
+                    heldComponents.add(new HashSet<>(Set.of(c)));
+                } else {
+                    heldComponents.get(i).add(c);
+                }
+            }
+        }
+
+        /**
+         * @return true if the calling thread holds a commit, so an entity it reads
+         *         may have been expired by the writes overlaid on the snapshot
+         */
+        public boolean overlaid() {
+            return Thread.currentThread() == holder;
+        }
+
+        /**
+         * @return the IDs of the entities with each component as written
+         */
+        public Index index() {
+            return index;
+        }
+
+        /**
+         * @return the IDs of the entities referencing each entity as written
+         */
+        public Referrers referrers() {
+            return referrers;
+        }
+
+        /**
+         * @param id an entity ID
+         * @return the component map of the entity as the calling thread sees it, or
+         *         null if it does not exist
+         */
+        public Map<String, Object> get(final long id) {
+            return get(snapshot(), id);
+        }
+
+        /**
+         * @param id an entity ID
+         * @param m  the component map the entity was read with
+         * @return the component map of the entity as the calling thread sees it now
+         *         if the thread is writing or holding a commit, so it sees that
+         *         commit's writes, or m if it is not or the entity was expired since
+         */
+        public Map<String, Object> current(final long id, final Map<String, Object> m) {
+            final Thread t = Thread.currentThread();
+            return t != writer && t != holder ? m : Optional.ofNullable(get(id)).orElse(m);
+        }
+
+        /**
+         * @param s  a snapshot, or null for the entity as written
+         * @param id an entity ID
+         * @return the component map of the entity in the snapshot, or null if it did
+         *         not exist
+         */
+        public Map<String, Object> get(final Snapshot s, final long id) {
+            final Map<String, Object> m = versioned(s, id);
+            return s != null && Thread.currentThread() == holder && held.containsKey(id) ? overlay(m, id) : m;
+        }
+
+        /**
+         * @param m  the component map of an entity in a snapshot, or null
+         * @param id the ID of the entity, written since the calling thread held
+         * @return the map with the components written since overlaid, or null if the
+         *         entity was expired since
+         */
+        private Map<String, Object> overlay(final Map<String, Object> m, final long id) {
+            final Map<String, Object> h = head(id);
+            if (h == null) {
+                return null;
+            }
+            final Map<String, Object> o = m == null ? new HashMap<>() : new HashMap<>(m);
+            heldComponents.get(held.get(id)).forEach(c -> {
+                if (h.containsKey(c)) {
+                    o.put(c, h.get(c));
+                } else {
+                    o.remove(c);
+                }
+            });
+            return o;
+        }
+
+        private Map<String, Object> versioned(final Snapshot s, final long id) {
+            if (Thread.currentThread() == writer) {
+                return versionedUnlocked(s, id);
+            }
+            final long l = lock.readLock();
+            try {
+                return versionedUnlocked(s, id);
+            } finally {
+                lock.unlockRead(l);
+            }
+        }
+
+        private Map<String, Object> versionedUnlocked(final Snapshot s, final long id) {
+            final Map<String, Object> h = head(id);
+            for (Snapshot t = s; t != null; t = t.next) {
+                final Map<String, Object> m = t.replaced(id);
+                if (m != null) {
+                    return m == ABSENT ? null : m;
+                }
+            }
+            return h;
+        }
+
+        /**
+         * @param id an entity ID
+         * @return the component map of the entity as written, or null if it does not
+         *         exist; only the writing thread reads it without the lock
+         */
+        private Map<String, Object> head(final long id) {
+            final int s = slots.get(id);
+            return s == LongIntMap.NO_VALUE ? null : heads.get(s);
+        }
+
+        /**
+         * @param id an entity ID
+         * @return the component map of the entity for the commit being written to
+         *         change, created if it does not exist
+         */
+        public Map<String, Object> computeIfAbsent(final long id) {
+            return Optional.ofNullable(modify(id)).orElseGet(() -> {
+                final Map<String, Object> m = new HashMap<>();
+                final long l = lock.writeLock();
+                try {
+                    if (freeCount > 0) {
+                        final int s = free[--freeCount];
+                        heads.set(s, m);
+                        slots.put(id, s);
+                    } else {
+                        slots.put(id, heads.size());
+                        heads.add(m);
+                    }
+                } finally {
+                    lock.unlockWrite(l);
+                }
+                return m;
+            });
+        }
+
+        /**
+         * @param id an entity ID
+         * @return the component map of the entity for the commit being written to
+         *         change, or null if it does not exist
+         */
+        public Map<String, Object> modify(final long id) {
+            writer = Thread.currentThread();
+            final Map<String, Object> h = head(id);
+            if (latest.replaced(id) != null) {
+                return h;
+            }
+            final long l = lock.writeLock();
+            try {
+                latest.replace(id, h == null ? ABSENT : h);
+                if (h == null) {
+                    return null;
+                }
+                final Map<String, Object> m = new HashMap<>(h);
+                m.replaceAll((c, v) -> v instanceof LongSet ? ((LongSet) v).copy() : v);
+                heads.set(slots.get(id), m);
+                return m;
+            } finally {
+                lock.unlockWrite(l);
+            }
+        }
+
+        /**
+         * @param id an entity ID
+         * @return the removed component map of the entity, or null if it did not exist
+         */
+        public Map<String, Object> remove(final long id) {
+            writer = Thread.currentThread();
+            final Map<String, Object> h = head(id);
+            if (h == null) {
+                return null;
+            }
+            final long l = lock.writeLock();
+            try {
+                if (latest.replaced(id) == null) {
+                    latest.replace(id, h);
+                }
+                final int s = slots.remove(id);
+                if (freeCount == free.length) {
+                    free = Arrays.copyOf(free, freeCount * 2);
+                }
+                free[freeCount++] = s;
+                heads.set(s, null);
+            } finally {
+                lock.unlockWrite(l);
+            }
+            return h;
+        }
+
+        /**
+         * Side-effect: publishes everything written since the last snapshot as a new
+         * snapshot, for every thread to read.
+         */
+        public void publish() {
+            if (writer == null) {
+                return;
+            }
+            final Snapshot s = new Snapshot(index.publish(latest.ids));
+            latest.next = s;
+            latest = s;
+            referrers.publish(this);
+            writer = null;
+        }
+    }
+
+    /**
+     * A published state of the entities: the IDs with each component, and the
+     * component maps which the following commit replaced, addressed through a
+     * primitive map of entity IDs to versions.
+     */
+    public static final class Snapshot {
+
+        private final Ids[] ids;
+        private final LongIntMap replaced = LongIntMap.create();
+        private final List<Map<String, Object>> versions = new ArrayList<>();
+        private volatile Snapshot next;
+
+        private Snapshot(final Ids[] ids) {
+            this.ids = ids;
+        }
+
+        /**
+         * @param c a component ID
+         * @return the IDs of the entities with the component in the snapshot
+         */
+        public LongStream ids(final int c) {
+            return c >= 0 && c < ids.length && ids[c] != null ? ids[c].stream() : LongStream.empty();
+        }
+
+        /**
+         * @param c a component ID
+         * @return the number of entities with the component in the snapshot
+         */
+        public int size(final int c) {
+            return c >= 0 && c < ids.length && ids[c] != null ? ids[c].size : 0;
+        }
+
+        /**
+         * @param id an entity ID
+         * @return the component map of the entity which the following commit
+         *         replaced, ABSENT if it created the entity, or null if it has not
+         *         replaced it
+         */
+        private Map<String, Object> replaced(final long id) {
+            final int v = replaced.get(id);
+            return v == LongIntMap.NO_VALUE ? null : versions.get(v);
+        }
+
+        /**
+         * @param id an entity ID, not yet replaced
+         * @param m  the component map of the entity replaced, or ABSENT
+         */
+        private void replace(final long id, final Map<String, Object> m) {
+            replaced.put(id, versions.size());
+            versions.add(m);
+        }
+
+        /**
+         * The published IDs of one component, split into chunks of the positions
+         * they held in its set, so a commit copies only the chunks it changed and
+         * shares the rest with the snapshot before it.
+         */
+        private static final class Ids {
+
+            private static final int CHUNK = 1024;
+
+            private final long[][] chunks;
+            private final int size;
+
+            private Ids(final long[][] chunks, final int size) {
+                this.chunks = chunks;
+                this.size = size;
+            }
+
+            /**
+             * @param p the IDs as last published, or null
+             * @param s the IDs as written
+             * @param d the chunks changed since they were last published
+             * @return the IDs as written, sharing the chunks unchanged with p
+             */
+            private static Ids of(final Ids p, final SparseSet s, final BitSet d) {
+                final long[][] cs = new long[(s.size() + CHUNK - 1) / CHUNK][];
+                for (int k = 0; k < cs.length; k++) {
+                    cs[k] = p != null && k < p.chunks.length && !d.get(k) ? p.chunks[k] : chunk(s, k);
+                }
+                return new Ids(cs, s.size());
+            }
+
+            private static long[] chunk(final SparseSet s, final int k) {
+                final long[] c = new long[Math.min(CHUNK, s.size() - k * CHUNK)];
+                for (int i = 0; i < c.length; i++) {
+                    c[i] = s.get(k * CHUNK + i);
+                }
+                return c;
+            }
+
+            /**
+             * @return the IDs, in a stream which knows its size
+             */
+            private LongStream stream() {
+                return LongStream.range(0, size).map(i -> chunks[(int) (i / CHUNK)][(int) (i % CHUNK)]);
+            }
+        }
+    }
+
+    /**
+     * The IDs of the entities with each component, addressed by component ID.
+     */
+    public static final class Index {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private SparseSet[] sets = new SparseSet[INITIAL_CAPACITY];
+        private BitSet[] dirty = new BitSet[INITIAL_CAPACITY];
+
+        /**
+         * @param c a component ID
+         * @return the IDs of the entities with the component, or null if none have
+         *         had it
+         */
+        public SparseSet get(final int c) {
+            return c >= 0 && c < sets.length ? sets[c] : null;
+        }
+
+        /**
+         * @param c a component ID
+         * @return the IDs of the entities with the component, created if none have
+         *         had it
+         */
+        public SparseSet computeIfAbsent(final int c) {
+            if (c >= sets.length) {
+                sets = Arrays.copyOf(sets, Math.max(sets.length * 2, c + 1));
+                dirty = Arrays.copyOf(dirty, sets.length);
+            }
+            if (sets[c] == null) {
+                sets[c] = SparseSet.create();
+                dirty[c] = new BitSet();
+            }
+            return sets[c];
+        }
+
+        /**
+         * @param c  a component ID
+         * @param id the ID of an entity given the component
+         */
+        public void add(final int c, final long id) {
+            if (computeIfAbsent(c).add(id)) {
+                changed(c, sets[c].size() - 1);
+            }
+        }
+
+        /**
+         * Side-effect: marks the position the ID left and the last position, which
+         * moves into it, as changed.
+         *
+         * @param c  a component ID
+         * @param id the ID of an entity losing the component
+         */
+        public void remove(final int c, final long id) {
+            final SparseSet s = get(c);
+            final int i = s == null ? -1 : s.indexOf(id);
+            if (i >= 0) {
+                changed(c, s.size() - 1);
+                s.remove(id);
+                changed(c, i);
+            }
+        }
+
+        private void changed(final int c, final int i) {
+            dirty[c].set(i / Snapshot.Ids.CHUNK);
+        }
+
+        /**
+         * Side-effect: marks every component's IDs as published.
+         *
+         * @param p the IDs of each component as last published
+         * @return the IDs of each component as written, copying only the chunks
+         *         changed
+         */
+        private Snapshot.Ids[] publish(final Snapshot.Ids[] p) {
+            final Snapshot.Ids[] a = Arrays.copyOf(p, sets.length);
+            for (int c = 0; c < sets.length; c++) {
+                if (dirty[c] != null && !dirty[c].isEmpty()) {
+                    a[c] = Snapshot.Ids.of(a[c], sets[c], dirty[c]);
+                    dirty[c].clear();
+                }
+            }
+            return a;
+        }
+    }
+
+    /**
+     * The IDs of the entities referencing each entity, for every reference or
+     * multiple reference component an index has been requested for.
+     *
+     * Only the writing thread changes the indexes. An index requested is built
+     * from the entities as written when the next commit is published, and reads
+     * scan for referrers until then. A reference added is indexed as it is
+     * written, but one removed stays indexed until its commit is published, so a
+     * reader of the last snapshot finds every entity referencing another in it
+     * and checks each against that snapshot.
+     */
+    public static final class Referrers {
+
+        private static final Set<Component.DataType> TYPES = EnumSet.of(Component.DataType.REFERENCE,
+                Component.DataType.MULTIREF);
+        private static final long[] NONE = new long[0];
+
+        private final Map<String, Map<Long, Set<Long>>> indexes = new ConcurrentHashMap<>();
+        private final Set<String> requested = ConcurrentHashMap.newKeySet();
+        private final List<Removal> removals = new ArrayList<>();
+
+        private static record Removal(String component, long target, long id) {
+        }
+
+        /**
+         * @param v a component value
+         * @return the IDs of the entities the value references
+         */
+        private static long[] targets(final Object v) {
+            return v instanceof LongSet ? ((LongSet) v).toArray()
+                    : v instanceof Long ? new long[] { (Long) v }
+                            : v instanceof String ? StringAdapter.of((String) v).splitToNumbers()
+                                    .mapToLong(Long::longValue).toArray() : NONE;
+        }
+
+        /**
+         * @param v a component value
+         * @param t the ID of an entity
+         * @return true if the value references that entity
+         */
+        private static boolean refers(final Object v, final long t) {
+            return v instanceof LongSet ? ((LongSet) v).contains(t)
+                    : v instanceof Long ? (Long) v == t : Arrays.stream(targets(v)).anyMatch(l -> l == t);
+        }
+
+        /**
+         * Side-effect: requests an index for a reference component which has none.
+         *
+         * @param c      a component
+         * @param target the ID of an entity
+         * @return the IDs of the entities which may reference it through the
+         *         component, if the component is indexed
+         */
+        public Optional<Set<Long>> lookup(final Component c, final long target) {
+            if (!TYPES.contains(c.type())) {
+                return Optional.empty();
+            }
+            final Optional<Set<Long>> o = Optional.ofNullable(indexes.get(c.name()))
+                    .map(m -> m.getOrDefault(target, Set.of()));
+            if (o.isEmpty()) {
+                requested.add(c.name());
+            }
+            return o;
+        }
+
+        /**
+         * @param c a component name
+         * @return true if the component is indexed
+         */
+        public boolean indexed(final String c) {
+            return indexes.containsKey(c);
+        }
+
+        /**
+         * @param c a component name
+         * @param v the value of the component before a write
+         * @return the IDs the value references if the component is indexed, or null
+         */
+        public long[] before(final String c, final Object v) {
+            return indexed(c) ? targets(v) : null;
+        }
+
+        /**
+         * Side-effect: indexes the references added to an entity's component, and
+         * keeps those removed until the commit is published.
+         *
+         * @param c  an indexed component name
+         * @param id the ID of the entity written
+         * @param b  the IDs the component referenced before the write
+         * @param v  the value of the component after the write, or null if removed
+         */
+        public void referred(final String c, final long id, final long[] b, final Object v) {
+            final Map<Long, Set<Long>> m = indexes.get(c);
+            final LongSet a = LongSet.of(targets(v));
+            a.stream().forEach(t -> m.computeIfAbsent(t, x -> ConcurrentHashMap.newKeySet()).add(id));
+            Arrays.stream(b).filter(t -> !a.contains(t)).forEach(t -> removals.add(new Removal(c, t, id)));
+        }
+
+        /**
+         * Side-effect: indexes one reference added to an entity's component, or
+         * keeps one removed until the commit is published, without reading the
+         * other references of the component.
+         *
+         * @param c  an indexed component name
+         * @param id the ID of the entity written
+         * @param t  the ID of the entity referenced
+         * @param a  true if the reference was added, false if removed
+         */
+        public void referred(final String c, final long id, final long t, final boolean a) {
+            if (a) {
+                indexes.get(c).computeIfAbsent(t, x -> ConcurrentHashMap.newKeySet()).add(id);
+            } else {
+                removals.add(new Removal(c, t, id));
+            }
+        }
+
+        /**
+         * Side-effect: drops the removed references which are still gone, then
+         * builds every index requested since the last commit.
+         *
+         * @param em the entities as written
+         */
+        private void publish(final Entities em) {
+            removals.stream().filter(r -> Optional.ofNullable(em.head(r.id())).map(h -> h.get(r.component()))
+                    .filter(v -> refers(v, r.target())).isEmpty())
+                    .forEach(r -> indexes.get(r.component()).computeIfPresent(r.target(), (t, s) -> {
+                        s.remove(r.id());
+                        return s.isEmpty() ? null : s;
+                    }));
+            removals.clear();
+            requested.stream().filter(c -> !indexed(c)).toList().forEach(c -> {
+                final Map<Long, Set<Long>> m = new ConcurrentHashMap<>();
+                em.slots.keyStream().forEach(id -> Arrays.stream(targets(em.head(id).get(c)))
+                        .forEach(t -> m.computeIfAbsent(t, x -> ConcurrentHashMap.newKeySet()).add(id)));
+                indexes.put(c, m);
+            });
+            requested.clear();
+        }
+    }
+
+    /**
+     * In-memory storage keeping entities as versioned component maps.
+     */
+    @FunctionalInterface
+    public static interface Versioned extends InMemoryStorage {
+
+        /**
+         * @return accessor to the internal entities
+         */
+        Entities entities();
+
+        @Override
+        default Stream<Entity> handle(final EntityStorageDescriptor r, final boolean w) {
+            return w ? writeInternal(r, entities(), entities().index())
+                    : readInternal(r, entities(), entities().index());
+        }
+
+        /**
+         * Side-effect: publishes the commit written, so every thread reads it.
+         */
+        @Override
+        default void flush() {
+            entities().publish();
+        }
+
+        @Override
+        default void hold(final boolean h) {
+            entities().hold(h);
+        }
+
+        @Override
+        default boolean holds() {
+            return true;
+        }
+
+        /**
+         * @return the number of entities with the component in the snapshot the
+         *         calling thread reads, or as written while it writes a commit
+         */
+        @Override
+        default long cardinality(final Component c) {
+            final Snapshot s = entities().snapshot();
+            return s == null ? Optional.ofNullable(entities().index().get(c.id())).map(SparseSet::size).orElse(0)
+                    : s.size(c.id());
+        }
+
+        @Override
+        default Stream<Entity> readReferrers(final Long id, final Component c) {
+            return entities().referrers().lookup(c, id).map(s -> readReferrersInternal(id, c, s, entities()))
+                    .orElseGet(() -> InMemoryStorage.super.readReferrers(id, c));
+        }
+    }
+
     /**
      * @return new in-memory storage
      */
     public static InMemoryStorage of() {
-        final Map<Long, Map<String, Object>> em = new HashMap<>();
-        final Map<String, Set<Long>> cm = new HashMap<>();
-        return (r, w) -> w ? writeInternal(r, em, cm) : readInternal(r, em, cm);
+        final Entities em = new Entities();
+        return (Versioned) () -> em;
+    }
+
+    private static Stream<Entity> readInternal(final EntityStorageDescriptor r, final Entities em,
+            final Index cm) {
+        final Snapshot s = em.snapshot();
+        return r.identifier().map(i -> Stream.ofNullable(entity(s, i, em))).orElseGet(() -> r.component()
+                .map(c -> ids(s, cm, r.componentId()).mapToObj(i -> entity(s, i, em)))
+                .map(es -> em.overlaid() ? es.filter(Objects::nonNull) : es).orElseGet(Stream::empty));
+    }
+
+    /**
+     * @param s  the snapshot the entity is read from
+     * @param id the ID of the entity
+     * @param em the entities
+     * @return the entity as of the snapshot, or as the calling thread sees it
+     *         while writing or holding a commit, so values supplied at commit time
+     *         see earlier writes of that commit; an entity expired since keeps the
+     *         values it was read with, and null if it does not exist when read. The
+     *         entity keeps only the map it was read with, never the snapshot, so
+     *         holding it across commits retains no later versions
+     */
+    private static Entity entity(final Snapshot s, final long id, final Entities em) {
+        final Map<String, Object> m = em.get(s, id);
+        return m == null ? null : () -> Dictionary.of(em.current(id, m));
     }
 
-    private static Stream<Entity> readInternal(final EntityStorageDescriptor r, final Map<Long, Map<String, Object>> em,
-            final Map<String, Set<Long>> cm) {
-        return r.identifier().map(i -> Stream.of(i))
-                .orElseGet(() -> r.component().map(c -> cm.get(c)).filter(Objects::nonNull).map(s -> s.stream())
-                        .orElse(Stream.empty()))
-                .map(i -> em.get(i)).filter(Objects::nonNull).map(m -> (Entity) () -> Dictionary.of(m));
+    private static Stream<Entity> readReferrersInternal(final Long id, final Component c, final Set<Long> rs,
+            final Entities em) {
+        final Snapshot s = em.snapshot();
+        return List.copyOf(rs).stream().map(i -> entity(s, i, em)).filter(Objects::nonNull)
+                .filter(e -> e.hasReference(c, id));
     }
 
-    private static Stream<Entity> writeInternal(final EntityStorageDescriptor r,
-            final Map<Long, Map<String, Object>> em, final Map<String, Set<Long>> cm) {
+    private static LongStream ids(final Snapshot s, final Index cm, final int c) {
+        return s == null ? Optional.ofNullable(cm.get(c)).map(SparseSet::stream).orElseGet(LongStream::empty)
+                : s.ids(c);
+    }
+
+    private static Stream<Entity> writeInternal(final EntityStorageDescriptor r, final Entities em,
+            final Index cm) {
+        final Referrers rm = em.referrers();
+        em.wrote(r.identifier().get(), r.component().get());
         Optional.of(r).filter(d -> d.active()).ifPresentOrElse(d -> {
-            em.computeIfAbsent(r.identifier().get(), x -> new ConcurrentHashMap<>()).put(r.component().get(),
-                    r.value());
-            cm.computeIfAbsent(r.component().get(), x -> ConcurrentHashMap.newKeySet()).add(r.identifier().get());
+            final Map<String, Object> m = em.computeIfAbsent(r.identifier().get());
+            if (r.reference().isPresent()) {
+                m.compute(r.component().get(), (c, o) -> r.referenced(o));
+                Optional.of(r.component().get()).filter(rm::indexed)
+                        .ifPresent(c -> rm.referred(c, r.identifier().get(), r.longValue().get(),
+                                EntityStorageDescriptor.Reference.ADD == r.reference().get()));
+            } else {
+                final long[] b = rm.before(r.component().get(), m.get(r.component().get()));
+                final Object v = m.compute(r.component().get(), (c, o) -> r.value());
+                Optional.ofNullable(b).ifPresent(x -> rm.referred(r.component().get(), r.identifier().get(), x, v));
+            }
+            cm.add(r.componentId(), r.identifier().get());
         }, () -> {
-            em.get(r.identifier().get()).remove(r.component().get());
-            cm.get(r.component().get()).remove(r.identifier().get());
+            Optional.ofNullable(em.modify(r.identifier().get())).ifPresent(m -> Optional
+                    .ofNullable(rm.before(r.component().get(), m.remove(r.component().get())))
+                    .ifPresent(x -> rm.referred(r.component().get(), r.identifier().get(), x, null)));
+            cm.remove(r.componentId(), r.identifier().get());
         });
 
         // TODO add test for expiration
@@ -54,10 +810,11 @@ public interface InMemoryStorage extends EntityReader, EntityWriter {
         return Stream.of();
     }
 
-    private static void expireInternal(final Long id, final Map<Long, Map<String, Object>> em,
-            final Map<String, Set<Long>> cm) {
-        em.get(id).keySet().stream().map(c -> cm.get(c)).forEach(s -> s.remove(id));
-        em.remove(id);
+    private static void expireInternal(final long id, final Entities em, final Index cm) {
+        em.remove(id).forEach((c, v) -> {
+            cm.remove(Component.Registry.id(c), id);
+            Optional.ofNullable(em.referrers().before(c, v)).ifPresent(x -> em.referrers().referred(c, id, x, null));
+        });
     }
 
     /**
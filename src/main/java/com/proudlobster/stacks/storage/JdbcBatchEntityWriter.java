@@ -0,0 +1,231 @@
+package com.proudlobster.stacks.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.proudlobster.stacks.Fallible;
+import com.proudlobster.stacks.ecp.Component;
+import com.proudlobster.stacks.structure.Configuration;
+import com.proudlobster.stacks.structure.Dictionary;
+
+/**
+ * A JDBC entity writer which holds records back until flushed, then writes them
+ * as statement batches over one connection and inside one database transaction.
+ *
+ * Only the last record written for each entity and component is kept, and the
+ * last change to each reference of a component. Expiring an entity discards the
+ * records held for it before the expiration, and the expiration is applied ahead
+ * of any records which follow it. Writing or removing a component outright
+ * discards the changes to its references held before it.
+ */
+@FunctionalInterface
+public interface JdbcBatchEntityWriter extends JdbcEntityWriter {
+
+    /**
+     * @param cl dictionary of database configuration
+     * @return a new batching writer for the configured datasource
+     */
+    public static JdbcBatchEntityWriter of(final Dictionary<Configuration> cl) {
+        return of(JdbcConnectionProvider.of(cl));
+    }
+
+    /**
+     * @param p the provider of connections to write over
+     * @return a new batching writer holding no records
+     */
+    public static JdbcBatchEntityWriter of(final JdbcConnectionProvider p) {
+        final Batch b = new Batch(p);
+        return () -> b;
+    }
+
+    /**
+     * @param r a record
+     * @return true if the record expires its entity
+     */
+    private static boolean expires(final Record r) {
+        return r.active() && r.component().filter(Component.Core.EXPIRED.name()::equals).isPresent();
+    }
+
+    /**
+     * @param c  the connection to execute against
+     * @param q  the SQL statement to batch
+     * @param ps the parameters for each execution of the statement
+     * @return the update count of each execution
+     */
+    private static int[] executeBatch(final Connection c, final String q, final List<Object[]> ps)
+            throws SQLException {
+        if (ps.isEmpty()) {
+            return new int[0];
+        }
+        try (PreparedStatement s = c.prepareStatement(q)) {
+            for (final Object[] p : ps) {
+                for (int i = 0; i < p.length; i++) {
+                    s.setObject(i + 1, p[i]);
+                }
+                s.addBatch();
+            }
+            return s.executeBatch();
+        }
+    }
+
+    /**
+     * @param c the connection to execute against
+     * @param q the SQL statement to execute
+     * @param p the parameters for the statement
+     * @return the update count of the statement
+     */
+    private static int executeUpdate(final Connection c, final String q, final Object[] p) {
+        return Fallible.attemptGet(() -> {
+            try (PreparedStatement s = c.prepareStatement(q)) {
+                for (int i = 0; i < p.length; i++) {
+                    s.setObject(i + 1, p[i]);
+                }
+                return s.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * @return accessor to the records held back by this writer
+     */
+    Batch batch();
+
+    @Override
+    default JdbcConnectionProvider provider() {
+        return batch().provider();
+    }
+
+    /**
+     * @return true, as nothing written is read back until flushed
+     */
+    @Override
+    default boolean holds() {
+        return true;
+    }
+
+    /**
+     * @param r the record to hold until the next flush
+     */
+    @Override
+    default void write(final Record r) {
+        batch().hold(r);
+    }
+
+    /**
+     * Side-effect: writes every held record. Active records are sent as one batch
+     * of the dialect's merge statement, or for databases without one, as a batch
+     * updating and reactivating existing rows followed by a batch inserting the
+     * rows that update missed; an update whose count the driver does not report is
+     * repeated alone to learn it. Changes to references follow as a batch deleting
+     * every reference changed and a batch inserting those added, once each
+     * component changed is prepared to hold references as rows. The records are
+     * held until the transaction commits, so a failed flush is retried by the next.
+     */
+    @Override
+    default void flush() {
+        final List<Record> rs = batch().records();
+        final List<Record> fs = batch().referenceRecords();
+        if (rs.isEmpty() && fs.isEmpty()) {
+            return;
+        }
+        final List<Record> us = rs.stream().filter(Record::active).filter(r -> !expires(r)).toList();
+        provider().runInTransaction(c -> {
+            final List<Object[]> es = rs.stream().filter(JdbcBatchEntityWriter::expires)
+                    .map(r -> new Object[] { r.requiredIdentifier() }).toList();
+            executeBatch(c, EXPIRE, es);
+            executeBatch(c, EXPIRE_REFERENCES, es);
+            final JdbcDialect d = provider().dialect(c);
+            if (d.merge().isPresent()) {
+                executeBatch(c, d.merge().get(), us.stream().map(d::mergeParameters).toList());
+            } else {
+                final List<Object[]> ps = us.stream().map(r -> new Object[] { r.stringValue().orElse(null),
+                        r.longValue().orElse(null), r.requiredIdentifier(), r.requiredComponent() }).toList();
+                final int[] ns = executeBatch(c, UPDATE_ALL, ps);
+                executeBatch(c, INSERT, IntStream.range(0, ns.length)
+                        .filter(i -> ns[i] == 0
+                                || ns[i] == Statement.SUCCESS_NO_INFO && executeUpdate(c, UPDATE_ALL, ps.get(i)) == 0)
+                        .mapToObj(us::get).map(r -> new Object[] { r.requiredIdentifier(), r.requiredComponent(),
+                                r.stringValue().orElse(null), r.longValue().orElse(null), true })
+                        .toList());
+            }
+            executeBatch(c, DELETE, rs.stream().filter(r -> !r.active())
+                    .map(r -> new Object[] { r.requiredIdentifier(), r.requiredComponent() }).toList());
+            executeBatch(c, CLEAR_REFERENCES, rs.stream()
+                    .filter(r -> !r.active() || Component.Registry.multiref(r.componentId()))
+                    .map(r -> new Object[] { r.requiredIdentifier(), r.requiredComponent() }).toList());
+            fs.stream().map(r -> List.of(r.requiredIdentifier(), r.requiredComponent())).distinct()
+                    .forEach(k -> references(c, (Long) k.get(0), (String) k.get(1)));
+            executeBatch(c, DELETE_REFERENCE, fs.stream().map(
+                    r -> new Object[] { r.requiredIdentifier(), r.requiredComponent(), r.longValue().get() }).toList());
+            executeBatch(c, INSERT_REFERENCE, fs.stream().filter(r -> r.reference().filter(Record.Reference.ADD::equals)
+                    .isPresent())
+                    .map(r -> new Object[] { r.requiredIdentifier(), r.requiredComponent(), r.longValue().get() })
+                    .toList());
+        });
+        batch().clear();
+    }
+
+    /**
+     * The records held back by a batching writer, grouped by entity in the order
+     * they were first written.
+     */
+    static final class Batch {
+
+        private final JdbcConnectionProvider provider;
+        private final Map<Long, Map<String, Record>> records = new LinkedHashMap<>();
+        private final Map<Long, Map<String, Map<Long, Record>>> references = new LinkedHashMap<>();
+
+        Batch(final JdbcConnectionProvider provider) {
+            this.provider = provider;
+        }
+
+        JdbcConnectionProvider provider() {
+            return provider;
+        }
+
+        void hold(final Record r) {
+            if (r.reference().isPresent()) {
+                references.computeIfAbsent(r.requiredIdentifier(), i -> new LinkedHashMap<>())
+                        .computeIfAbsent(r.requiredComponent(), c -> new LinkedHashMap<>())
+                        .put(r.longValue().get(), r);
+                return;
+            }
+            final Map<String, Record> m = records.computeIfAbsent(r.requiredIdentifier(), i -> new LinkedHashMap<>());
+            if (expires(r)) {
+                m.clear();
+                references.remove(r.requiredIdentifier());
+            }
+            m.put(r.requiredComponent(), r);
+            Optional.ofNullable(references.get(r.requiredIdentifier())).ifPresent(f -> f.remove(r.requiredComponent()));
+        }
+
+        int size() {
+            return records.values().stream().mapToInt(Map::size).sum() + references.values().stream()
+                    .flatMap(m -> m.values().stream()).mapToInt(Map::size).sum();
+        }
+
+        List<Record> records() {
+            return records.values().stream().flatMap(m -> m.values().stream())
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+
+        List<Record> referenceRecords() {
+            return references.values().stream().flatMap(m -> m.values().stream())
+                    .flatMap(m -> m.values().stream()).collect(Collectors.toCollection(ArrayList::new));
+        }
+
+        void clear() {
+            records.clear();
+            references.clear();
+        }
+    }
+}
@@ -0,0 +1,464 @@
+package com.proudlobster.stacks.storage;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.proudlobster.stacks.Fallible;
+import com.proudlobster.stacks.structure.Configuration;
+import com.proudlobster.stacks.structure.Dictionary;
+
+/**
+ * A connection provider which keeps physical connections open between uses.
+ *
+ * Connections handed out are proxies whose close() returns the physical
+ * connection to the pool. Idle connections are validated before being handed
+ * out again, and those idle for longer than the idle timeout are closed as
+ * connections are returned, down to the minimum size.
+ *
+ * Each physical connection caches the statements prepared on it by SQL text.
+ * Closing a cached statement clears it for reuse rather than closing it, and
+ * any left open are cleared when their connection is returned.
+ */
+@FunctionalInterface
+public interface JdbcConnectionPool extends JdbcConnectionProvider {
+
+    /**
+     * @param s  source of new physical connections
+     * @param cl dictionary of pool configuration
+     * @return a new pool, filled to its minimum size
+     */
+    public static JdbcConnectionPool of(final Supplier<Connection> s, final Dictionary<Configuration> cl) {
+        return of(s, setting(cl, CONF_POOL_MIN, 1), setting(cl, CONF_POOL_MAX, 8),
+                setting(cl, CONF_POOL_IDLE_TIMEOUT, 60000), setting(cl, CONF_POOL_VALIDATION_TIMEOUT, 1),
+                setting(cl, CONF_POOL_WAIT_TIMEOUT, 30000), setting(cl, CONF_POOL_STATEMENTS, DEFAULT_STATEMENTS));
+    }
+
+    /**
+     * @param s    source of new physical connections
+     * @param min  number of idle connections never evicted
+     * @param max  maximum number of physical connections
+     * @param idle milliseconds a connection may sit idle before eviction
+     * @param v    seconds allowed to validate an idle connection
+     * @param wait milliseconds to wait for a connection when all are in use
+     * @return a new pool, filled to its minimum size
+     */
+    public static JdbcConnectionPool of(final Supplier<Connection> s, final int min, final int max, final long idle,
+            final int v, final long wait) {
+        return of(s, min, max, idle, v, wait, DEFAULT_STATEMENTS);
+    }
+
+    /**
+     * @param s    source of new physical connections
+     * @param min  number of idle connections never evicted
+     * @param max  maximum number of physical connections
+     * @param idle milliseconds a connection may sit idle before eviction
+     * @param v    seconds allowed to validate an idle connection
+     * @param wait milliseconds to wait for a connection when all are in use
+     * @param st   number of prepared statements cached on each connection
+     * @return a new pool, filled to its minimum size
+     */
+    public static JdbcConnectionPool of(final Supplier<Connection> s, final int min, final int max, final long idle,
+            final int v, final long wait, final int st) {
+        final Pool p = new Pool(s, min, max, idle, v, wait, st);
+        p.fill();
+        return () -> p;
+    }
+
+    private static int setting(final Dictionary<Configuration> cl, final String k, final int d) {
+        return cl.lookup(k).map(Configuration::value).map(Integer::parseInt).orElse(d);
+    }
+
+    String CONF_POOL_PREFIX = "stacks.entity.storage.jdbc.pool.";
+    String CONF_POOL_ENABLED = CONF_POOL_PREFIX + "enabled";
+    String CONF_POOL_MIN = CONF_POOL_PREFIX + "size.min";
+    String CONF_POOL_MAX = CONF_POOL_PREFIX + "size.max";
+    String CONF_POOL_IDLE_TIMEOUT = CONF_POOL_PREFIX + "timeout.idle";
+    String CONF_POOL_VALIDATION_TIMEOUT = CONF_POOL_PREFIX + "timeout.validation";
+    String CONF_POOL_WAIT_TIMEOUT = CONF_POOL_PREFIX + "timeout.wait";
+    String CONF_POOL_STATEMENTS = CONF_POOL_PREFIX + "statements.max";
+    int DEFAULT_STATEMENTS = 32;
+    Fallible ERR_EXHAUSTED = Fallible.of("No pooled connection became available within {0} ms.");
+    Fallible ERR_POOL_CLOSED = Fallible.of("Connection pool has been closed.");
+
+    /**
+     * A snapshot of pool activity.
+     *
+     * @param idle      connections currently waiting in the pool
+     * @param active    connections currently handed out
+     * @param created   physical connections opened
+     * @param borrowed  connections handed out
+     * @param evicted   idle connections closed for exceeding the idle timeout
+     * @param invalid   idle connections closed for failing validation
+     * @param waited    borrows which had to wait for a connection to be returned
+     * @param exhausted borrows which gave up waiting
+     * @param prepared  statements compiled by the database
+     * @param reused    statements served from a connection's statement cache
+     */
+    public static record Metrics(int idle, int active, long created, long borrowed, long evicted, long invalid,
+            long waited, long exhausted, long prepared, long reused) {
+    }
+
+    /**
+     * @return accessor to the internal state of the pool
+     */
+    Pool pool();
+
+    /**
+     * @return a pooled connection, to be closed to return it to the pool
+     */
+    @Override
+    default Connection get() {
+        return pool().borrow();
+    }
+
+    /**
+     * @param c a pooled connection
+     * @return the dialect of the database, read from the metadata of the first
+     *         connection asked about and remembered for the life of the pool
+     */
+    @Override
+    default JdbcDialect dialect(final Connection c) {
+        return pool().dialect(c);
+    }
+
+    /**
+     * @return a snapshot of pool activity
+     */
+    default Metrics metrics() {
+        return pool().metrics();
+    }
+
+    /**
+     * Side-effect: closes every idle connection and refuses further borrows.
+     * Connections currently handed out are closed as they are returned.
+     */
+    default void close() {
+        pool().close();
+    }
+
+    /**
+     * The physical connections of a pool, with counters for its metrics.
+     */
+    static final class Pool {
+
+        private final Supplier<Connection> source;
+        private final int min;
+        private final long idleNanos;
+        private final int validation;
+        private final long wait;
+        private final int statements;
+        private final Semaphore permits;
+        private final Deque<Physical> idle = new ArrayDeque<>();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicLong created = new AtomicLong();
+        private final AtomicLong borrowed = new AtomicLong();
+        private final AtomicLong returned = new AtomicLong();
+        private final AtomicLong evicted = new AtomicLong();
+        private final AtomicLong invalid = new AtomicLong();
+        private final AtomicLong waited = new AtomicLong();
+        private final AtomicLong exhausted = new AtomicLong();
+        private final AtomicLong prepared = new AtomicLong();
+        private final AtomicLong reused = new AtomicLong();
+        private volatile JdbcDialect dialect;
+
+        /**
+         * A physical connection with the statements prepared on it, least recently
+         * used first.
+         */
+        private final class Physical {
+            private final Connection connection;
+            private final Map<String, Statement> cache = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, Statement> e) {
+                    final boolean full = size() > statements && !e.getValue().leased;
+                    if (full) {
+                        discard(e.getValue().statement);
+                    }
+                    return full;
+                }
+            };
+            private long since = System.nanoTime();
+
+            Physical(final Connection connection) {
+                this.connection = connection;
+            }
+
+            PreparedStatement prepare(final String q) throws SQLException {
+                final Statement c = cache.get(q);
+                if (c != null && !c.leased) {
+                    reused.incrementAndGet();
+                    return c.lease();
+                }
+                prepared.incrementAndGet();
+                final PreparedStatement ps = connection.prepareStatement(q);
+                if (c != null || statements == 0) {
+                    return ps;
+                }
+                final Statement n = new Statement(ps);
+                cache.put(q, n);
+                return n.lease();
+            }
+
+            void reset() {
+                cache.values().stream().filter(c -> c.leased).forEach(Statement::reset);
+            }
+
+            void close() {
+                cache.values().forEach(c -> discard(c.statement));
+                cache.clear();
+                discard(connection);
+            }
+        }
+
+        /**
+         * A cached statement, handed out as a proxy whose close() clears it for
+         * reuse. Each lease is numbered, and a proxy only works while its lease is
+         * the current one, so a proxy kept past its lease cannot reach the statement
+         * once it is leased again.
+         */
+        private static final class Statement {
+            private final PreparedStatement statement;
+            private boolean leased;
+            private long lease;
+
+            Statement(final PreparedStatement statement) {
+                this.statement = statement;
+            }
+
+            PreparedStatement lease() {
+                leased = true;
+                final long g = ++lease;
+                final Statement s = this;
+                return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                        new Class<?>[] { PreparedStatement.class }, new InvocationHandler() {
+                            private boolean open = true;
+
+                            private boolean current() {
+                                return open && s.leased && s.lease == g;
+                            }
+
+                            @Override
+                            public Object invoke(final Object p, final Method m, final Object[] as) throws Throwable {
+                                switch (m.getName()) {
+                                    case "close":
+                                        if (current()) {
+                                            s.reset();
+                                        }
+                                        open = false;
+                                        return null;
+                                    case "isClosed":
+                                        return !current() || statement.isClosed();
+                                    case "equals":
+                                        return p == as[0];
+                                    case "hashCode":
+                                        return System.identityHashCode(p);
+                                    default:
+                                        if (!current()) {
+                                            ERR_POOL_CLOSED.throwIt();
+                                        }
+                                        return delegate(statement, m, as);
+                                }
+                            }
+                        });
+            }
+
+            void reset() {
+                leased = false;
+                Fallible.attemptRun(() -> {
+                    statement.clearParameters();
+                    statement.clearBatch();
+                });
+            }
+        }
+
+        private static Object delegate(final Object o, final Method m, final Object[] as) throws Throwable {
+            try {
+                return m.invoke(o, as);
+            } catch (final InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        Pool(final Supplier<Connection> source, final int min, final int max, final long idle, final int validation,
+                final long wait, final int statements) {
+            this.source = source;
+            this.min = Math.min(min, max);
+            this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idle);
+            this.validation = validation;
+            this.wait = wait;
+            this.statements = statements;
+            this.permits = new Semaphore(max, true);
+        }
+
+        void fill() {
+            while (idleCount() < min) {
+                offer(open());
+            }
+        }
+
+        Connection borrow() {
+            if (closed.get()) {
+                ERR_POOL_CLOSED.throwIt();
+            }
+            if (!permits.tryAcquire()) {
+                waited.incrementAndGet();
+                if (!Fallible.attemptGet(() -> permits.tryAcquire(wait, TimeUnit.MILLISECONDS))) {
+                    exhausted.incrementAndGet();
+                    ERR_EXHAUSTED.throwIt(wait);
+                }
+            }
+            try {
+                final Physical c = take();
+                borrowed.incrementAndGet();
+                return lease(c);
+            } catch (final RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        private Physical take() {
+            for (Physical c = poll(); c != null; c = poll()) {
+                if (valid(c.connection)) {
+                    return c;
+                }
+                invalid.incrementAndGet();
+                c.close();
+            }
+            return open();
+        }
+
+        private Physical open() {
+            final Physical c = new Physical(source.get());
+            created.incrementAndGet();
+            return c;
+        }
+
+        private boolean valid(final Connection c) {
+            try {
+                return c.isValid(validation);
+            } catch (final Exception e) {
+                return false;
+            }
+        }
+
+        private Connection lease(final Physical c) {
+            final AtomicBoolean released = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, (p, m, as) -> {
+                        switch (m.getName()) {
+                            case "close":
+                                if (released.compareAndSet(false, true)) {
+                                    release(c);
+                                }
+                                return null;
+                            case "isClosed":
+                                return released.get() || c.connection.isClosed();
+                            case "equals":
+                                return p == as[0];
+                            case "hashCode":
+                                return System.identityHashCode(p);
+                            default:
+                                if (released.get()) {
+                                    ERR_POOL_CLOSED.throwIt();
+                                }
+                                if (m.getName().equals("prepareStatement") && as.length == 1) {
+                                    return c.prepare((String) as[0]);
+                                }
+                                return delegate(c.connection, m, as);
+                        }
+                    });
+        }
+
+        private void release(final Physical c) {
+            returned.incrementAndGet();
+            try {
+                c.reset();
+                if (closed.get() || !Fallible.attemptGet(() -> !c.connection.isClosed() && c.connection.getAutoCommit())) {
+                    c.close();
+                } else {
+                    offer(c);
+                    evict();
+                }
+            } catch (final RuntimeException e) {
+                c.close();
+            } finally {
+                permits.release();
+            }
+        }
+
+        private void evict() {
+            final long now = System.nanoTime();
+            while (true) {
+                final Physical c;
+                synchronized (idle) {
+                    c = idle.size() > min && now - idle.peekLast().since >= idleNanos ? idle.pollLast() : null;
+                }
+                if (c == null) {
+                    return;
+                }
+                evicted.incrementAndGet();
+                c.close();
+            }
+        }
+
+        private void offer(final Physical c) {
+            c.since = System.nanoTime();
+            synchronized (idle) {
+                idle.offerFirst(c);
+            }
+        }
+
+        private Physical poll() {
+            synchronized (idle) {
+                return idle.pollFirst();
+            }
+        }
+
+        private int idleCount() {
+            synchronized (idle) {
+                return idle.size();
+            }
+        }
+
+        private static void discard(final AutoCloseable c) {
+            try {
+                c.close();
+            } catch (final Exception e) {
+                // already unusable, nothing further to release
+            }
+        }
+
+        void close() {
+            closed.set(true);
+            for (Physical c = poll(); c != null; c = poll()) {
+                c.close();
+            }
+        }
+
+        JdbcDialect dialect(final Connection c) {
+            final JdbcDialect d = dialect;
+            return d != null ? d : (dialect = source instanceof JdbcConnectionProvider
+                    ? ((JdbcConnectionProvider) source).dialect(c) : JdbcDialect.of(c));
+        }
+
+        Metrics metrics() {
+            return new Metrics(idleCount(), (int) (borrowed.get() - returned.get()), created.get(), borrowed.get(),
+                    evicted.get(), invalid.get(), waited.get(), exhausted.get(), prepared.get(), reused.get());
+        }
+    }
+}
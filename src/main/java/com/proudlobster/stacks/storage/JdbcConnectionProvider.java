@@ -6,12 +6,15 @@ import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.sql.DataSource;
 
@@ -29,7 +32,7 @@ public interface JdbcConnectionProvider extends Supplier<Connection> {
 
     /**
      * @param cl dictionary of database configuration
-     * @return a new connection provider
+     * @return a new connection provider, pooling connections if configured to
      */
     public static JdbcConnectionProvider of(final Dictionary<Configuration> cl) {
         final DataSource ds = Pattern.compile(",").splitAsStream(cl.require(CONF_DS_PROP_LIST).value())
@@ -38,14 +41,49 @@ public interface JdbcConnectionProvider extends Supplier<Connection> {
                 .map(c -> (UnaryOperator<ObjectAdapter<DataSource>>) d -> d.setProperty(c))
                 .reduce((f, n) -> d -> f.andThen(n).apply(d)).orElse(UnaryOperator.identity())
                 .apply(ObjectAdapter.of(DataSource.class, cl.require(CONF_DS_CLASS_NAME).value())).get();
-        assertStorage(ds);
-        return () -> Fallible.attemptGet(ds::getConnection);
+        final JdbcConnectionProvider p = of(() -> Fallible.attemptGet(ds::getConnection), assertStorage(ds));
+        return cl.lookup(JdbcConnectionPool.CONF_POOL_ENABLED).map(Configuration::value).filter("true"::equals)
+                .isPresent() ? JdbcConnectionPool.of(p, cl) : p;
     }
 
-    private static void assertStorage(final DataSource ds) {
-        Optional.of(Fallible.attemptGet(ds::getConnection))
-                .filter(d -> !Fallible.attemptGet(() -> d.getMetaData().getTables(null, null, TABLE_NAME, null).next()))
-                .ifPresent((CREATE_TABLE).andThen(CLOSE_CONNECTION));
+    /**
+     * @param s source of connections
+     * @param d the dialect of the database they connect to
+     * @return a provider which reports that dialect without reading the metadata
+     *         of its connections
+     */
+    public static JdbcConnectionProvider of(final Supplier<Connection> s, final JdbcDialect d) {
+        return new JdbcConnectionProvider() {
+
+            @Override
+            public Connection get() {
+                return s.get();
+            }
+
+            @Override
+            public JdbcDialect dialect(final Connection c) {
+                return d;
+            }
+        };
+    }
+
+    /**
+     * Side-effect: creates the entity tables if they do not exist.
+     *
+     * @param ds the datasource of entity storage
+     * @return the dialect of its database
+     */
+    private static JdbcDialect assertStorage(final DataSource ds) {
+        final Connection c = Fallible.attemptGet(ds::getConnection);
+        Optional.of(c).filter(d -> !exists(d, TABLE_NAME)).ifPresent(CREATE_TABLE);
+        Optional.of(c).filter(d -> !exists(d, REFERENCE_TABLE_NAME)).ifPresent(CREATE_REFERENCE_TABLE);
+        final JdbcDialect d = JdbcDialect.of(c);
+        CLOSE_CONNECTION.accept(c);
+        return d;
+    }
+
+    private static boolean exists(final Connection c, final String t) {
+        return Fallible.attemptGet(() -> c.getMetaData().getTables(null, null, t, null).next());
     }
 
     private static PreparedStatement prepareStatement(final Connection c, final String q, final Object... params) {
@@ -54,6 +92,8 @@ public interface JdbcConnectionProvider extends Supplier<Connection> {
         return ps;
     }
 
+    Fallible ERR_CURSOR = Fallible.of("Failed to read results of query ''{0}''.");
+    int FETCH_SIZE = 256;
     String CONF_DS_PREFIX = "stacks.entity.storage.jdbc.datasource.";
     String CONF_DS_CLASS_NAME = CONF_DS_PREFIX + "class";
     String CONF_DS_PROP_LIST = CONF_DS_PREFIX + "properties";
@@ -68,34 +108,106 @@ public interface JdbcConnectionProvider extends Supplier<Connection> {
                 PRIMARY KEY (ID, COMPONENT)
             )
             """;
+    String REFERENCE_TABLE_NAME = "ENTITY_REFERENCE";
+    String REFERENCE_TABLE_DEFINITION = """
+            CREATE TABLE ENTITY_REFERENCE (
+                ID BIGINT NOT NULL,
+                COMPONENT VARCHAR(50) NOT NULL,
+                REF BIGINT NOT NULL,
+                SEQ BIGINT GENERATED ALWAYS AS IDENTITY,
+                PRIMARY KEY (ID, COMPONENT, REF)
+            )
+            """;
     Consumer<Connection> CLOSE_CONNECTION = c -> Fallible.attemptAccept(Connection::close, c);
     Consumer<Connection> CREATE_TABLE = c -> Fallible.attemptGet(() -> c.prepareStatement(TABLE_DEFINITION).execute());
+    Consumer<Connection> CREATE_REFERENCE_TABLE = c -> Fallible
+            .attemptGet(() -> c.prepareStatement(REFERENCE_TABLE_DEFINITION).execute());
 
     /**
+     * Reads every result before returning, so the connection is released however
+     * much of the stream is consumed.
+     *
      * @param <E> type of entity to be returned
      * @param q   the SQL query to execute
      * @param m   the mapping function for the result set
      * @param ps  the parameters for the query
      * @return the mapped results of the query
+     * @see #streamQuery(String, Fallible.RiskyFunction, int, Object...)
      */
     default <E> Stream<E> executeQuery(final String q, final Fallible.RiskyFunction<ResultSet, E> m,
             final Object... ps) {
         final List<E> es = new ArrayList<>();
         runInConnection(c -> {
-            final ResultSet rs = prepareStatement(c, q, ps).executeQuery();
-            while (rs.next()) {
-                es.add(m.apply(rs));
+            try (PreparedStatement s = prepareStatement(c, q, ps)) {
+                s.setFetchSize(FETCH_SIZE);
+                try (ResultSet rs = s.executeQuery()) {
+                    while (rs.next()) {
+                        es.add(m.apply(rs));
+                    }
+                }
             }
         });
         return es.stream();
     }
 
+    /**
+     * The query is not executed until the first result is pulled. Its connection,
+     * statement and cursor are closed once the results are exhausted, or when the
+     * stream is closed; streams consumed only partially must be closed.
+     *
+     * @param <E> type of entity to be returned
+     * @param q   the SQL query to execute
+     * @param m   the mapping function for the result set
+     * @param f   the number of rows to fetch from the database at a time
+     * @param ps  the parameters for the query
+     * @return the mapped results of the query, pulled from an open cursor
+     */
+    default <E> Stream<E> streamQuery(final String q, final Fallible.RiskyFunction<ResultSet, E> m, final int f,
+            final Object... ps) {
+        final Cursor<E> c = new Cursor<>(this, q, m, f, ps);
+        return StreamSupport.stream(c, false).onClose(c::close);
+    }
+
+    /**
+     * @param c a connection from this provider
+     * @return the dialect of the database, read from the connection's metadata
+     *         unless the provider knows it already
+     */
+    default JdbcDialect dialect(final Connection c) {
+        return JdbcDialect.of(c);
+    }
+
     /**
      * @param q      the SQL statement to execute
      * @param params the parameters for the statement
      */
     default void executeStatement(final String q, final Object... params) {
-        runInConnection(c -> prepareStatement(c, q, params).execute());
+        runInConnection(c -> {
+            try (PreparedStatement s = prepareStatement(c, q, params)) {
+                s.execute();
+            }
+        });
+    }
+
+    /**
+     * Runs the consumer against a single connection inside one database
+     * transaction, committing once it completes and rolling back if it fails.
+     *
+     * @param c a connection consumer
+     */
+    default void runInTransaction(final Fallible.RiskyConsumer<Connection> c) {
+        runInConnection(x -> {
+            x.setAutoCommit(false);
+            try {
+                c.accept(x);
+                x.commit();
+            } catch (final Exception e) {
+                x.rollback();
+                throw e;
+            } finally {
+                x.setAutoCommit(true);
+            }
+        });
     }
 
     /**
@@ -104,4 +216,74 @@ public interface JdbcConnectionProvider extends Supplier<Connection> {
     default void runInConnection(final Fallible.RiskyConsumer<Connection> c) {
         c.andThen(CLOSE_CONNECTION).accept(get());
     }
+
+    /**
+     * A spliterator over the rows of a query, opening its cursor on the first
+     * advance and closing it when the rows run out.
+     */
+    static final class Cursor<E> extends Spliterators.AbstractSpliterator<E> {
+
+        private final JdbcConnectionProvider provider;
+        private final String query;
+        private final Fallible.RiskyFunction<ResultSet, E> mapping;
+        private final int fetch;
+        private final Object[] parameters;
+        private Connection connection;
+        private PreparedStatement statement;
+        private ResultSet results;
+        private boolean closed;
+
+        Cursor(final JdbcConnectionProvider provider, final String query, final Fallible.RiskyFunction<ResultSet, E> mapping,
+                final int fetch, final Object[] parameters) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.provider = provider;
+            this.query = query;
+            this.mapping = mapping;
+            this.fetch = fetch;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super E> a) {
+            if (closed) {
+                return false;
+            }
+            final E e;
+            try {
+                if (results == null) {
+                    connection = provider.get();
+                    statement = prepareStatement(connection, query, parameters);
+                    statement.setFetchSize(fetch);
+                    results = statement.executeQuery();
+                }
+                if (!results.next()) {
+                    close();
+                    return false;
+                }
+                e = mapping.apply(results);
+            } catch (final Exception x) {
+                close();
+                ERR_CURSOR.throwIt(query, x);
+                return false;
+            }
+            a.accept(e);
+            return true;
+        }
+
+        void close() {
+            closed = true;
+            for (final AutoCloseable c : new AutoCloseable[] { results, statement, connection }) {
+                try {
+                    if (c != null) {
+                        c.close();
+                    }
+                } catch (final Exception e) {
+                    // the remaining resources are still released
+                }
+            }
+            results = null;
+            statement = null;
+            connection = null;
+        }
+    }
 }
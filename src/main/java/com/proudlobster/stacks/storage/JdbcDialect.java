@@ -0,0 +1,84 @@
+package com.proudlobster.stacks.storage;
+
+import java.sql.Connection;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.proudlobster.stacks.Fallible;
+
+/**
+ * The SQL variations of the databases which entity storage knows how to use,
+ * identified by the product name their drivers report.
+ */
+public enum JdbcDialect {
+
+    /**
+     * Apache Derby, which merges from a one-row system table and so binds the
+     * record values twice.
+     */
+    DERBY("Apache Derby", """
+            MERGE INTO ENTITY_COMPONENT T USING SYSIBM.SYSDUMMY1 ON T.ID = ? AND T.COMPONENT = ?
+            WHEN MATCHED THEN UPDATE SET STR_VALUE = ?, LONG_VALUE = ?, ACTIVE = true
+            WHEN NOT MATCHED THEN INSERT (ID, COMPONENT, STR_VALUE, LONG_VALUE, ACTIVE) VALUES (?, ?, ?, ?, true)
+            """, 2),
+
+    /**
+     * H2, which merges on the primary key columns directly.
+     */
+    H2("H2", """
+            MERGE INTO ENTITY_COMPONENT (ID, COMPONENT, STR_VALUE, LONG_VALUE, ACTIVE) KEY (ID, COMPONENT)
+            VALUES (?, ?, ?, ?, true)
+            """, 1),
+
+    /**
+     * Any other database, which upserts with an update followed by an insert when
+     * the update finds no row.
+     */
+    GENERIC("", null, 0);
+
+    private final String product;
+    private final String merge;
+    private final int bindings;
+
+    private JdbcDialect(final String product, final String merge, final int bindings) {
+        this.product = product;
+        this.merge = merge;
+        this.bindings = bindings;
+    }
+
+    /**
+     * @param p a database product name
+     * @return the dialect of that product, or GENERIC if it is not known
+     */
+    public static JdbcDialect of(final String p) {
+        return Stream.of(values()).filter(d -> !d.product.isEmpty() && d.product.equals(p)).findFirst()
+                .orElse(GENERIC);
+    }
+
+    /**
+     * @param c a connection to a database
+     * @return the dialect of that database
+     */
+    public static JdbcDialect of(final Connection c) {
+        return of(Fallible.attemptGet(() -> c.getMetaData().getDatabaseProductName()));
+    }
+
+    /**
+     * @return a single statement inserting or updating and reactivating one entity
+     *         component, if the dialect has one
+     */
+    public Optional<String> merge() {
+        return Optional.ofNullable(merge);
+    }
+
+    /**
+     * @param r an active record
+     * @return the parameters binding the record to the merge statement
+     */
+    public Object[] mergeParameters(final EntityWriter.Record r) {
+        final Object[] ps = { r.requiredIdentifier(), r.requiredComponent(), r.stringValue().orElse(null),
+                r.longValue().orElse(null) };
+        return IntStream.range(0, ps.length * bindings).mapToObj(i -> ps[i % ps.length]).toArray();
+    }
+}
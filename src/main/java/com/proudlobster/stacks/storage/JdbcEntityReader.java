@@ -1,16 +1,27 @@
 package com.proudlobster.stacks.storage;
 
 import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.proudlobster.stacks.Fallible;
+import com.proudlobster.stacks.ecp.Component;
 import com.proudlobster.stacks.ecp.Entity;
 import com.proudlobster.stacks.structure.Configuration;
 import com.proudlobster.stacks.structure.Couple;
 import com.proudlobster.stacks.structure.Dictionary;
+import com.proudlobster.stacks.structure.LongSet;
+import com.proudlobster.stacks.utility.StringTemplate;
 
 /**
  * An entity reader for a JDBC data source.
@@ -27,11 +38,70 @@ public interface JdbcEntityReader extends EntityReader {
     }
 
     Fallible ERR_BADLY_FORMED_ENTITY = Fallible.of("Badly formed data for entity ''{0}''.");
-    String QUERY_ENTITY = "SELECT ID, COMPONENT, STR_VALUE, LONG_VALUE FROM ENTITY_COMPONENT WHERE ACTIVE = TRUE AND ID = ?";
+    String QUERY_ENTITY = "SELECT C.ID, C.COMPONENT, C.STR_VALUE, C.LONG_VALUE, R.REF FROM ENTITY_COMPONENT C "
+            + "LEFT JOIN ENTITY_REFERENCE R ON R.ID = C.ID AND R.COMPONENT = C.COMPONENT "
+            + "WHERE C.ACTIVE = TRUE AND C.ID = ? ORDER BY R.SEQ";
     String QUERY_IDS = "SELECT ID FROM ENTITY_COMPONENT WHERE ACTIVE = TRUE AND COMPONENT = ?";
+    StringTemplate QUERY_IDS_ALL = StringTemplate.of(
+            "SELECT ID FROM ENTITY_COMPONENT WHERE ACTIVE = TRUE AND COMPONENT IN ({0}) GROUP BY ID HAVING COUNT(*) = {1}");
+    StringTemplate QUERY_ENTITIES_ALL = StringTemplate.of(
+            "SELECT C.ID, C.COMPONENT, C.STR_VALUE, C.LONG_VALUE, R.REF FROM ENTITY_COMPONENT C "
+                    + "LEFT JOIN ENTITY_REFERENCE R ON R.ID = C.ID AND R.COMPONENT = C.COMPONENT "
+                    + "WHERE C.ACTIVE = TRUE AND C.ID IN ("
+                    + "SELECT ID FROM ENTITY_COMPONENT WHERE ACTIVE = TRUE AND COMPONENT IN ({0}) GROUP BY ID HAVING COUNT(*) = {1}"
+                    + ") ORDER BY C.ID, R.SEQ");
     Fallible.RiskyFunction<ResultSet, Couple<Object>> RESULTS_TO_ENTITY = rs -> Couple.of(rs.getString("COMPONENT"),
-            Stream.of(rs.getString("STR_VALUE"), rs.getLong("LONG_VALUE"), true).filter(Objects::nonNull).findFirst()
-                    .orElse(true));
+            Stream.of(Optional.ofNullable((Number) rs.getObject("REF")).map(n -> LongSet.ordered(n.longValue()))
+                    .orElse(null), rs.getString("STR_VALUE"), rs.getLong("LONG_VALUE"), true)
+                    .filter(Objects::nonNull).findFirst().orElse(true));
+
+    Fallible.RiskyFunction<ResultSet, Map.Entry<Long, Couple<Object>>> RESULTS_TO_ROW = rs -> Map
+            .entry(rs.getLong("ID"), RESULTS_TO_ENTITY.apply(rs));
+
+    /**
+     * @param a the value of a component from one row
+     * @param b the value of the same component from another
+     * @return the references of both, if both rows hold a reference, or the
+     *         later value otherwise
+     */
+    private static Object merge(final Object a, final Object b) {
+        if (a instanceof LongSet && b instanceof LongSet) {
+            ((LongSet) b).stream().forEach(((LongSet) a)::add);
+            return a;
+        }
+        return b;
+    }
+
+    /**
+     * @param rows component rows, ordered so that the rows of each entity are
+     *             adjacent, with a row for each reference of a component
+     * @return the entities assembled from consecutive rows with the same ID, pulled
+     *         from the rows as the stream is consumed
+     */
+    private static Stream<Entity> assemble(final Stream<Map.Entry<Long, Couple<Object>>> rows) {
+        final Iterator<Map.Entry<Long, Couple<Object>>> i = rows.iterator();
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<Entity>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private Map.Entry<Long, Couple<Object>> next;
+
+            @Override
+            public boolean tryAdvance(final Consumer<? super Entity> a) {
+                next = next == null && i.hasNext() ? i.next() : next;
+                if (next == null) {
+                    return false;
+                }
+                final Long id = next.getKey();
+                final Map<String, Object> m = new HashMap<>();
+                while (next != null && next.getKey().equals(id)) {
+                    m.merge(next.getValue().firstOf(String.class).orElseThrow(ERR_BADLY_FORMED_ENTITY.apply(id)),
+                            next.getValue().second(), JdbcEntityReader::merge);
+                    next = i.hasNext() ? i.next() : null;
+                }
+                a.accept((Entity) () -> Dictionary.of(m));
+                return true;
+            }
+        }, false).onClose(rows::close);
+    }
 
     /**
      * @return the JDBC connection provider referenced by this reader
@@ -43,22 +113,59 @@ public interface JdbcEntityReader extends EntityReader {
      * @return the entities described by the record
      */
     default Stream<Entity> read(final EntityReader.Record r) {
-        return r.identifier().map(Stream::of).orElse(r.component().map(this::readIdsForComponent).orElse(Stream.of()))
-                .map(this::read).filter(Optional::isPresent).map(Optional::get);
+        return r.identifier().map(this::read).map(Optional::stream)
+                .orElseGet(() -> r.component().map(this::readForComponents).orElseGet(Stream::empty));
+    }
+
+    /**
+     * @param os the component names to read entities for
+     * @return the entities with every one of those components, loaded with a
+     *         single query pulled from an open cursor; the stream must be closed
+     *         if it is not consumed in full
+     */
+    default Stream<Entity> readForComponents(final String... os) {
+        return Optional.of(os).filter(a -> a.length > 0)
+                .map(a -> assemble(provider().streamQuery(
+                        QUERY_ENTITIES_ALL.get(Stream.generate(() -> "?").limit(a.length)
+                                .collect(Collectors.joining(",")), Integer.toString(a.length)),
+                        RESULTS_TO_ROW, JdbcConnectionProvider.FETCH_SIZE, (Object[]) a)))
+                .orElseGet(Stream::empty);
     }
 
     /**
      * @param o the component name to read entity IDs for
-     * @return the IDs of entities with that component
+     * @return the IDs of entities with that component, pulled from an open
+     *         cursor; the stream must be closed if it is not consumed in full
      */
     default Stream<Long> readIdsForComponent(final String o) {
-        return provider().executeQuery(QUERY_IDS, rs -> rs.getLong("ID"), o);
+        return provider().streamQuery(QUERY_IDS, rs -> rs.getLong("ID"), JdbcConnectionProvider.FETCH_SIZE, o);
+    }
+
+    /**
+     * @param os the component names to read entity IDs for
+     * @return the IDs of entities with every one of those components, found with a
+     *         single query pulled from an open cursor; the stream must be closed
+     *         if it is not consumed in full
+     */
+    default Stream<Long> readIdsForComponents(final String... os) {
+        return Optional.of(os).filter(a -> a.length > 0)
+                .map(a -> provider().streamQuery(
+                        QUERY_IDS_ALL.get(Stream.generate(() -> "?").limit(a.length).collect(Collectors.joining(",")),
+                                Integer.toString(a.length)),
+                        rs -> rs.getLong("ID"), JdbcConnectionProvider.FETCH_SIZE, (Object[]) a))
+                .orElseGet(Stream::empty);
+    }
+
+    @Override
+    default Stream<Entity> read(final Component... cs) {
+        return readForComponents(Arrays.stream(cs).map(Component::name).distinct().toArray(String[]::new));
     }
 
     @Override
     default Optional<Entity> read(final Long id) {
-        return Optional.of(provider().executeQuery(QUERY_ENTITY, RESULTS_TO_ENTITY, id).collect(Collectors
-                .toMap(c -> c.firstOf(String.class).orElseThrow(ERR_BADLY_FORMED_ENTITY.apply(id)), Couple::second)))
+        return Optional.of(provider().executeQuery(QUERY_ENTITY, RESULTS_TO_ENTITY, id)
+                .collect(Collectors.toMap(c -> c.firstOf(String.class).orElseThrow(ERR_BADLY_FORMED_ENTITY.apply(id)),
+                        Couple::second, JdbcEntityReader::merge)))
                 .filter(a -> a.size() > 0).map(a -> (Entity) () -> Dictionary.of(a));
     }
 
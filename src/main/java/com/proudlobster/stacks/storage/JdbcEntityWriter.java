@@ -1,5 +1,8 @@
 package com.proudlobster.stacks.storage;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.util.Optional;
 
 import com.proudlobster.stacks.Fallible;
@@ -7,6 +10,7 @@ import com.proudlobster.stacks.ecp.Component;
 import com.proudlobster.stacks.structure.Configuration;
 import com.proudlobster.stacks.structure.Dictionary;
 import com.proudlobster.stacks.utility.ObjectAdapter;
+import com.proudlobster.stacks.utility.StringAdapter;
 
 /**
  * An entity writer for a JDBC data source.
@@ -25,10 +29,54 @@ public interface JdbcEntityWriter extends EntityWriter {
     String INSERT = "INSERT INTO ENTITY_COMPONENT (ID, COMPONENT, STR_VALUE, LONG_VALUE, ACTIVE) VALUES (?,?,?,?,?)";
     String UPDATE_STR = "UPDATE ENTITY_COMPONENT SET STR_VALUE = ? WHERE ID = ? AND COMPONENT = ?";
     String UPDATE_LONG = "UPDATE ENTITY_COMPONENT SET LONG_VALUE = ? WHERE ID = ? AND COMPONENT = ?";
+    String UPDATE_ALL = "UPDATE ENTITY_COMPONENT SET STR_VALUE = ?, LONG_VALUE = ?, ACTIVE = true WHERE ID = ? AND COMPONENT = ?";
     String DELETE = "UPDATE ENTITY_COMPONENT SET ACTIVE = false WHERE ID = ? AND COMPONENT = ?";
     String EXPIRE = "UPDATE ENTITY_COMPONENT SET ACTIVE = false WHERE ID = ?";
+    String QUERY_STR = "SELECT STR_VALUE FROM ENTITY_COMPONENT WHERE ACTIVE = true AND ID = ? AND COMPONENT = ?";
+    String INSERT_REFERENCE = "INSERT INTO ENTITY_REFERENCE (ID, COMPONENT, REF) VALUES (?,?,?)";
+    String DELETE_REFERENCE = "DELETE FROM ENTITY_REFERENCE WHERE ID = ? AND COMPONENT = ? AND REF = ?";
+    String CLEAR_REFERENCES = "DELETE FROM ENTITY_REFERENCE WHERE ID = ? AND COMPONENT = ?";
+    String EXPIRE_REFERENCES = "DELETE FROM ENTITY_REFERENCE WHERE ID = ?";
+    String NO_REFERENCES = "";
     Fallible ERR_NO_VALUE = Fallible.of("Record has no value to update.");
 
+    /**
+     * @param c  the connection to execute against
+     * @param q  the SQL statement to execute
+     * @param ps the parameters for the statement
+     * @return the update count of the statement
+     */
+    private static int executeUpdate(final Connection c, final String q, final Object... ps) {
+        return Fallible.attemptGet(() -> {
+            try (PreparedStatement s = c.prepareStatement(q)) {
+                for (int i = 0; i < ps.length; i++) {
+                    s.setObject(i + 1, ps[i]);
+                }
+                return s.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * @param c  the connection to query
+     * @param q  the SQL query for a single string
+     * @param ps the parameters for the query
+     * @return the string in the first row of the results, if there is one and it
+     *         is not null
+     */
+    private static Optional<String> queryString(final Connection c, final String q, final Object... ps) {
+        return Fallible.attemptGet(() -> {
+            try (PreparedStatement s = c.prepareStatement(q)) {
+                for (int i = 0; i < ps.length; i++) {
+                    s.setObject(i + 1, ps[i]);
+                }
+                try (ResultSet rs = s.executeQuery()) {
+                    return rs.next() ? Optional.ofNullable(rs.getString(1)) : Optional.<String>empty();
+                }
+            }
+        });
+    }
+
     /**
      * @return the JDBC connection provider referenced by this writer
      */
@@ -45,16 +93,30 @@ public interface JdbcEntityWriter extends EntityWriter {
      * @param r the record to write
      */
     default void write(final Record r) {
-        Optional.of(r).filter(Record::active).ifPresentOrElse(this::upsert, () -> delete(r));
+        r.reference().ifPresentOrElse(a -> reference(r),
+                () -> Optional.of(r).filter(Record::active).ifPresentOrElse(this::upsert, () -> delete(r)));
     }
 
     /**
+     * Uses the merge statement of the database's dialect, without reading the
+     * entity first. Databases without one are updated, then inserted into if the
+     * update finds no row. Writing a multiple reference component replaces any
+     * references it held as reference rows, in the same transaction.
+     *
      * @param r the record to update if it exists, or insert if it does not
      */
     default void upsert(final Record r) {
-        Optional.of(r).map(Record::requiredIdentifier).map(reader()::read).filter(Optional::isPresent)
-                .map(Optional::get).filter(e -> e.is(r.requiredComponent()))
-                .ifPresentOrElse(e -> update(r), () -> insert(r));
+        provider().runInTransaction(c -> {
+            final JdbcDialect d = provider().dialect(c);
+            d.merge().ifPresentOrElse(m -> executeUpdate(c, m, d.mergeParameters(r)),
+                    () -> Optional.of(executeUpdate(c, UPDATE_ALL, r.stringValue().orElse(null),
+                            r.longValue().orElse(null), r.requiredIdentifier(), r.requiredComponent()))
+                            .filter(n -> n == 0)
+                            .ifPresent(n -> executeUpdate(c, INSERT, r.requiredIdentifier(), r.requiredComponent(),
+                                    r.stringValue().orElse(null), r.longValue().orElse(null), true)));
+            Optional.of(r).filter(x -> Component.Registry.multiref(x.componentId())).ifPresent(
+                    x -> executeUpdate(c, CLEAR_REFERENCES, x.requiredIdentifier(), x.requiredComponent()));
+        });
 
         r.component().filter(c -> Component.Core.EXPIRED.name().equals(c))
                 .ifPresent(c -> expire(r.requiredIdentifier()));
@@ -63,6 +125,43 @@ public interface JdbcEntityWriter extends EntityWriter {
     // TODO add test and doc for expiration
     default void expire(final Long id) {
         provider().executeStatement(EXPIRE, id);
+        provider().executeStatement(EXPIRE_REFERENCES, id);
+    }
+
+    /**
+     * Adds or removes the one reference as a row of the reference table, without
+     * reading or rewriting the others.
+     *
+     * @param r the record changing a single reference
+     */
+    default void reference(final Record r) {
+        provider().runInTransaction(c -> {
+            references(c, r.requiredIdentifier(), r.requiredComponent());
+            executeUpdate(c, DELETE_REFERENCE, r.requiredIdentifier(), r.requiredComponent(), r.longValue().get());
+            r.reference().filter(Record.Reference.ADD::equals).ifPresent(a -> executeUpdate(c, INSERT_REFERENCE,
+                    r.requiredIdentifier(), r.requiredComponent(), r.longValue().get()));
+        });
+    }
+
+    /**
+     * Side-effect: prepares the component to hold its references as rows of the
+     * reference table, activating it, or inserting it if it does not exist. Any
+     * references written into its string value are moved to rows, once, and the
+     * string value left empty.
+     *
+     * @param c  the connection to execute against
+     * @param id the ID of the entity
+     * @param o  the multiple reference component name
+     */
+    default void references(final Connection c, final Long id, final String o) {
+        final Optional<String> s = queryString(c, QUERY_STR, id, o);
+        if (s.filter(NO_REFERENCES::equals).isPresent()) {
+            return;
+        }
+        s.map(StringAdapter::of).map(StringAdapter::splitToNumbers).ifPresent(
+                ls -> ls.distinct().forEach(l -> executeUpdate(c, INSERT_REFERENCE, id, o, l)));
+        Optional.of(executeUpdate(c, UPDATE_ALL, NO_REFERENCES, null, id, o)).filter(n -> n == 0)
+                .ifPresent(n -> executeUpdate(c, INSERT, id, o, NO_REFERENCES, null, true));
     }
 
     /**
@@ -83,9 +182,12 @@ public interface JdbcEntityWriter extends EntityWriter {
     }
 
     /**
-     * @param r the record to delete
+     * @param r the record to delete, along with any references of the component
      */
     default void delete(final Record r) {
-        provider().executeStatement(DELETE, r.requiredIdentifier(), r.requiredComponent());
+        provider().runInTransaction(c -> {
+            executeUpdate(c, DELETE, r.requiredIdentifier(), r.requiredComponent());
+            executeUpdate(c, CLEAR_REFERENCES, r.requiredIdentifier(), r.requiredComponent());
+        });
     };
 }
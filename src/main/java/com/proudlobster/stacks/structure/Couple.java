@@ -18,7 +18,9 @@ public interface Couple<E> extends Tuple<E> {
      * @return a couple containing both elements
      */
     static <E> Couple<E> of(final E f, final E s) {
-        return i -> Single.of(f).get(i).map(Optional::ofNullable).orElse(Single.of(s).get(i - SECOND_POSITION));
+        final Optional<E> a = Optional.ofNullable(f);
+        final Optional<E> b = Optional.ofNullable(s);
+        return i -> i == FIRST_POSITION ? a : i == SECOND_POSITION ? b : Optional.empty();
     }
 
     Fallible ERR_MISSING_FIRST_ELEMENT = Fallible.of("Couple missing first element.");
@@ -45,6 +47,12 @@ public interface Couple<E> extends Tuple<E> {
         return get(SECOND_POSITION).orElseThrow(ERR_MISSING_SECOND_ELEMENT);
     }
 
+    @Override
+    default <N> Optional<N> firstOf(final Class<N> c) {
+        return get(FIRST_POSITION).filter(c::isInstance).or(() -> get(SECOND_POSITION).filter(c::isInstance))
+                .map(c::cast);
+    }
+
     @Override
     default Stream<E> stream() {
         return Stream.of(first(), second());
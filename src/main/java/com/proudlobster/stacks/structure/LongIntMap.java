@@ -0,0 +1,206 @@
+package com.proudlobster.stacks.structure;
+
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+/**
+ * A map of primitive long keys to primitive int values, avoiding the boxing of
+ * either.
+ */
+public interface LongIntMap {
+
+    /**
+     * @return a new, empty map
+     */
+    public static LongIntMap create() {
+        return new OpenAddressing();
+    }
+
+    /**
+     * The value reported for keys which are not present: {@value}
+     */
+    int NO_VALUE = -1;
+
+    /**
+     * @param k a key
+     * @return the value for that key, or NO_VALUE if the key is not present
+     */
+    int get(final long k);
+
+    /**
+     * @param k a key
+     * @param v the value to associate with the key
+     * @return the previous value for the key, or NO_VALUE if the key was not
+     *         present
+     */
+    int put(final long k, final int v);
+
+    /**
+     * @param k a key
+     * @return the removed value for the key, or NO_VALUE if the key was not
+     *         present
+     */
+    int remove(final long k);
+
+    /**
+     * @return the number of keys in the map
+     */
+    int size();
+
+    /**
+     * @return a snapshot of the keys currently in the map
+     */
+    long[] keys();
+
+    /**
+     * @param k a key
+     * @return true if the key is present
+     */
+    default boolean containsKey(final long k) {
+        return get(k) != NO_VALUE;
+    }
+
+    /**
+     * @return a stream over a snapshot of the keys currently in the map
+     */
+    default LongStream keyStream() {
+        return Arrays.stream(keys());
+    }
+
+    /**
+     * Open addressing implementation using linear probing and backward shift
+     * deletion. Values equal to NO_VALUE cannot be stored.
+     */
+    static final class OpenAddressing implements LongIntMap {
+
+        private static final long FREE = Long.MIN_VALUE;
+        private static final long MIX = 0x9E3779B97F4A7C15L;
+        private static final int INITIAL_BITS = 4;
+
+        private long[] keys;
+        private int[] values;
+        private int bits;
+        private int size;
+        private int freeKeyValue = NO_VALUE;
+
+        OpenAddressing() {
+            allocate(INITIAL_BITS);
+        }
+
+        private void allocate(final int b) {
+            bits = b;
+            keys = new long[1 << b];
+            values = new int[1 << b];
+            Arrays.fill(keys, FREE);
+        }
+
+        private int slot(final long k) {
+            return (int) ((k * MIX) >>> (Long.SIZE - bits));
+        }
+
+        private int find(final long k) {
+            final int mask = keys.length - 1;
+            int i = slot(k);
+            while (keys[i] != FREE && keys[i] != k) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        @Override
+        public int get(final long k) {
+            if (k == FREE) {
+                return freeKeyValue;
+            }
+            final int i = find(k);
+            return keys[i] == k ? values[i] : NO_VALUE;
+        }
+
+        @Override
+        public int put(final long k, final int v) {
+            if (k == FREE) {
+                final int p = freeKeyValue;
+                size += p == NO_VALUE ? 1 : 0;
+                freeKeyValue = v;
+                return p;
+            }
+            final int i = find(k);
+            if (keys[i] == k) {
+                final int p = values[i];
+                values[i] = v;
+                return p;
+            }
+            keys[i] = k;
+            values[i] = v;
+            if (++size * 2 > keys.length) {
+                rehash();
+            }
+            return NO_VALUE;
+        }
+
+        @Override
+        public int remove(final long k) {
+            if (k == FREE) {
+                final int p = freeKeyValue;
+                size -= p == NO_VALUE ? 0 : 1;
+                freeKeyValue = NO_VALUE;
+                return p;
+            }
+            final int mask = keys.length - 1;
+            int i = find(k);
+            if (keys[i] != k) {
+                return NO_VALUE;
+            }
+            final int p = values[i];
+            size--;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (keys[j] == FREE) {
+                    break;
+                }
+                final int h = slot(keys[j]);
+                if (((j - h) & mask) >= ((j - i) & mask)) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    i = j;
+                }
+            }
+            keys[i] = FREE;
+            return p;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public long[] keys() {
+            final long[] ks = new long[size];
+            int n = 0;
+            if (freeKeyValue != NO_VALUE) {
+                ks[n++] = FREE;
+            }
+            for (final long k : keys) {
+                if (k != FREE) {
+                    ks[n++] = k;
+                }
+            }
+            return ks;
+        }
+
+        private void rehash() {
+            final long[] ks = keys;
+            final int[] vs = values;
+            allocate(bits + 1);
+            for (int i = 0; i < ks.length; i++) {
+                if (ks[i] != FREE) {
+                    final int j = find(ks[i]);
+                    keys[j] = ks[i];
+                    values[j] = vs[i];
+                }
+            }
+        }
+    }
+}
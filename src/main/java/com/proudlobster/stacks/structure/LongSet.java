@@ -0,0 +1,236 @@
+package com.proudlobster.stacks.structure;
+
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+import com.proudlobster.stacks.Fallible;
+
+/**
+ * A set of primitive long values, avoiding the boxing of elements.
+ */
+@FunctionalInterface
+public interface LongSet {
+
+    /**
+     * @return a new, empty set
+     */
+    public static LongSet create() {
+        final LongIntMap m = LongIntMap.create();
+        return () -> m;
+    }
+
+    /**
+     * @param ls the initial elements of the set
+     * @return a new set containing those elements
+     */
+    public static LongSet of(final long... ls) {
+        final LongSet s = create();
+        for (final long l : ls) {
+            s.add(l);
+        }
+        return s;
+    }
+
+    /**
+     * @param ls the initial elements of the set
+     * @return a new set containing those elements, which iterates its elements in
+     *         the order they were added
+     */
+    public static LongSet ordered(final long... ls) {
+        final LongSet s = new Ordered();
+        for (final long l : ls) {
+            s.add(l);
+        }
+        return s;
+    }
+
+    /**
+     * @param s a set
+     * @return a view of the set which reads through to it but cannot change it
+     */
+    public static LongSet unmodifiable(final LongSet s) {
+        return s instanceof Unmodifiable ? s : new Unmodifiable(s);
+    }
+
+    Fallible ERR_UNMODIFIABLE = Fallible.of("This set of longs cannot be modified.");
+
+    int PRESENT = 0;
+
+    /**
+     * @return the map whose keys are the elements of the set
+     */
+    LongIntMap map();
+
+    /**
+     * @param l an element to add
+     * @return true if the element was not already present
+     */
+    default boolean add(final long l) {
+        return map().put(l, PRESENT) == LongIntMap.NO_VALUE;
+    }
+
+    /**
+     * @param l an element to remove
+     * @return true if the element was present
+     */
+    default boolean remove(final long l) {
+        return map().remove(l) != LongIntMap.NO_VALUE;
+    }
+
+    /**
+     * @param l an element
+     * @return true if the element is present
+     */
+    default boolean contains(final long l) {
+        return map().containsKey(l);
+    }
+
+    /**
+     * @return the number of elements in the set
+     */
+    default int size() {
+        return map().size();
+    }
+
+    /**
+     * @return a snapshot of the elements currently in the set
+     */
+    default long[] toArray() {
+        return map().keys();
+    }
+
+    /**
+     * @return a new set containing the elements currently in this one
+     */
+    default LongSet copy() {
+        return of(toArray());
+    }
+
+    /**
+     * @return a stream over a snapshot of the elements currently in the set
+     */
+    default LongStream stream() {
+        return map().keyStream();
+    }
+
+    /**
+     * A set iterating its elements in the order they were added, keeping each
+     * element's position in an array of positions. Removing an element leaves its
+     * position behind, to be reclaimed when the array is next full.
+     */
+    static final class Ordered implements LongSet {
+
+        private static final int INITIAL_CAPACITY = 8;
+
+        private final LongIntMap positions = LongIntMap.create();
+        private long[] order = new long[INITIAL_CAPACITY];
+        private int end;
+
+        @Override
+        public LongIntMap map() {
+            return positions;
+        }
+
+        @Override
+        public boolean add(final long l) {
+            if (positions.containsKey(l)) {
+                return false;
+            }
+            if (end == order.length) {
+                compact();
+            }
+            order[end] = l;
+            positions.put(l, end++);
+            return true;
+        }
+
+        @Override
+        public long[] toArray() {
+            final long[] a = new long[positions.size()];
+            int n = 0;
+            for (int i = 0; i < end; i++) {
+                if (positions.get(order[i]) == i) {
+                    a[n++] = order[i];
+                }
+            }
+            return a;
+        }
+
+        @Override
+        public LongStream stream() {
+            return Arrays.stream(toArray());
+        }
+
+        @Override
+        public LongSet copy() {
+            return ordered(toArray());
+        }
+
+        private void compact() {
+            final long[] a = toArray();
+            order = Arrays.copyOf(a, Math.max(INITIAL_CAPACITY, a.length * 2));
+            end = a.length;
+            for (int i = 0; i < end; i++) {
+                positions.put(order[i], i);
+            }
+        }
+    }
+
+    /**
+     * A view of another set, reading through to it and refusing every change.
+     */
+    static final class Unmodifiable implements LongSet {
+
+        private final LongSet set;
+
+        Unmodifiable(final LongSet set) {
+            this.set = set;
+        }
+
+        /**
+         * @return a copy of the map of the set viewed, as changing it would change
+         *         the set
+         */
+        @Override
+        public LongIntMap map() {
+            final LongIntMap m = LongIntMap.create();
+            set.stream().forEach(l -> m.put(l, PRESENT));
+            return m;
+        }
+
+        @Override
+        public boolean add(final long l) {
+            throw ERR_UNMODIFIABLE.get();
+        }
+
+        @Override
+        public boolean remove(final long l) {
+            throw ERR_UNMODIFIABLE.get();
+        }
+
+        @Override
+        public boolean contains(final long l) {
+            return set.contains(l);
+        }
+
+        @Override
+        public int size() {
+            return set.size();
+        }
+
+        @Override
+        public long[] toArray() {
+            return set.toArray();
+        }
+
+        @Override
+        public LongSet copy() {
+            return set.copy();
+        }
+
+        @Override
+        public LongStream stream() {
+            return set.stream();
+        }
+    }
+}
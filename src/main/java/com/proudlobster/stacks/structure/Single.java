@@ -17,7 +17,8 @@ public interface Single<E> extends Tuple<E> {
      * @return a single containing both elements
      */
     public static <E> Single<E> of(final E f) {
-        return i -> Optional.ofNullable(i).filter(POSITION::equals).map(x -> f);
+        final Optional<E> o = Optional.ofNullable(f);
+        return i -> i == POSITION ? o : Optional.empty();
     }
 
     Fallible ERR_MISSING_ELEMENT = Fallible.of("Single missing element.");
@@ -35,6 +36,11 @@ public interface Single<E> extends Tuple<E> {
         return get(POSITION).orElseThrow(ERR_MISSING_ELEMENT);
     }
 
+    @Override
+    default <N> Optional<N> firstOf(final Class<N> c) {
+        return get(POSITION).filter(c::isInstance).map(c::cast);
+    }
+
     @Override
     default Stream<E> stream() {
         return Stream.of(first());
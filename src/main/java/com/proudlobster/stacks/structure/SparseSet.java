@@ -0,0 +1,161 @@
+package com.proudlobster.stacks.structure;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * A set of primitive long values kept in a dense array, with a sparse index of
+ * each value's position in that array.
+ *
+ * Membership, addition and removal are constant time, and iteration walks the
+ * dense array without gaps.
+ */
+public interface SparseSet {
+
+    /**
+     * @return a new, empty set
+     */
+    public static SparseSet create() {
+        return new Dense();
+    }
+
+    /**
+     * @param ls the initial elements of the set
+     * @return a new set containing those elements
+     */
+    public static SparseSet of(final long... ls) {
+        final SparseSet s = create();
+        for (final long l : ls) {
+            s.add(l);
+        }
+        return s;
+    }
+
+    /**
+     * @param l an element to add
+     * @return true if the element was not already present
+     */
+    boolean add(final long l);
+
+    /**
+     * Removes the element by moving the last element of the dense array into its
+     * position.
+     *
+     * @param l an element to remove
+     * @return true if the element was present
+     */
+    boolean remove(final long l);
+
+    /**
+     * @param l an element
+     * @return true if the element is present
+     */
+    boolean contains(final long l);
+
+    /**
+     * @param l an element
+     * @return the position of the element in the dense array, or -1 if it is not
+     *         present
+     */
+    int indexOf(final long l);
+
+    /**
+     * @return the number of elements in the set
+     */
+    int size();
+
+    /**
+     * @param i a position in the dense array, less than size()
+     * @return the element at that position
+     */
+    long get(final int i);
+
+    /**
+     * @return a copy of the dense array
+     */
+    long[] toArray();
+
+    /**
+     * @param c a consumer to apply to every element, in dense order; the set must
+     *          not be modified while this runs
+     */
+    default void forEach(final LongConsumer c) {
+        for (int i = 0; i < size(); i++) {
+            c.accept(get(i));
+        }
+    }
+
+    /**
+     * @return a stream over a copy of the dense array, safe against modification
+     *         of the set while it is consumed
+     */
+    default LongStream stream() {
+        return Arrays.stream(toArray());
+    }
+
+    /**
+     * Implementation using a long array for the dense elements and a primitive
+     * map for the sparse index.
+     */
+    static final class Dense implements SparseSet {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final LongIntMap sparse = LongIntMap.create();
+        private long[] dense = new long[INITIAL_CAPACITY];
+        private int size;
+
+        @Override
+        public boolean add(final long l) {
+            if (sparse.containsKey(l)) {
+                return false;
+            }
+            if (size == dense.length) {
+                dense = Arrays.copyOf(dense, size * 2);
+            }
+            dense[size] = l;
+            sparse.put(l, size++);
+            return true;
+        }
+
+        @Override
+        public boolean remove(final long l) {
+            final int i = sparse.remove(l);
+            if (i == LongIntMap.NO_VALUE) {
+                return false;
+            }
+            final long last = dense[--size];
+            if (i != size) {
+                dense[i] = last;
+                sparse.put(last, i);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean contains(final long l) {
+            return sparse.containsKey(l);
+        }
+
+        @Override
+        public int indexOf(final long l) {
+            return sparse.get(l);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public long get(final int i) {
+            return dense[i];
+        }
+
+        @Override
+        public long[] toArray() {
+            return Arrays.copyOf(dense, size);
+        }
+    }
+}
@@ -11,9 +11,18 @@ import com.proudlobster.stacks.Fallible;
 @FunctionalInterface
 public interface Triple<E> extends Tuple<E> {
 
+    /**
+     * @param <E> the type of the elements
+     * @param f   the first element
+     * @param s   the second element
+     * @param t   the third element
+     * @return a triple containing all three elements
+     */
     public static <E> Triple<E> of(final E f, final E s, final E t) {
-        return i -> Single.of(f).get(i).map(Optional::ofNullable).orElse(Single.of(s).get(i - SECOND_POSITION))
-                .map(Optional::ofNullable).orElse(Single.of(t).get(i - THIRD_POSITION));
+        final Optional<E> a = Optional.ofNullable(f);
+        final Optional<E> b = Optional.ofNullable(s);
+        final Optional<E> c = Optional.ofNullable(t);
+        return i -> i == FIRST_POSITION ? a : i == SECOND_POSITION ? b : i == THIRD_POSITION ? c : Optional.empty();
     }
 
     Fallible ERR_MISSING_FIRST_ELEMENT = Fallible.of("Couple missing first element.");
@@ -49,6 +58,12 @@ public interface Triple<E> extends Tuple<E> {
         return get(THIRD_POSITION).orElseThrow(ERR_MISSING_THIRD_ELEMENT);
     }
 
+    @Override
+    default <N> Optional<N> firstOf(final Class<N> c) {
+        return get(FIRST_POSITION).filter(c::isInstance).or(() -> get(SECOND_POSITION).filter(c::isInstance))
+                .or(() -> get(THIRD_POSITION).filter(c::isInstance)).map(c::cast);
+    }
+
     @Override
     default Stream<E> stream() {
         return Stream.of(first(), second(), third());
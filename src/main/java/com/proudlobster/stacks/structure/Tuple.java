@@ -1,5 +1,6 @@
 package com.proudlobster.stacks.structure;
 
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -7,6 +8,9 @@ import com.proudlobster.stacks.Fallible;
 
 /**
  * A representation of a sequence of data elements.
+ *
+ * Tuples made by {@link #of(Object...)} are backed by an array, so positional
+ * and typed lookups walk the elements directly rather than streaming them.
  */
 @FunctionalInterface
 public interface Tuple<E> {
@@ -19,8 +23,9 @@ public interface Tuple<E> {
      * @return a tuple wrapping the provided elements
      */
     @SafeVarargs
+    @SuppressWarnings("varargs")
     public static <E> Tuple<E> of(final E... es) {
-        return () -> Stream.of(es);
+        return new Indexed<>(es);
     }
 
     /**
@@ -40,7 +45,7 @@ public interface Tuple<E> {
      * @return the first element in the tuple if it exists
      */
     default Optional<E> head() {
-        return stream().findFirst();
+        return get(0);
     }
 
     /**
@@ -70,6 +75,17 @@ public interface Tuple<E> {
         return morph(c).head();
     }
 
+    /**
+     * @param <N> generic type of the output element
+     * @param c   target type of the output element
+     * @param n   the number of matching elements to pass over
+     * @return the element after the first n in the tuple which match the target
+     *         type if it exists
+     */
+    default <N> Optional<N> nthOf(final Class<N> c, final long n) {
+        return morph(c).get(n);
+    }
+
     /**
      * @param <N> generic type of the output element
      * @param c   target type of the output element
@@ -87,4 +103,46 @@ public interface Tuple<E> {
         return stream().count();
     }
 
+    /**
+     * A tuple backed by an array of its elements.
+     */
+    static final class Indexed<E> implements Tuple<E> {
+
+        private final E[] elements;
+
+        Indexed(final E[] elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public Stream<E> stream() {
+            return Arrays.stream(elements);
+        }
+
+        @Override
+        public Optional<E> get(final long i) {
+            return i >= 0 && i < elements.length ? Optional.ofNullable(elements[(int) i]) : Optional.empty();
+        }
+
+        @Override
+        public <N> Optional<N> firstOf(final Class<N> c) {
+            return nthOf(c, 0);
+        }
+
+        @Override
+        public <N> Optional<N> nthOf(final Class<N> c, final long n) {
+            long m = n;
+            for (final E e : elements) {
+                if (c.isInstance(e) && m-- == 0) {
+                    return Optional.of(c.cast(e));
+                }
+            }
+            return Optional.empty();
+        }
+
+        @Override
+        public long count() {
+            return elements.length;
+        }
+    }
 }
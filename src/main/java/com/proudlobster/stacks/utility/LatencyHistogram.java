@@ -0,0 +1,97 @@
+package com.proudlobster.stacks.utility;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+import com.proudlobster.stacks.Fallible;
+
+/**
+ * A histogram of durations in nanoseconds, counted in power-of-two buckets.
+ *
+ * Recording is lock-free and safe from several threads at once. Percentiles
+ * are accurate to within a factor of two, which is enough to tell a slow tick
+ * from a fast one without keeping every sample.
+ */
+@FunctionalInterface
+public interface LatencyHistogram {
+
+    Fallible ERR_QUANTILE = Fallible.of("Quantile must be between 0 and 1, not {0}.");
+
+    int BUCKETS = Long.SIZE;
+    int MAX_POSITION = BUCKETS;
+    int SUM_POSITION = BUCKETS + 1;
+
+    /**
+     * @return a new, empty histogram
+     */
+    public static LatencyHistogram create() {
+        final AtomicLongArray a = new AtomicLongArray(BUCKETS + 2);
+        return () -> a;
+    }
+
+    /**
+     * @param n a duration in nanoseconds
+     * @return the bucket counting the duration, which holds durations below 2 to
+     *         the power of its index
+     */
+    private static int bucket(final long n) {
+        return BUCKETS - Long.numberOfLeadingZeros(Math.max(0, n));
+    }
+
+    /**
+     * @return accessor to the internal counts of each bucket, followed by the
+     *         largest duration and the sum of all durations
+     */
+    AtomicLongArray counts();
+
+    /**
+     * Side-effect: counts the duration.
+     *
+     * @param n a duration in nanoseconds
+     */
+    default void record(final long n) {
+        counts().incrementAndGet(bucket(n));
+        counts().accumulateAndGet(MAX_POSITION, n, Math::max);
+        counts().addAndGet(SUM_POSITION, n);
+    }
+
+    /**
+     * @return the number of durations recorded
+     */
+    default long count() {
+        return IntStream.range(0, BUCKETS).mapToLong(counts()::get).sum();
+    }
+
+    /**
+     * @return the largest duration recorded
+     */
+    default long max() {
+        return counts().get(MAX_POSITION);
+    }
+
+    /**
+     * @return the mean of the durations recorded, or 0 if there are none
+     */
+    default long mean() {
+        return Optional.of(count()).filter(c -> c > 0).map(c -> counts().get(SUM_POSITION) / c).orElse(0L);
+    }
+
+    /**
+     * @param q a quantile between 0 and 1
+     * @return an upper bound on the duration at that quantile, or 0 if none are
+     *         recorded
+     */
+    default long percentile(final double q) {
+        Optional.of(q).filter(x -> x >= 0 && x <= 1).orElseThrow(ERR_QUANTILE.apply(q));
+        final long r = Math.max(1, (long) Math.ceil(q * count()));
+        long c = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            c += counts().get(i);
+            if (c >= r) {
+                return Math.min(max(), (1L << i) - 1);
+            }
+        }
+        return 0L;
+    }
+}
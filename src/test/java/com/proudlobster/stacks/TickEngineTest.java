@@ -0,0 +1,165 @@
+package com.proudlobster.stacks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.proudlobster.stacks.structure.Configuration;
+
+@Tag("Unit")
+public class TickEngineTest implements TestContstants {
+
+    private static final String PROCESSOR_1 = "foo-processor";
+    private static final int RATE = 100;
+    private static final long PERIOD = TimeUnit.SECONDS.toNanos(1) / RATE;
+
+    private Stacks stacks;
+    private AtomicLong clock;
+
+    @BeforeEach
+    public void initialize() {
+        stacks = Stacks.create();
+        clock = new AtomicLong();
+        stacks.$().createEntity(ID_1).assignComponent(ID_1, NUMBER_COMPONENT_1, 0L).commit();
+        stacks.$(PROCESSOR_1, NUMBER_COMPONENT_1, e -> e.alterValue(NUMBER_COMPONENT_1, 1L));
+    }
+
+    private TickEngine engine(final TickEngine.Policy p) {
+        return TickEngine.of(stacks, clock::get, RATE, p, 5, 0);
+    }
+
+    private long counter() {
+        return stacks.$(ID_1).findAny().flatMap(e -> e.longValue(NUMBER_COMPONENT_1)).get();
+    }
+
+    @Test
+    @DisplayName("Engine is configured by the instance")
+    public void of_configured() {
+        final TickEngine t = stacks.tickEngine();
+        assertEquals(TimeUnit.SECONDS.toNanos(1) / 60, t.period());
+        assertEquals(t.period(), t.budget());
+        assertEquals(t.period(), t.budget(PROCESSOR_1));
+    }
+
+    @Test
+    @DisplayName("Update runs no tick before a period has elapsed")
+    public void update_early() {
+        final TickEngine t = engine(TickEngine.Policy.CATCH_UP);
+        clock.addAndGet(PERIOD - 1);
+        assertEquals(0, t.update());
+        clock.addAndGet(1);
+        assertEquals(1, t.update());
+        assertEquals(1, counter());
+    }
+
+    @Test
+    @DisplayName("Catching up runs every missed tick up to the limit")
+    public void update_catchUp() {
+        final TickEngine t = engine(TickEngine.Policy.CATCH_UP);
+        clock.addAndGet(PERIOD * 3);
+        assertEquals(3, t.update());
+        clock.addAndGet(PERIOD * 8);
+        assertEquals(5, t.update());
+        assertEquals(8, t.ticks());
+        assertEquals(3, t.skipped());
+        assertEquals(8, counter());
+    }
+
+    @Test
+    @DisplayName("Skipping runs one tick however many were missed")
+    public void update_skip() {
+        final TickEngine t = engine(TickEngine.Policy.SKIP);
+        clock.addAndGet(PERIOD * 3 + PERIOD / 2);
+        assertEquals(1, t.update());
+        assertEquals(2, t.skipped());
+        clock.addAndGet(PERIOD / 2);
+        assertEquals(1, t.update());
+        assertEquals(2, counter());
+    }
+
+    @Test
+    @DisplayName("Ticks record latency for the tick and each processor")
+    public void tick_latency() {
+        final TickEngine t = engine(TickEngine.Policy.CATCH_UP);
+        t.tick();
+        t.tick();
+        assertEquals(2, t.tickLatency().count());
+        assertEquals(2, t.processorLatency(PROCESSOR_1).get().count());
+        assertFalse(t.processorLatency("unknown").isPresent());
+        assertTrue(t.overruns().isEmpty());
+    }
+
+    @Test
+    @DisplayName("A processor over its budget is recorded as an overrun")
+    public void tick_processorOverrun() {
+        stacks.librarian().registerEntry(Configuration.class, TickEngine.PROC_BUDGET_CONF_NAME.get(PROCESSOR_1),
+                Configuration.of(PROCESSOR_1, "0"));
+        final TickEngine t = engine(TickEngine.Policy.CATCH_UP);
+        assertEquals(0, t.budget(PROCESSOR_1));
+        t.tick();
+        assertEquals(1, t.overruns().size());
+        assertEquals(1, t.overruns().get(0).tick());
+        assertEquals(PROCESSOR_1, t.overruns().get(0).processor());
+    }
+
+    @Test
+    @DisplayName("A tick over its budget is recorded as an overrun")
+    public void tick_tickOverrun() {
+        final TickEngine t = TickEngine.of(stacks, () -> clock.getAndAdd(PERIOD * 2), RATE, TickEngine.Policy.SKIP,
+                1, 0);
+        t.tick();
+        assertEquals(PERIOD * 2, t.overruns().get(0).nanos());
+        assertEquals(PERIOD, t.overruns().get(0).budget());
+        assertEquals(PROCESSOR_1, t.overruns().get(0).processor());
+    }
+
+    @Test
+    @DisplayName("Run updates until the condition fails")
+    public void run_condition() {
+        final TickEngine t = TickEngine.of(stacks, System::nanoTime, 1000, TickEngine.Policy.CATCH_UP, 5, 0);
+        t.run(() -> t.ticks() < 3);
+        assertTrue(counter() >= 3);
+    }
+
+    @Test
+    @DisplayName("Tick rate and catch-up limit must be positive")
+    public void of_invalid() {
+        assertThrows(Fallible.StacksException.class,
+                () -> TickEngine.of(stacks, clock::get, 0, TickEngine.Policy.SKIP, 1, 0));
+        assertThrows(Fallible.StacksException.class,
+                () -> TickEngine.of(stacks, clock::get, RATE, TickEngine.Policy.SKIP, 0, 0));
+    }
+
+    @Test
+    @DisplayName("Processor budgets are resolved when the engine is built")
+    public void budget_resolvedOnBuild() {
+        final TickEngine t = engine(TickEngine.Policy.CATCH_UP);
+        stacks.librarian().registerEntry(Configuration.class, TickEngine.PROC_BUDGET_CONF_NAME.get(PROCESSOR_1),
+                Configuration.of(PROCESSOR_1, "0"));
+        assertEquals(PERIOD, t.budget(PROCESSOR_1));
+        assertEquals(0, engine(TickEngine.Policy.CATCH_UP).budget(PROCESSOR_1));
+    }
+
+    @Test
+    @DisplayName("Policy is configured in any case, and an unknown policy is refused")
+    public void of_policy() {
+        stacks.librarian().registerEntry(Configuration.class, TickEngine.CONF_TICK_POLICY,
+                Configuration.of(TickEngine.CONF_TICK_POLICY, "skip"));
+        final TickEngine t = TickEngine.of(stacks, clock::get);
+        clock.addAndGet(t.period() * 3);
+        assertEquals(1, t.update());
+        assertEquals(2, t.skipped());
+        stacks.librarian().registerEntry(Configuration.class, TickEngine.CONF_TICK_POLICY,
+                Configuration.of(TickEngine.CONF_TICK_POLICY, "SOMETIMES"));
+        assertThrows(Fallible.StacksException.class, () -> TickEngine.of(stacks, clock::get));
+    }
+}
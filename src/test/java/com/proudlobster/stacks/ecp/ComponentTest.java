@@ -2,6 +2,7 @@ package com.proudlobster.stacks.ecp;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -68,4 +69,36 @@ public class ComponentTest implements TestContstants {
     public void type_multirefValueTypeString() {
         assertEquals(String.class, MULTIREF_COMPONENT_1.type().valueType.get());
     }
+
+    @Test
+    @DisplayName("Components of the same name share an ID regardless of type")
+    public void id_sharedByName() {
+        assertEquals(STRING_COMPONENT_1.id(), NUMBER_COMPONENT_1.id());
+    }
+
+    @Test
+    @DisplayName("Component ID resolves back to its name")
+    public void id_resolvesName() {
+        assertEquals(COMPONENT_NAME_1, Component.Registry.name(STRING_COMPONENT_1.id()));
+    }
+
+    @Test
+    @DisplayName("Core component ID matches its registered name")
+    public void id_coreRegistered() {
+        assertEquals(Component.Registry.id(Component.Core.EXPIRED.name()), Component.Core.EXPIRED.id());
+    }
+
+    @Test
+    @DisplayName("Names given to multiple reference components are remembered as such")
+    public void id_multirefRegistered() {
+        assertTrue(Component.Registry.multiref(MULTIREF_COMPONENT_1.id()));
+        assertFalse(Component.Registry.multiref(Component.of("PLAIN_COMP", Component.DataType.STRING).id()));
+        assertFalse(Component.Registry.multiref(Component.NO_ID));
+    }
+
+    @Test
+    @DisplayName("Empty component has no ID")
+    public void id_emptyThrowsException() {
+        assertThrows(Fallible.StacksException.class, EMPTY_COMPONENT::id);
+    }
 }
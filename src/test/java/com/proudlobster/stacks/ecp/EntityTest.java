@@ -13,6 +13,7 @@ import org.junit.jupiter.api.Test;
 
 import com.proudlobster.stacks.Fallible;
 import com.proudlobster.stacks.TestContstants;
+import com.proudlobster.stacks.structure.LongSet;
 
 @Tag("Unit")
 public class EntityTest implements TestContstants {
@@ -79,4 +80,34 @@ public class EntityTest implements TestContstants {
         assertEquals(ID_2, vs.get(1));
         assertEquals(ID_3, vs.get(2));
     }
+
+    @Test
+    @DisplayName("Multi-reference values held as a set match in order")
+    public void referenceValues_setMatches() {
+        final Entity e = TestContstants.mockEntity(MULTIREF_COMPONENT_2, LongSet.ordered(ID_3, ID_1));
+        assertEquals(List.of(ID_3, ID_1), e.referenceValues(MULTIREF_COMPONENT_2).collect(Collectors.toList()));
+        assertEquals(ID_3 + "|" + ID_1, e.stringValue(MULTIREF_COMPONENT_2).get());
+    }
+
+    @Test
+    @DisplayName("Has reference finds references however they are held")
+    public void hasReference_found() {
+        final Entity e = TestContstants.mockEntity(MULTIREF_COMPONENT_2, LongSet.ordered(ID_1));
+        assertTrue(e.hasReference(MULTIREF_COMPONENT_2, ID_1));
+        assertFalse(e.hasReference(MULTIREF_COMPONENT_2, ID_2));
+        assertTrue(MULTI_ENTITY_2.hasReference(MULTIREF_COMPONENT_2, ID_2));
+        assertFalse(MULTI_ENTITY_2.hasReference(MULTIREF_COMPONENT_2, Entity.INVALID_ID));
+    }
+
+    @Test
+    @DisplayName("References cannot be changed through the entity")
+    public void references_unmodifiable() {
+        final LongSet s = LongSet.ordered(ID_1);
+        final Entity e = TestContstants.mockEntity(MULTIREF_COMPONENT_2, s);
+        final LongSet r = e.references(MULTIREF_COMPONENT_2).get();
+        assertThrows(Fallible.StacksException.class, () -> r.add(ID_2));
+        assertFalse(s.contains(ID_2));
+        s.add(ID_3);
+        assertTrue(r.contains(ID_3));
+    }
 }
@@ -1,6 +1,9 @@
 package com.proudlobster.stacks.ecp;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -31,4 +34,27 @@ public class ManagedEntityTest implements TestContstants {
         assertEquals(MANAGED_ENTITY_1.get().identifier(),
                 STACKS_REF.get().$(ID_1).findFirst().map(Entity::identifier).orElse(INVALID_ID));
     }
+
+    @Test
+    @DisplayName("Referrers are the entities referencing the managed entity")
+    public void referrers_found() {
+        STACKS_REF.get().$().createEntity(ID_2).createEntity(ID_3).addReference(ID_2, MULTIREF_COMPONENT_1, ID_1)
+                .assignComponent(ID_3, REF_COMPONENT_2, ID_1).commit();
+        assertEquals(List.of(ID_2), MANAGED_ENTITY_1.get().referrers(MULTIREF_COMPONENT_1).map(Entity::identifier)
+                .toList());
+        assertEquals(List.of(ID_3), MANAGED_ENTITY_1.get().referrers(REF_COMPONENT_2).map(Entity::identifier)
+                .toList());
+    }
+
+    @Test
+    @DisplayName("Expiring through reference components removes the references to the entity")
+    public void expire_removesReferences() {
+        STACKS_REF.get().$().createEntity(ID_2).createEntity(ID_3).addReference(ID_2, MULTIREF_COMPONENT_1, ID_1)
+                .addReference(ID_2, MULTIREF_COMPONENT_1, ID_3).assignComponent(ID_3, REF_COMPONENT_2, ID_1).commit();
+        MANAGED_ENTITY_1.get().expire(MULTIREF_COMPONENT_1, REF_COMPONENT_2).commit();
+        assertEquals(List.of(ID_3), STACKS_REF.get().$(ID_2).findAny().get().referenceValues(MULTIREF_COMPONENT_1)
+                .toList());
+        assertFalse(STACKS_REF.get().$(ID_3).findAny().get().is(REF_COMPONENT_2));
+        assertFalse(STACKS_REF.get().$(ID_1).findAny().isPresent());
+    }
 }
@@ -1,13 +1,19 @@
 package com.proudlobster.stacks.ecp;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Set;
+import java.util.stream.LongStream;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import com.proudlobster.stacks.Fallible;
 import com.proudlobster.stacks.Stacks;
 import com.proudlobster.stacks.TestContstants;
 
@@ -49,4 +55,64 @@ public class ManagedProcessorTest implements TestContstants {
         MANAGED_PARENT_PROCESSOR_1.get().process().commit();
         assertFalse(STACKS_REF.get().$(ID_2).findAny().isPresent());
     }
+
+    @Test
+    @DisplayName("Parallel processing causes the same change")
+    public void process_parallelMatchChange() {
+        final ManagedProcessor p = MANAGED_PROCESSOR_1.get().parallel(1);
+        assertEquals(1, p.chunk().get().size());
+        p.process().commit();
+        assertTrue(STACKS_REF.get().$(ID_2).findAny().isPresent());
+    }
+
+    @Test
+    @DisplayName("Parallel processing applies transactions in the same order as sequential processing")
+    public void process_parallelSameOrder() {
+        final Stacks s = STACKS_REF.get();
+        LongStream.rangeClosed(10, 30).map(i -> 40 - i)
+                .forEach(i -> s.$().createEntity(i).assignComponent(i, FLAG_COMPONENT_2).commit());
+        final ManagedProcessor p = ManagedProcessor
+                .of(FLAG_COMPONENT_2, e -> e.$().assignComponent(ID_1, NUMBER_COMPONENT_3, e.identifier()), s);
+        p.process().commit();
+        final long sequential = s.$(ID_1).findAny().flatMap(e -> e.longValue(NUMBER_COMPONENT_3)).get();
+        s.$().assignComponent(ID_1, NUMBER_COMPONENT_3, 0L).commit();
+        p.parallel(4).process().commit();
+        assertEquals(sequential, s.$(ID_1).findAny().flatMap(e -> e.longValue(NUMBER_COMPONENT_3)).get());
+        assertEquals(30L, sequential);
+    }
+
+    @Test
+    @DisplayName("Parallel processing requires a positive chunk size")
+    public void parallel_invalidChunk() {
+        assertThrows(Fallible.StacksException.class, () -> MANAGED_PROCESSOR_1.get().parallel(0));
+    }
+
+    @Test
+    @DisplayName("A processor declares no access until asked")
+    public void access_undeclared() {
+        assertFalse(MANAGED_PROCESSOR_1.get().access().isPresent());
+    }
+
+    @Test
+    @DisplayName("Declared access includes the handled component and survives parallelising")
+    public void access_declared() {
+        final ManagedProcessor p = MANAGED_PROCESSOR_1.get().reads(FLAG_COMPONENT_2).writes(FLAG_COMPONENT_3)
+                .parallel(2).writes(FLAG_COMPONENT_4);
+        assertEquals(Set.of(COMPONENT_NAME_1, COMPONENT_NAME_2), p.access().get().reads());
+        assertEquals(Set.of(COMPONENT_NAME_3, COMPONENT_NAME_4), p.access().get().writes());
+        assertEquals(2, p.chunk().get().size());
+        p.process().commit();
+        assertTrue(STACKS_REF.get().$(ID_2).findAny().isPresent());
+    }
+
+    @Test
+    @DisplayName("Access conflicts when either side writes what the other touches")
+    public void access_conflicts() {
+        final ManagedProcessor.Access r = ManagedProcessor.Access.of(Set.of(COMPONENT_NAME_1), Set.of());
+        final ManagedProcessor.Access w = ManagedProcessor.Access.of(Set.of(), Set.of(COMPONENT_NAME_1));
+        assertFalse(r.conflicts(r));
+        assertTrue(r.conflicts(w));
+        assertTrue(w.conflicts(r));
+        assertTrue(w.conflicts(w));
+    }
 }
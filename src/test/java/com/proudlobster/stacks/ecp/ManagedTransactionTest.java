@@ -2,14 +2,18 @@ package com.proudlobster.stacks.ecp;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import com.proudlobster.stacks.Fallible;
 import com.proudlobster.stacks.Stacks;
 import com.proudlobster.stacks.TestContstants;
 
@@ -90,4 +94,28 @@ public class ManagedTransactionTest implements TestContstants {
         assertFalse(STACKS_REF.get().$(ID_1).filter(e -> e.is(FLAG_COMPONENT_4)).findAny().isPresent());
     }
 
+    @Test
+    @DisplayName("Committing a transaction which collides with a later commit is rejected")
+    public void commit_collisionRejected() {
+        final ManagedTransaction t = STACKS_REF.get().$().assignComponent(ID_1, STRING_COMPONENT_1, STRING_VALUE_1);
+        STACKS_REF.get().$().assignComponent(ID_1, STRING_COMPONENT_1, STRING_VALUE_2).commit();
+        assertThrows(Fallible.StacksException.class, t::commit);
+        assertEquals(STRING_VALUE_2, STACKS_REF.get().$(ID_1).findAny().get().stringValue(STRING_COMPONENT_1).get());
+    }
+
+    @Test
+    @DisplayName("Committing with retries builds the transaction again after a collision")
+    public void commit_collisionRetried() {
+        final AtomicInteger n = new AtomicInteger();
+        STACKS_REF.get().commitTransaction(() -> {
+            final ManagedTransaction t = STACKS_REF.get().$().assignComponent(ID_1, STRING_COMPONENT_1,
+                    STRING_VALUE_1);
+            if (n.getAndIncrement() == 0) {
+                STACKS_REF.get().$().assignComponent(ID_1, STRING_COMPONENT_1, STRING_VALUE_2).commit();
+            }
+            return t;
+        }, 1);
+        assertEquals(2, n.get());
+        assertEquals(STRING_VALUE_1, STACKS_REF.get().$(ID_1).findAny().get().stringValue(STRING_COMPONENT_1).get());
+    }
 }
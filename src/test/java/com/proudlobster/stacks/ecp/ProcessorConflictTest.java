@@ -0,0 +1,68 @@
+package com.proudlobster.stacks.ecp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.proudlobster.stacks.TestContstants;
+
+@Tag("Unit")
+public class ProcessorConflictTest implements TestContstants {
+
+    private static final String PROCESSOR_1 = "foo-processor";
+    private static final String PROCESSOR_2 = "bar-processor";
+
+    @BeforeEach
+    public void clearMemory() {
+        MAP_WRITER_RECORDS.clear();
+    }
+
+    @Test
+    @DisplayName("Conflict exposes its elements")
+    public void of_elements() {
+        final ProcessorConflict c = ProcessorConflict.of(ID_1, COMPONENT_NAME_1, PROCESSOR_1, PROCESSOR_2);
+        assertEquals(ID_1, c.identifier());
+        assertEquals(COMPONENT_NAME_1, c.component());
+        assertEquals(PROCESSOR_1, c.first());
+        assertEquals(PROCESSOR_2, c.second());
+    }
+
+    @Test
+    @DisplayName("Tracked writes pass through to the writer")
+    public void track_writes() {
+        ProcessorConflict.Detector.create().track(PROCESSOR_1, MAP_WRITER).writeAssignComponent(ID_1,
+                COMPONENT_NAME_1, STRING_VALUE_1);
+        assertEquals(STRING_VALUE_1, MAP_WRITER_RECORDS.get(ID_1).get(COMPONENT_NAME_1));
+    }
+
+    @Test
+    @DisplayName("Processors writing different components do not conflict")
+    public void conflicts_none() {
+        final ProcessorConflict.Detector d = ProcessorConflict.Detector.create();
+        d.track(PROCESSOR_1, MAP_WRITER).writeAssignComponent(ID_1, COMPONENT_NAME_1);
+        d.track(PROCESSOR_1, MAP_WRITER).writeAssignComponent(ID_1, COMPONENT_NAME_1);
+        d.track(PROCESSOR_2, MAP_WRITER).writeAssignComponent(ID_1, COMPONENT_NAME_2);
+        d.track(PROCESSOR_2, MAP_WRITER).writeAssignComponent(ID_2, COMPONENT_NAME_1);
+        assertTrue(d.conflicts().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Processors writing the same component of an entity conflict")
+    public void conflicts_found() {
+        final ProcessorConflict.Detector d = ProcessorConflict.Detector.create();
+        d.track(PROCESSOR_1, MAP_WRITER).writeAssignComponent(ID_1, COMPONENT_NAME_1);
+        d.track(PROCESSOR_2, MAP_WRITER).writeAssignComponent(ID_1, COMPONENT_NAME_1);
+        final List<ProcessorConflict> cs = d.conflicts();
+        assertEquals(1, cs.size());
+        assertEquals(ID_1, cs.get(0).identifier());
+        assertEquals(COMPONENT_NAME_1, cs.get(0).component());
+        assertEquals(PROCESSOR_1, cs.get(0).first());
+        assertEquals(PROCESSOR_2, cs.get(0).second());
+    }
+}
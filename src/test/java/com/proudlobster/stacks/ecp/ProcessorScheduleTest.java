@@ -0,0 +1,80 @@
+package com.proudlobster.stacks.ecp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.proudlobster.stacks.TestContstants;
+import com.proudlobster.stacks.ecp.ManagedProcessor.Access;
+
+@Tag("Unit")
+public class ProcessorScheduleTest implements TestContstants {
+
+    private static final String PROCESSOR_1 = "foo-processor";
+    private static final String PROCESSOR_2 = "bar-processor";
+    private static final String PROCESSOR_3 = "baz-processor";
+
+    private static ProcessorSchedule schedule(final Map<String, Access> m, final String... ns) {
+        return ProcessorSchedule.of(List.of(ns), n -> Optional.ofNullable(m.get(n)));
+    }
+
+    @Test
+    @DisplayName("Processors with disjoint access share a stage")
+    public void of_disjoint() {
+        final ProcessorSchedule s = schedule(Map.of(
+                PROCESSOR_1, Access.of(Set.of(COMPONENT_NAME_1), Set.of(COMPONENT_NAME_1)),
+                PROCESSOR_2, Access.of(Set.of(COMPONENT_NAME_2), Set.of(COMPONENT_NAME_3))),
+                PROCESSOR_1, PROCESSOR_2);
+        assertEquals(List.of(List.of(PROCESSOR_1, PROCESSOR_2)), s.stages());
+    }
+
+    @Test
+    @DisplayName("Processors which only read the same component share a stage")
+    public void of_sharedReads() {
+        final ProcessorSchedule s = schedule(Map.of(
+                PROCESSOR_1, Access.of(Set.of(COMPONENT_NAME_1), Set.of()),
+                PROCESSOR_2, Access.of(Set.of(COMPONENT_NAME_1), Set.of())),
+                PROCESSOR_1, PROCESSOR_2);
+        assertEquals(1, s.stages().size());
+    }
+
+    @Test
+    @DisplayName("A processor reading what an earlier one writes runs in a later stage")
+    public void of_dependent() {
+        final ProcessorSchedule s = schedule(Map.of(
+                PROCESSOR_1, Access.of(Set.of(COMPONENT_NAME_1), Set.of(COMPONENT_NAME_2)),
+                PROCESSOR_2, Access.of(Set.of(COMPONENT_NAME_2), Set.of()),
+                PROCESSOR_3, Access.of(Set.of(COMPONENT_NAME_3), Set.of(COMPONENT_NAME_4))),
+                PROCESSOR_1, PROCESSOR_2, PROCESSOR_3);
+        assertEquals(List.of(List.of(PROCESSOR_1, PROCESSOR_3), List.of(PROCESSOR_2)), s.stages());
+        assertEquals(1, s.stageOf(PROCESSOR_2).get());
+        assertFalse(s.stageOf("unknown").isPresent());
+    }
+
+    @Test
+    @DisplayName("A processor without declared access runs alone")
+    public void of_undeclared() {
+        final ProcessorSchedule s = schedule(Map.of(
+                PROCESSOR_1, Access.of(Set.of(COMPONENT_NAME_1), Set.of()),
+                PROCESSOR_3, Access.of(Set.of(COMPONENT_NAME_3), Set.of())),
+                PROCESSOR_1, PROCESSOR_2, PROCESSOR_3);
+        assertEquals(List.of(List.of(PROCESSOR_1), List.of(PROCESSOR_2), List.of(PROCESSOR_3)), s.stages());
+    }
+
+    @Test
+    @DisplayName("Plan lists each stage on a numbered line")
+    public void plan_lines() {
+        final ProcessorSchedule s = schedule(Map.of(), PROCESSOR_1, PROCESSOR_2);
+        assertEquals("1: " + PROCESSOR_1 + System.lineSeparator() + "2: " + PROCESSOR_2, s.plan());
+        assertTrue(schedule(Map.of()).plan().isEmpty());
+    }
+}
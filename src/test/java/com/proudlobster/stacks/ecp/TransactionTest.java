@@ -5,8 +5,13 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -16,6 +21,8 @@ import org.junit.jupiter.api.Test;
 import com.proudlobster.stacks.Fallible;
 import com.proudlobster.stacks.TestContstants;
 import com.proudlobster.stacks.ecp.Transaction.Lock;
+import com.proudlobster.stacks.storage.EntityStorageDescriptor;
+import com.proudlobster.stacks.storage.EntityWriter;
 
 @Tag("Unit")
 public class TransactionTest implements TestContstants {
@@ -163,4 +170,229 @@ public class TransactionTest implements TestContstants {
         Transaction.start().removeComponent(ID_1, FLAG_COMPONENT_4).commit(MAP_WRITER);
         assertFalse(MAP_WRITER_RECORDS.get(ID_1).containsKey(COMPONENT_NAME_4));
     }
+
+    @Test
+    @DisplayName("Add and remove reference write single reference changes")
+    public void reference_correctRecords() {
+        final List<EntityWriter.Record> rs = new ArrayList<>();
+        Transaction.start().addReference(ID_1, MULTIREF_COMPONENT_1, ID_2)
+                .removeReference(ID_1, MULTIREF_COMPONENT_1, ID_3).commit(rs::add);
+        assertEquals(2, rs.size());
+        assertEquals(EntityStorageDescriptor.Reference.REMOVE, rs.get(0).reference().get());
+        assertEquals(ID_3, rs.get(0).longValue().get());
+        assertEquals(EntityStorageDescriptor.Reference.ADD, rs.get(1).reference().get());
+        assertEquals(ID_2, rs.get(1).longValue().get());
+        assertEquals(COMPONENT_NAME_1, rs.get(1).requiredComponent());
+    }
+
+    @Test
+    @DisplayName("Reference changes to other components are rejected")
+    public void reference_notMultirefThrows() {
+        assertThrows(Fallible.StacksException.class,
+                () -> Transaction.start().addReference(ID_1, NUMBER_COMPONENT_1, ID_2));
+        assertThrows(Fallible.StacksException.class,
+                () -> Transaction.start().removeReference(ID_1, STRING_COMPONENT_1, ID_2));
+    }
+
+    @Test
+    @DisplayName("Reference changes are replaced by a later assignment")
+    public void reference_overwritten() {
+        final List<EntityWriter.Record> rs = new ArrayList<>();
+        Transaction.start().assignComponent(ID_1, MULTIREF_COMPONENT_1, MULTIREF_STRING_2)
+                .addReference(ID_1, MULTIREF_COMPONENT_1, ID_2).commit(rs::add);
+        assertEquals(1, rs.size());
+        assertEquals(MULTIREF_STRING_2, rs.get(0).stringValue().get());
+    }
+
+    @Test
+    @DisplayName("Reference changes never collide")
+    public void versions_referenceNoCollision() {
+        final Transaction.Versions v = Transaction.Versions.create();
+        final Transaction t = Transaction.start(v).addReference(ID_1, MULTIREF_COMPONENT_1, ID_2);
+        assertTrue(v.commit(Transaction.start(v).addReference(ID_1, MULTIREF_COMPONENT_1, ID_3), r -> {
+        }));
+        assertTrue(v.commit(t, r -> {
+        }));
+    }
+
+    @Test
+    @DisplayName("Long chains commit from a flat buffer")
+    public void buffer_longChain() {
+        Transaction t = Transaction.start();
+        for (long i = 0; i < 100000; i++) {
+            t = t.assignComponent(ID_1, NUMBER_COMPONENT_1, i);
+        }
+        assertEquals(100001, t.commands().get().size());
+        t.commit(MAP_WRITER);
+        assertEquals(0L, MAP_WRITER_RECORDS.get(ID_1).get(COMPONENT_NAME_1));
+    }
+
+    @Test
+    @DisplayName("Composing buffered transactions splices their commands")
+    public void buffer_splice() {
+        final Transaction t = Transaction.start().assignComponent(ID_1, FLAG_COMPONENT_1)
+                .compose(Transaction.start().assignComponent(ID_1, STRING_COMPONENT_2, STRING_VALUE_1))
+                .andThen(LIST_ADD_TRANSACTION_1);
+        final Transaction.Buffer b = t.commands().get();
+        assertEquals(5, b.size());
+        assertEquals(Transaction.Buffer.STRING, b.opcode(0));
+        assertEquals(Transaction.Buffer.UNLOCK, b.opcode(1));
+        assertEquals(Transaction.Buffer.FLAG, b.opcode(2));
+        assertEquals(Transaction.Buffer.UNLOCK, b.opcode(3));
+        assertEquals(Transaction.Buffer.NESTED, b.opcode(4));
+        t.commit(MAP_WRITER);
+        assertEquals(STRING_VALUE_1, MAP_WRITER_RECORDS.get(ID_1).get(COMPONENT_NAME_2));
+        assertTrue(MAP_WRITER_RECORDS.get(ID_1).containsKey(COMPONENT_NAME_1));
+        assertEquals(STRING_VALUE_1, T_LIST.get(0));
+    }
+
+    @Test
+    @DisplayName("Extending a transaction twice leaves each extension independent")
+    public void buffer_fork() {
+        final Transaction t = Transaction.start().assignComponent(ID_1, FLAG_COMPONENT_1);
+        final Transaction a = t.assignComponent(ID_1, FLAG_COMPONENT_2);
+        final Transaction b = t.assignComponent(ID_1, FLAG_COMPONENT_3);
+        assertEquals(2, t.commands().get().size());
+        b.commit(MAP_WRITER);
+        assertFalse(MAP_WRITER_RECORDS.get(ID_1).containsKey(COMPONENT_NAME_2));
+        assertTrue(MAP_WRITER_RECORDS.get(ID_1).containsKey(COMPONENT_NAME_3));
+        MAP_WRITER_RECORDS.get(ID_1).clear();
+        a.commit(MAP_WRITER);
+        assertTrue(MAP_WRITER_RECORDS.get(ID_1).containsKey(COMPONENT_NAME_2));
+        assertFalse(MAP_WRITER_RECORDS.get(ID_1).containsKey(COMPONENT_NAME_3));
+    }
+
+    @Test
+    @DisplayName("Supplied values are read when committed")
+    public void buffer_supplied() {
+        final List<Long> l = new ArrayList<>(List.of(LONG_VALUE_1));
+        final Transaction t = Transaction.start().assignComponentLong(ID_1, NUMBER_COMPONENT_1, () -> l.get(0));
+        l.set(0, LONG_VALUE_2);
+        t.commit(MAP_WRITER);
+        assertEquals(LONG_VALUE_2, MAP_WRITER_RECORDS.get(ID_1).get(COMPONENT_NAME_1));
+    }
+
+    @Test
+    @DisplayName("Only the final write to an entity component reaches the writer")
+    public void commit_coalesced() {
+        final List<EntityWriter.Record> rs = new ArrayList<>();
+        Transaction.start().assignComponent(ID_1, STRING_COMPONENT_1, STRING_VALUE_1)
+                .assignComponent(ID_1, STRING_COMPONENT_1, STRING_VALUE_2).removeComponent(ID_1, FLAG_COMPONENT_2)
+                .assignComponent(ID_1, FLAG_COMPONENT_2).commit(rs::add);
+        assertEquals(2, rs.size());
+        assertFalse(rs.get(0).active());
+        assertEquals(STRING_VALUE_1, rs.get(1).stringValue().get());
+    }
+
+    @Test
+    @DisplayName("Writes which a supplied value may read are not coalesced")
+    public void commit_coalescedBarrier() {
+        final List<EntityWriter.Record> rs = new ArrayList<>();
+        Transaction.start().assignComponent(ID_1, NUMBER_COMPONENT_1, LONG_VALUE_1)
+                .assignComponentLong(ID_2, NUMBER_COMPONENT_2, () -> LONG_VALUE_2)
+                .assignComponent(ID_1, NUMBER_COMPONENT_1, LONG_VALUE_2).commit(rs::add);
+        assertEquals(3, rs.size());
+    }
+
+    // Versions tests
+
+    @Test
+    @DisplayName("Committing stamps the entity components written")
+    public void versions_stamped() {
+        final Transaction.Versions v = Transaction.Versions.create();
+        assertTrue(v.commit(Transaction.start(v).assignComponent(ID_1, FLAG_COMPONENT_1), MAP_WRITER));
+        assertEquals(v.stamp(), v.version(ID_1, FLAG_COMPONENT_1.id()));
+        assertEquals(Transaction.Versions.UNSTAMPED, v.version(ID_2, FLAG_COMPONENT_1.id()));
+    }
+
+    @Test
+    @DisplayName("Transactions start without waiting for a commit being written")
+    public void versions_startUnblocked() {
+        final Transaction.Versions v = Transaction.Versions.create();
+        final long s = v.exclusively(() -> {
+            v.apply(Transaction.start(v).assignComponent(ID_1, FLAG_COMPONENT_1), MAP_WRITER);
+            return CompletableFuture.supplyAsync(v::stamp).orTimeout(5, TimeUnit.SECONDS).join();
+        });
+        assertEquals(Transaction.Versions.UNSTAMPED, s);
+        assertEquals(v.version(ID_1, FLAG_COMPONENT_1.id()), v.stamp());
+    }
+
+    @Test
+    @DisplayName("Expiring an entity stamps every one of its components with the expiry")
+    public void versions_expiryStamps() {
+        final Transaction.Versions v = Transaction.Versions.create();
+        assertTrue(v.commit(Transaction.start(v).assignComponent(ID_1, FLAG_COMPONENT_1), MAP_WRITER));
+        assertTrue(v.commit(Transaction.start(v).assignComponent(ID_1, Component.Core.EXPIRED), MAP_WRITER));
+        assertEquals(v.stamp(), v.version(ID_1, FLAG_COMPONENT_1.id()));
+        assertEquals(v.stamp(), v.version(ID_1, STRING_COMPONENT_1.id()));
+        assertEquals(Transaction.Versions.UNSTAMPED, v.version(ID_2, FLAG_COMPONENT_1.id()));
+    }
+
+    @Test
+    @DisplayName("Transaction started before an entity expired collides when it writes the entity")
+    public void versions_staleWriterAfterExpiry() {
+        final Transaction.Versions v = Transaction.Versions.create();
+        assertTrue(v.commit(Transaction.start(v).assignComponent(ID_1, FLAG_COMPONENT_1), MAP_WRITER));
+        final Transaction t = Transaction.start(v).assignComponent(ID_1, STRING_COMPONENT_1, STRING_VALUE_1);
+        assertTrue(v.commit(Transaction.start(v).assignComponent(ID_1, Component.Core.EXPIRED), MAP_WRITER));
+        assertFalse(v.commit(t, MAP_WRITER));
+        assertTrue(v.commit(Transaction.start(v).assignComponent(ID_1, STRING_COMPONENT_1, STRING_VALUE_2),
+                MAP_WRITER));
+    }
+
+    @Test
+    @DisplayName("Transaction writing a component stamped since it started collides")
+    public void versions_collides() {
+        final Transaction.Versions v = Transaction.Versions.create();
+        final Transaction t = Transaction.start(v).assignComponent(ID_1, STRING_COMPONENT_1, STRING_VALUE_1);
+        assertTrue(v.commit(Transaction.start(v).assignComponent(ID_1, STRING_COMPONENT_1, STRING_VALUE_2),
+                MAP_WRITER));
+        assertFalse(v.commit(t, MAP_WRITER));
+        assertEquals(STRING_VALUE_2, MAP_WRITER_RECORDS.get(ID_1).get(COMPONENT_NAME_1));
+    }
+
+    @Test
+    @DisplayName("Transactions writing different components of an entity do not collide")
+    public void versions_disjoint() {
+        final Transaction.Versions v = Transaction.Versions.create();
+        final Transaction t = Transaction.start(v).assignComponent(ID_1, FLAG_COMPONENT_2);
+        assertTrue(v.commit(Transaction.start(v).assignComponent(ID_1, FLAG_COMPONENT_1), MAP_WRITER));
+        assertTrue(v.commit(t, MAP_WRITER));
+    }
+
+    @Test
+    @DisplayName("Supplied values never collide")
+    public void versions_suppliedNoCollision() {
+        final Transaction.Versions v = Transaction.Versions.create();
+        final Transaction t = Transaction.start(v).assignComponentLong(ID_1, NUMBER_COMPONENT_1, () -> LONG_VALUE_2);
+        assertTrue(v.commit(Transaction.start(v).assignComponent(ID_1, NUMBER_COMPONENT_1, LONG_VALUE_1), MAP_WRITER));
+        assertTrue(v.commit(t, MAP_WRITER));
+        assertEquals(LONG_VALUE_2, MAP_WRITER_RECORDS.get(ID_1).get(COMPONENT_NAME_1));
+    }
+
+    @Test
+    @DisplayName("Applying a transaction stamps it without checking for collisions")
+    public void versions_applyUnchecked() {
+        final Transaction.Versions v = Transaction.Versions.create();
+        final Transaction t = Transaction.start(v).assignComponent(ID_1, FLAG_COMPONENT_1);
+        v.apply(Transaction.start(v).assignComponent(ID_1, FLAG_COMPONENT_1), MAP_WRITER);
+        v.apply(t, MAP_WRITER);
+        assertEquals(2L, v.stamp());
+    }
+
+    @Test
+    @DisplayName("Transactions on different entities build and commit from many threads")
+    public void versions_concurrent() {
+        final Transaction.Versions v = Transaction.Versions.create();
+        final List<EntityWriter.Record> rs = new ArrayList<>();
+        final EntityWriter w = r -> {
+            synchronized (rs) {
+                rs.add(r);
+            }
+        };
+        assertTrue(IntStream.range(0, 1000).parallel()
+                .allMatch(i -> v.commit(Transaction.start(v).assignComponent((long) i, FLAG_COMPONENT_1), w)));
+        assertEquals(1000, rs.size());
+        assertEquals(1000L, v.stamp());
+    }
 }
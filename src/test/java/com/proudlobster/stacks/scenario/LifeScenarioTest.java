@@ -1,9 +1,12 @@
 package com.proudlobster.stacks.scenario;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Comparator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -13,12 +16,18 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import com.proudlobster.stacks.Managed;
 import com.proudlobster.stacks.Stacks;
+import com.proudlobster.stacks.ecp.Component;
 import com.proudlobster.stacks.ecp.ManagedEntity;
+import com.proudlobster.stacks.ecp.ManagedProcessor;
 import com.proudlobster.stacks.ecp.ManagedTransaction;
+import com.proudlobster.stacks.ecp.ProcessorConflict;
 import com.proudlobster.stacks.ecp.ManagedProcessor.ManagedProcessorFunction;
 import com.proudlobster.stacks.scenario.life.GameComponent;
 import com.proudlobster.stacks.scenario.life.RoomBuilder;
+import com.proudlobster.stacks.structure.Configuration;
+import com.proudlobster.stacks.structure.Dictionary;
 
 public class LifeScenarioTest {
 
@@ -219,6 +228,80 @@ public class LifeScenarioTest {
         assertEquals(68, $.$(GameComponent.FOOD).count());
     }
 
+    @Test
+    @DisplayName("Ten creatures live, move, eat, and die with processors running in parallel")
+    public void tenCreaturesLiveMoveEatDieInParallel() {
+        $ = Stacks.create(Dictionary.of(Map.of(Managed.PROC_PARALLEL_CONF,
+                Configuration.of(Managed.PROC_PARALLEL_CONF, "true"))));
+        assertTrue($.parallelProcessors());
+        RoomBuilder.of($).buildRoomGrid(4, 4, 100).commit();
+
+        for (int i = 0; i < 10; i++) {
+            $.$().createEntitiesFromTemplate("test-creature", 50).commit();
+        }
+
+        $.$(GameComponent.CREATURE).forEach(e -> {
+            ManagedEntity firstRoom = $.$(GameComponent.ROOM).min(IDENTITY_COMPARATOR).get();
+            firstRoom.addReference(GameComponent.ROOM, e.identifier()).commit();
+            e.assignComponent(GameComponent.LOCATION, firstRoom.identifier()).commit();
+        });
+
+        $.$("room-processor", GameComponent.ROOM, ROOM_PROCESSOR);
+        $.$("energy-processor", GameComponent.ENERGY, ENERGY_PROCESSOR);
+        $.$("movement-processor", GameComponent.LOCATION, MOVEMENT_PROCESSOR);
+        $.$("message-receiver", GameComponent.MESSAGE, MESSAGE_RECEIVER);
+        final List<ProcessorConflict> cs = $.runProcessorsForConflicts();
+        assertTrue(cs.stream().anyMatch(c -> c.component().equals(GameComponent.ENERGY.name())
+                && c.first().equals("energy-processor") && c.second().equals("room-processor")));
+        Supplier<Boolean> stillAlive = () -> $.$(GameComponent.ALIVE).count() > 0;
+        while (stillAlive.get()) {
+            $.runProcessors();
+        }
+
+        assertEquals(68, $.$(GameComponent.FOOD).count());
+    }
+
+    @Test
+    @DisplayName("Ten creatures live, move, eat, and die with processors running in stages")
+    public void tenCreaturesLiveMoveEatDieInStages() {
+        $ = Stacks.create(Dictionary.of(Map.of(Managed.PROC_STAGED_CONF,
+                Configuration.of(Managed.PROC_STAGED_CONF, "true"))));
+        assertTrue($.stagedProcessors());
+        RoomBuilder.of($).buildRoomGrid(4, 4, 100).commit();
+
+        for (int i = 0; i < 10; i++) {
+            $.$().createEntitiesFromTemplate("test-creature", 50).commit();
+        }
+
+        $.$(GameComponent.CREATURE).forEach(e -> {
+            ManagedEntity firstRoom = $.$(GameComponent.ROOM).min(IDENTITY_COMPARATOR).get();
+            firstRoom.addReference(GameComponent.ROOM, e.identifier()).commit();
+            e.assignComponent(GameComponent.LOCATION, firstRoom.identifier()).commit();
+        });
+
+        $.$("room-processor", ManagedProcessor.of(GameComponent.ROOM, ROOM_PROCESSOR, $)
+                .reads(GameComponent.CREATURE, GameComponent.FOOD)
+                .writes(GameComponent.ENERGY, GameComponent.MESSAGE, Component.Core.EXPIRED));
+        $.$("energy-processor", ManagedProcessor.of(GameComponent.ENERGY, ENERGY_PROCESSOR, $)
+                .reads(GameComponent.ALIVE).writes(GameComponent.ALIVE, GameComponent.ENERGY, GameComponent.MESSAGE));
+        $.$("movement-processor", ManagedProcessor.of(GameComponent.LOCATION, MOVEMENT_PROCESSOR, $)
+                .reads(GameComponent.ALIVE, GameComponent.ROOM, GameComponent.FOOD, GameComponent.EXIT,
+                        GameComponent.DESTINATION, GameComponent.PREVIOUS_LOCATIONS)
+                .writes(GameComponent.ROOM, GameComponent.LOCATION, GameComponent.PREVIOUS_LOCATIONS,
+                        GameComponent.ENERGY));
+        $.$("message-receiver", ManagedProcessor.of(GameComponent.MESSAGE, MESSAGE_RECEIVER, $)
+                .writes(Component.Core.EXPIRED));
+        assertEquals(List.of(List.of("room-processor"), List.of("energy-processor"),
+                List.of("movement-processor", "message-receiver")), $.processorSchedule().stages());
+
+        Supplier<Boolean> stillAlive = () -> $.$(GameComponent.ALIVE).count() > 0;
+        while (stillAlive.get()) {
+            assertTrue($.runProcessorsForConflicts().isEmpty());
+        }
+
+        assertEquals(68, $.$(GameComponent.FOOD).count());
+    }
+
     @Test
     @DisplayName("Message expires")
     public void messageExpires() {
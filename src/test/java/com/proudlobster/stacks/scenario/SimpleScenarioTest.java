@@ -1,7 +1,10 @@
 package com.proudlobster.stacks.scenario;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Map;
 import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -9,16 +12,30 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import com.proudlobster.stacks.Fallible;
+import com.proudlobster.stacks.Managed;
 import com.proudlobster.stacks.Stacks;
 import com.proudlobster.stacks.ecp.Component;
 import com.proudlobster.stacks.ecp.ManagedTransaction;
 import com.proudlobster.stacks.ecp.ManagedProcessor.ManagedProcessorFunction;
+import com.proudlobster.stacks.structure.Configuration;
+import com.proudlobster.stacks.storage.InMemoryStorage;
+import com.proudlobster.stacks.structure.Dictionary;
 
 @Tag("Scenario")
 public class SimpleScenarioTest {
 
     private static final Component HAT = Component.flagOf("HAT");
     private static final ManagedProcessorFunction HAT_ASSIGNER = e -> e.assignComponent(HAT);
+    private static final Component LEFT = Component.of("LEFT", Component.DataType.NUMBER);
+    private static final Component RIGHT = Component.of("RIGHT", Component.DataType.NUMBER);
+    private static final ManagedProcessorFunction LEFT_COPIER = e -> e.$().assignComponentLong(e.identifier(), LEFT,
+            () -> e.longValue(RIGHT).orElseThrow());
+    private static final ManagedProcessorFunction RIGHT_COPIER = e -> e.$().assignComponentLong(e.identifier(), RIGHT,
+            () -> e.longValue(LEFT).orElseThrow());
+
+    private static final ManagedProcessorFunction LEFT_TWICE = e -> e.alterValue(LEFT, 1L)
+            .compose(e.alterValue(LEFT, 1L));
 
     private Stacks $;
 
@@ -88,4 +105,74 @@ public class SimpleScenarioTest {
         assertEquals(2, $.$(Component.flagOf("WORLD"))
                 .flatMap(e -> e.referenceValues(Component.of("CONTAINER", Component.DataType.MULTIREF))).count());
     }
+
+    @Test
+    @DisplayName("Swap two values with buffered processors")
+    public void swapBuffered() {
+        $ = Stacks.create(Dictionary.of(Map.of(Managed.PROC_BUFFERED_CONF,
+                Configuration.of(Managed.PROC_BUFFERED_CONF, "true"))));
+        assertTrue($.bufferedProcessors());
+        $.$().createEntity().commit();
+        $.$(Component.Core.IDENTITY).findAny().ifPresent(e -> e.assignComponent(LEFT, 1L).commit());
+        $.$(Component.Core.IDENTITY).findAny().ifPresent(e -> e.assignComponent(RIGHT, 10L).commit());
+        $.$("left-copier", LEFT, LEFT_COPIER);
+        $.$("right-copier", RIGHT, RIGHT_COPIER);
+        $.runProcessors();
+        assertEquals(10L, $.$(LEFT).findAny().flatMap(e -> e.longValue(LEFT)).orElseThrow());
+        assertEquals(1L, $.$(RIGHT).findAny().flatMap(e -> e.longValue(RIGHT)).orElseThrow());
+        $.runProcessors();
+        assertEquals(1L, $.$(LEFT).findAny().flatMap(e -> e.longValue(LEFT)).orElseThrow());
+        assertEquals(10L, $.$(RIGHT).findAny().flatMap(e -> e.longValue(RIGHT)).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Copy a value over another with unbuffered processors")
+    public void copyUnbuffered() {
+        $.$().createEntity().commit();
+        $.$(Component.Core.IDENTITY).findAny().ifPresent(e -> e.assignComponent(LEFT, 1L).commit());
+        $.$(Component.Core.IDENTITY).findAny().ifPresent(e -> e.assignComponent(RIGHT, 10L).commit());
+        $.$("left-copier", LEFT, LEFT_COPIER);
+        $.$("right-copier", RIGHT, RIGHT_COPIER);
+        $.runProcessors();
+        assertEquals(1L, $.$(LEFT).findAny().flatMap(e -> e.longValue(LEFT)).orElseThrow());
+        assertEquals(1L, $.$(RIGHT).findAny().flatMap(e -> e.longValue(RIGHT)).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("A buffered processor reads its own writes at commit")
+    public void accumulateBuffered() {
+        $ = Stacks.create(Dictionary.of(Map.of(Managed.PROC_BUFFERED_CONF,
+                Configuration.of(Managed.PROC_BUFFERED_CONF, "true"))));
+        $.$().createEntity().commit();
+        $.$(Component.Core.IDENTITY).findAny().ifPresent(e -> e.assignComponent(LEFT, 1L).commit());
+        $.$(Component.Core.IDENTITY).findAny().ifPresent(e -> e.assignComponent(RIGHT, 10L).commit());
+        $.$("left-twice", LEFT, LEFT_TWICE);
+        $.$("right-copier", RIGHT, RIGHT_COPIER);
+        $.runProcessors();
+        assertEquals(3L, $.$(LEFT).findAny().flatMap(e -> e.longValue(LEFT)).orElseThrow());
+        assertEquals(1L, $.$(RIGHT).findAny().flatMap(e -> e.longValue(RIGHT)).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Buffered processors fail on storage which cannot hold writes")
+    public void bufferedUnheld() {
+        $ = Stacks.create(Dictionary.of(Map.of(Managed.PROC_BUFFERED_CONF,
+                Configuration.of(Managed.PROC_BUFFERED_CONF, "true"), InMemoryStorage.CONF_ENGINE,
+                Configuration.of(InMemoryStorage.CONF_ENGINE, InMemoryStorage.Engine.ARCHETYPE.name()))));
+        $.$().createEntity().commit();
+        $.$("hat-assigner", Component.Core.IDENTITY, HAT_ASSIGNER);
+        assertThrows(Fallible.StacksException.class, $::runProcessors);
+    }
+
+    @Test
+    @DisplayName("Processors cannot run concurrently or in chunks on the archetype engine")
+    public void archetypeConcurrent() {
+        $ = Stacks.create(Dictionary.of(Map.of(Managed.PROC_PARALLEL_CONF,
+                Configuration.of(Managed.PROC_PARALLEL_CONF, "true"), InMemoryStorage.CONF_ENGINE,
+                Configuration.of(InMemoryStorage.CONF_ENGINE, InMemoryStorage.Engine.ARCHETYPE.name()))));
+        $.$().createEntity().commit();
+        $.$("hat-assigner", Component.Core.IDENTITY, HAT_ASSIGNER);
+        assertThrows(Fallible.StacksException.class, $::runProcessors);
+        assertThrows(Fallible.StacksException.class, () -> $.$("hat-chunks", Component.Core.IDENTITY, HAT_ASSIGNER, 8));
+    }
 }
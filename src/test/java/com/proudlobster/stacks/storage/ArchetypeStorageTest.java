@@ -0,0 +1,141 @@
+package com.proudlobster.stacks.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.proudlobster.stacks.TestContstants;
+import com.proudlobster.stacks.ecp.Component;
+import com.proudlobster.stacks.ecp.Entity;
+import com.proudlobster.stacks.structure.Configuration;
+import com.proudlobster.stacks.structure.Dictionary;
+
+@Tag("Unit")
+public class ArchetypeStorageTest implements TestContstants {
+
+    private static final Long COMPS_COUNT = 3L;
+    private static final int MANY = 100;
+
+    private ArchetypeStorage storage;
+
+    @BeforeEach
+    public void resetStorage() {
+        storage = ArchetypeStorage.of();
+    }
+
+    @Test
+    @DisplayName("Archetype engine is selected by configuration")
+    void of_configured() {
+        assertTrue(InMemoryStorage.of(Dictionary.of(Map.of(InMemoryStorage.CONF_ENGINE,
+                Configuration.of(InMemoryStorage.CONF_ENGINE, "ARCHETYPE")))) instanceof ArchetypeStorage);
+        assertFalse(InMemoryStorage.of(Dictionary.of(Map.of())) instanceof ArchetypeStorage);
+    }
+
+    @Test
+    @DisplayName("Reading non-existing entity not present")
+    void read_empty() {
+        assertTrue(storage.read(ID_1).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Find entity by ID")
+    void read_find() {
+        storage.writeEntity(ID_1);
+        assertEquals(ID_1, storage.read(ID_1).get().identifier());
+    }
+
+    @Test
+    @DisplayName("Finding on single component returns multiple entities")
+    void read_componentsCount() {
+        storage.writeEntity(ID_1);
+        storage.writeEntity(ID_2);
+        storage.writeEntity(ID_3);
+        storage.writeAssignComponent(ID_2, COMPONENT_NAME_1);
+        assertEquals(COMPS_COUNT, storage.read(Component.Core.IDENTITY).count());
+    }
+
+    @Test
+    @DisplayName("Finding on multiple components spans archetypes")
+    void read_components() {
+        storage.writeEntity(ID_1);
+        storage.writeEntity(ID_3);
+        storage.writeAssignComponent(ID_1, COMPONENT_NAME_2);
+        storage.writeAssignComponent(ID_3, COMPONENT_NAME_2);
+        storage.writeAssignComponent(ID_3, COMPONENT_NAME_3);
+        assertEquals(ID_3, storage.read(FLAG_COMPONENT_3, FLAG_COMPONENT_2).map(Entity::identifier).findAny().get());
+        assertEquals(2, storage.read(FLAG_COMPONENT_2).count());
+    }
+
+    @Test
+    @DisplayName("Component values survive moving between archetypes")
+    void write_moveKeepsValues() {
+        storage.writeEntity(ID_1);
+        storage.writeAssignComponent(ID_1, COMPONENT_NAME_1, STRING_VALUE_1);
+        storage.writeAssignComponent(ID_1, COMPONENT_NAME_2, LONG_VALUE_1);
+        storage.writeAssignComponent(ID_1, COMPONENT_NAME_3);
+        final Entity e = storage.read(ID_1).get();
+        assertEquals(STRING_VALUE_1, e.stringValue(STRING_COMPONENT_1).get());
+        assertEquals(LONG_VALUE_1, e.longValue(NUMBER_COMPONENT_2).get());
+        assertTrue(e.is(FLAG_COMPONENT_3));
+    }
+
+    @Test
+    @DisplayName("Removing rows keeps remaining rows intact")
+    void write_removeRows() {
+        for (long i = 1; i <= MANY; i++) {
+            storage.writeEntity(i);
+            storage.writeAssignComponent(i, COMPONENT_NAME_2, i);
+        }
+        for (long i = 1; i <= MANY; i += 2) {
+            storage.writeRemoveComponent(i, COMPONENT_NAME_2);
+        }
+        assertEquals(MANY / 2, storage.read(NUMBER_COMPONENT_2).count());
+        assertTrue(storage.read(NUMBER_COMPONENT_2)
+                .allMatch(e -> e.identifier().equals(e.longValue(NUMBER_COMPONENT_2).get())));
+    }
+
+    @Test
+    @DisplayName("Write remove component produces correct data")
+    public void writeRemoveComponent_correctRecord() {
+        storage.writeEntity(ID_1);
+        storage.writeAssignComponent(ID_1, COMPONENT_NAME_2, LONG_VALUE_1);
+        storage.writeRemoveComponent(ID_1, COMPONENT_NAME_2);
+        assertFalse(storage.read(ID_1).map(e -> e.is(NUMBER_COMPONENT_2)).get());
+    }
+
+    @Test
+    @DisplayName("Changing the kind of a value keeps it readable")
+    public void writeAssignComponent_promotesColumn() {
+        storage.writeEntity(ID_1);
+        storage.writeAssignComponent(ID_1, COMPONENT_NAME_1, LONG_VALUE_1);
+        storage.writeAssignComponent(ID_1, COMPONENT_NAME_1, STRING_VALUE_1);
+        assertEquals(STRING_VALUE_1, storage.read(ID_1).flatMap(e -> e.stringValue(STRING_COMPONENT_1)).get());
+    }
+
+    @Test
+    @DisplayName("Expired entities are removed")
+    public void write_expire() {
+        storage.writeEntity(ID_1);
+        storage.writeAssignComponent(ID_1, Component.Core.EXPIRED.name());
+        assertTrue(storage.read(ID_1).isEmpty());
+        assertEquals(0, storage.read(Component.Core.IDENTITY).count());
+    }
+
+    @Test
+    @DisplayName("References are added and removed one at a time")
+    public void write_references() {
+        storage.writeAssignComponent(ID_1, COMPONENT_NAME_1, MULTIREF_STRING_2);
+        storage.writeRemoveReference(ID_1, COMPONENT_NAME_1, ID_1);
+        storage.writeAddReference(ID_1, COMPONENT_NAME_1, ID_1);
+        assertEquals(List.of(ID_2, ID_3, ID_1), storage.read(ID_1).get().referenceValues(MULTIREF_COMPONENT_1)
+                .toList());
+    }
+}
@@ -2,6 +2,10 @@ package com.proudlobster.stacks.storage;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.List;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
@@ -50,4 +54,33 @@ public class EntityReaderTest implements TestContstants {
         assertEquals(ID_3, MAP_READER.read(FLAG_COMPONENT_3, FLAG_COMPONENT_2).map(Entity::identifier).findAny().get());
     }
 
+    @Test
+    @DisplayName("Finding on multiple components drives from the smallest known result")
+    void read_componentsRarestFirst() {
+        final EntityReader r = d -> d.component().filter(COMPONENT_NAME_1::equals).map(c -> Stream.of(ID_ENTITY_1))
+                .orElseGet(() -> Stream.of(ID_ENTITY_1).filter(e -> fail("Larger component was traversed")));
+        assertTrue(r.read(FLAG_COMPONENT_2, FLAG_COMPONENT_1).findAny().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Composed readers merge entities by identifier")
+    void of_merges() {
+        assertEquals(2, EntityReader.of(MAP_READER, MAP_READER).read(FLAG_COMPONENT_2).count());
+        assertEquals(ID_3, EntityReader.of(EMPTY_READER, MAP_READER).read(FLAG_COMPONENT_3, FLAG_COMPONENT_2)
+                .map(Entity::identifier).findAny().get());
+    }
+
+
+    @Test
+    @DisplayName("Composed readers merge the referrers found by each")
+    void readReferrers_merged() {
+        final InMemoryStorage s = InMemoryStorage.of();
+        s.writeEntity(ID_1);
+        s.writeEntity(ID_2);
+        s.writeAddReference(ID_2, COMPONENT_NAME_1, ID_1);
+        s.flush();
+        assertEquals(List.of(ID_2),
+                EntityReader.of(s, s).readReferrers(ID_1, MULTIREF_COMPONENT_1).map(Entity::identifier).toList());
+        assertTrue(EntityReader.of(s).readReferrers(ID_2, MULTIREF_COMPONENT_1).findAny().isEmpty());
+    }
 }
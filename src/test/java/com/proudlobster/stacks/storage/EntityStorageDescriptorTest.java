@@ -1,15 +1,21 @@
 package com.proudlobster.stacks.storage;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.stream.Stream;
+
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
 import com.proudlobster.stacks.Fallible;
 import com.proudlobster.stacks.TestContstants;
+import com.proudlobster.stacks.ecp.Component;
+import com.proudlobster.stacks.structure.LongSet;
 
 @Tag("Unit")
 public class EntityStorageDescriptorTest implements TestContstants {
@@ -79,4 +85,57 @@ public class EntityStorageDescriptorTest implements TestContstants {
     public void active_missing() {
         assertThrows(Fallible.StacksException.class, EMPTY_RECORD::active);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Descriptor component ID matches its component name")
+    public void componentId_present() {
+        assertEquals(Component.Registry.id(COMPONENT_NAME_1), FULL_RECORD.componentId());
+    }
+
+    @Test
+    @DisplayName("Reference descriptor describes its change")
+    public void reference_present() {
+        final EntityStorageDescriptor d = EntityStorageDescriptor.of(ID_1, COMPONENT_NAME_1, ID_2,
+                EntityStorageDescriptor.Reference.ADD);
+        assertEquals(EntityStorageDescriptor.Reference.ADD, d.reference().get());
+        assertEquals(ID_2, d.longValue().get());
+        assertTrue(d.active());
+        assertTrue(FULL_RECORD.reference().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Referenced converts a written string once")
+    public void referenced_convertsString() {
+        final LongSet s = EntityStorageDescriptor
+                .of(ID_1, COMPONENT_NAME_1, ID_1, EntityStorageDescriptor.Reference.REMOVE).referenced(MULTIREF_STRING_2);
+        assertArrayEquals(new long[] { ID_2, ID_3 }, s.toArray());
+    }
+
+    @Test
+    @DisplayName("Referenced changes a set in place")
+    public void referenced_inPlace() {
+        final LongSet s = LongSet.ordered(ID_1);
+        assertSame(s, EntityStorageDescriptor.of(ID_1, COMPONENT_NAME_1, ID_2, EntityStorageDescriptor.Reference.ADD)
+                .referenced(s));
+        assertArrayEquals(new long[] { ID_1, ID_2 }, s.toArray());
+    }
+
+    @Test
+    @DisplayName("Referenced starts a set for an absent component")
+    public void referenced_absent() {
+        assertArrayEquals(new long[] { ID_2 }, EntityStorageDescriptor
+                .of(ID_1, COMPONENT_NAME_1, ID_2, EntityStorageDescriptor.Reference.ADD).referenced(null).toArray());
+    }
+
+    @Test
+    @DisplayName("Descriptor written as a lambda of its elements reads them")
+    public void lambda_readsElements() {
+        final EntityStorageDescriptor d = () -> Stream.of(ID_1, COMPONENT_NAME_1, STRING_VALUE_1, LONG_VALUE_1,
+                false);
+        assertEquals(ID_1, d.identifier().get());
+        assertEquals(STRING_VALUE_1, d.stringValue().get());
+        assertEquals(LONG_VALUE_1, d.longValue().get());
+        assertEquals(Boolean.FALSE, d.active());
+        assertEquals(5L, d.count());
+    }
+}
@@ -0,0 +1,100 @@
+package com.proudlobster.stacks.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.proudlobster.stacks.TestContstants;
+import com.proudlobster.stacks.ecp.Entity;
+
+@Tag("Unit")
+public class EntityViewTest implements TestContstants {
+
+    private static final int MANY = 10_000;
+
+    private InMemoryStorage storage;
+    private EntityView view;
+    private EntityWriter writer;
+
+    @BeforeEach
+    public void resetStorage() {
+        storage = InMemoryStorage.of();
+        storage.writeEntity(ID_1);
+        storage.writeAssignComponent(ID_1, COMPONENT_NAME_1);
+        view = EntityView.of(storage, FLAG_COMPONENT_1, FLAG_COMPONENT_2);
+        writer = EntityWriter.of(storage, view::observe);
+    }
+
+    @Test
+    @DisplayName("View is empty when nothing matches")
+    public void of_empty() {
+        assertEquals(0, view.count());
+    }
+
+    @Test
+    @DisplayName("View is populated from existing entities")
+    public void of_populated() {
+        storage.writeAssignComponent(ID_1, COMPONENT_NAME_2);
+        assertEquals(1, EntityView.of(storage, FLAG_COMPONENT_1, FLAG_COMPONENT_2).count());
+    }
+
+    @Test
+    @DisplayName("View leaves out an ID whose entity does not yet hold every component")
+    public void read_unpublished() {
+        synchronized (view.ids()) {
+            view.ids().add(ID_1);
+        }
+        assertEquals(1, view.count());
+        assertTrue(view.read().findAny().isEmpty());
+    }
+
+    @Test
+    @DisplayName("View gains an entity once it holds every component")
+    public void observe_add() {
+        writer.writeAssignComponent(ID_1, COMPONENT_NAME_2);
+        assertEquals(ID_1, view.read().map(Entity::identifier).findAny().get());
+    }
+
+    @Test
+    @DisplayName("View loses an entity when a component is removed")
+    public void observe_remove() {
+        writer.writeAssignComponent(ID_1, COMPONENT_NAME_2);
+        writer.writeRemoveComponent(ID_1, COMPONENT_NAME_1);
+        assertTrue(view.read().findAny().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Signature ignores component order")
+    public void signature_unordered() {
+        assertEquals(view.signature(), EntityView.of(storage, FLAG_COMPONENT_2, FLAG_COMPONENT_1).signature());
+    }
+
+    @Test
+    @DisplayName("View can be read by other threads while it is written")
+    public void read_whileWritten() {
+        final EntityView v = EntityView.of(storage, FLAG_COMPONENT_3);
+        final AtomicBoolean done = new AtomicBoolean();
+        final CompletableFuture<Void> f = CompletableFuture.runAsync(() -> {
+            while (!done.get()) {
+                assertTrue(v.identifiers().length <= MANY);
+                assertTrue(v.count() <= MANY);
+            }
+        });
+        LongStream.range(0, MANY).forEach(i -> v.observe(EntityWriter.Record.of(i, COMPONENT_NAME_3, Optional.empty(),
+                Optional.empty(), Boolean.TRUE)));
+        LongStream.range(0, MANY).filter(i -> i % 2 == 0).forEach(i -> v.observe(EntityWriter.Record.of(i,
+                COMPONENT_NAME_3, Optional.empty(), Optional.empty(), Boolean.FALSE)));
+        done.set(true);
+        f.join();
+        assertEquals(MANY / 2, v.count());
+    }
+}
@@ -0,0 +1,75 @@
+package com.proudlobster.stacks.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.proudlobster.stacks.TestContstants;
+import com.proudlobster.stacks.ecp.Component;
+
+@Tag("Unit")
+public class EntityViewsTest implements TestContstants {
+
+    private InMemoryStorage storage;
+    private EntityViews views;
+    private EntityWriter writer;
+
+    @BeforeEach
+    public void resetStorage() {
+        storage = InMemoryStorage.of();
+        views = EntityViews.create();
+        writer = EntityWriter.of(storage, views.observer());
+    }
+
+    @Test
+    @DisplayName("Nothing is found before registration")
+    public void lookup_unregistered() {
+        assertTrue(views.lookup(FLAG_COMPONENT_1).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Registering twice returns the same view")
+    public void register_same() {
+        assertSame(views.register(storage, FLAG_COMPONENT_1, FLAG_COMPONENT_2),
+                views.register(storage, FLAG_COMPONENT_2, FLAG_COMPONENT_1));
+        assertTrue(views.lookup(FLAG_COMPONENT_2, FLAG_COMPONENT_1).isPresent());
+    }
+
+    @Test
+    @DisplayName("Written records update registered views")
+    public void observer_updates() {
+        final EntityView v = views.register(storage, FLAG_COMPONENT_1);
+        writer.writeEntity(ID_1);
+        writer.writeAssignComponent(ID_1, COMPONENT_NAME_1);
+        writer.writeEntity(ID_2);
+        writer.writeAssignComponent(ID_2, COMPONENT_NAME_1);
+        assertEquals(2, v.count());
+    }
+
+    @Test
+    @DisplayName("Expired entities leave every view")
+    public void observer_expires() {
+        final EntityView v = views.register(storage, Component.Core.IDENTITY);
+        writer.writeEntity(ID_1);
+        writer.writeAssignComponent(ID_1, Component.Core.EXPIRED.name());
+        assertEquals(0, v.count());
+    }
+
+    @Test
+    @DisplayName("Held records update views once the hold is released")
+    public void observer_held() {
+        final EntityView v = views.register(storage, FLAG_COMPONENT_1);
+        assertTrue(writer.holds());
+        writer.hold(true);
+        writer.writeEntity(ID_1);
+        writer.writeAssignComponent(ID_1, COMPONENT_NAME_1);
+        assertEquals(0, v.count());
+        writer.hold(false);
+        assertEquals(1, v.count());
+    }
+}
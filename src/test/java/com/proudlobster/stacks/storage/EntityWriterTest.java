@@ -5,7 +5,9 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -130,4 +132,24 @@ public class EntityWriterTest implements TestContstants {
         MAP_WRITER.writeRemoveComponent(ID_1, COMPONENT_NAME_4);
         assertNull(MAP_WRITER_RECORDS.get(ID_1).get(COMPONENT_NAME_4));
     }
+
+    @Test
+    @DisplayName("Composed writers each receive records and flushes in order")
+    public void composite_writeAndFlush() {
+        final List<String> calls = new ArrayList<>();
+        final EntityWriter w1 = new EntityWriter() {
+            public void write(final Record r) {
+                calls.add("write1");
+            }
+
+            public void flush() {
+                calls.add("flush1");
+            }
+        };
+        final EntityWriter w2 = r -> calls.add("write2");
+        final EntityWriter w = EntityWriter.of(w1, w2);
+        w.writeEntity(ID_1);
+        w.flush();
+        assertEquals(List.of("write1", "write2", "flush1"), calls);
+    }
 }
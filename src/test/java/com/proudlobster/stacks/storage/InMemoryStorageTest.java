@@ -2,8 +2,20 @@ package com.proudlobster.stacks.storage;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
@@ -17,6 +29,7 @@ import com.proudlobster.stacks.ecp.Entity;
 public class InMemoryStorageTest implements TestContstants {
 
     private static final Long COMPS_COUNT = 3L;
+    private static final long MANY = 5_000L;
 
     @BeforeEach
     public void resetStorage() {
@@ -36,6 +49,13 @@ public class InMemoryStorageTest implements TestContstants {
         assertEquals(ID_1, STORAGE.read(ID_1).get().identifier());
     }
 
+    @Test
+    @DisplayName("Removing a component from a non-existing entity does nothing")
+    void write_removeEmpty() {
+        STORAGE.writeRemoveComponent(ID_1, COMPONENT_NAME_1);
+        assertTrue(STORAGE.read(ID_1).isEmpty());
+    }
+
     @Test
     @DisplayName("No entities for components when empty")
     void read_componentsEmpty() {
@@ -113,4 +133,337 @@ public class InMemoryStorageTest implements TestContstants {
         STORAGE.writeRemoveComponent(ID_1, COMPONENT_NAME_2);
         assertFalse(STORAGE.read(ID_1).map(e -> e.is(NUMBER_COMPONENT_2)).get());
     }
+
+    private static <T> T elsewhere(final Supplier<T> s) {
+        return CompletableFuture.supplyAsync(s).join();
+    }
+
+    @Test
+    @DisplayName("Writes are read by the writing thread before they are published")
+    void read_ownWrites() {
+        final InMemoryStorage s = InMemoryStorage.of();
+        s.writeEntity(ID_1);
+        assertTrue(s.read(ID_1).isPresent());
+    }
+
+    @Test
+    @DisplayName("Writes are read by other threads only once published")
+    void read_publishedOnly() {
+        final InMemoryStorage s = InMemoryStorage.of();
+        s.writeEntity(ID_1);
+        assertFalse(elsewhere(() -> s.read(ID_1).isPresent()));
+        assertFalse(elsewhere(() -> s.read(Component.Core.IDENTITY).findAny().isPresent()));
+        s.flush();
+        assertTrue(elsewhere(() -> s.read(ID_1).isPresent()));
+        assertEquals(1L, elsewhere(() -> s.read(Component.Core.IDENTITY).count()));
+    }
+
+    @Test
+    @DisplayName("Entity read from a snapshot keeps its values as later commits are published")
+    void read_stableSnapshot() {
+        final InMemoryStorage s = InMemoryStorage.of();
+        s.writeAssignComponent(ID_1, COMPONENT_NAME_1, LONG_VALUE_1);
+        s.flush();
+        final Entity e = elsewhere(() -> s.read(ID_1).get());
+        s.writeAssignComponent(ID_1, COMPONENT_NAME_1, LONG_VALUE_2);
+        s.flush();
+        assertEquals(Optional.of(LONG_VALUE_1), elsewhere(() -> e.longValue(NUMBER_COMPONENT_1)));
+        assertEquals(Optional.of(LONG_VALUE_2), elsewhere(() -> s.read(ID_1).get().longValue(NUMBER_COMPONENT_1)));
+    }
+
+    @Test
+    @DisplayName("Entity held across many commits keeps its values without retaining their snapshots")
+    void read_heldAcrossCommits() {
+        final InMemoryStorage.Entities em = new InMemoryStorage.Entities();
+        final InMemoryStorage s = (InMemoryStorage.Versioned) () -> em;
+        s.writeAssignComponent(ID_1, COMPONENT_NAME_1, LONG_VALUE_1);
+        s.flush();
+        final WeakReference<InMemoryStorage.Snapshot> w = new WeakReference<>(em.snapshot());
+        final Entity e = elsewhere(() -> s.read(ID_1).get());
+        LongStream.range(0, MANY).forEach(l -> {
+            s.writeAssignComponent(ID_1, COMPONENT_NAME_1, l);
+            s.flush();
+        });
+        for (int i = 0; i < 10 && w.get() != null; i++) {
+            System.gc();
+        }
+        assertNull(w.get());
+        assertEquals(Optional.of(LONG_VALUE_1), elsewhere(() -> e.longValue(NUMBER_COMPONENT_1)));
+        assertEquals(Optional.of(MANY - 1), elsewhere(() -> s.read(ID_1).get().longValue(NUMBER_COMPONENT_1)));
+    }
+
+    @Test
+    @DisplayName("Entity read before a commit sees its writes while the commit is written")
+    void read_liveDuringCommit() {
+        final InMemoryStorage s = InMemoryStorage.of();
+        s.writeAssignComponent(ID_1, COMPONENT_NAME_1, LONG_VALUE_1);
+        s.flush();
+        final Entity e = s.read(ID_1).get();
+        s.writeAssignComponent(ID_1, COMPONENT_NAME_1, LONG_VALUE_2);
+        assertEquals(Optional.of(LONG_VALUE_2), e.longValue(NUMBER_COMPONENT_1));
+    }
+
+    @Test
+    @DisplayName("Entities read during a held commit see what was published and that commit's own writes")
+    void read_heldDuringCommit() {
+        final InMemoryStorage s = InMemoryStorage.of();
+        s.writeAssignComponent(ID_1, COMPONENT_NAME_1, LONG_VALUE_1);
+        s.writeAssignComponent(ID_1, COMPONENT_NAME_2, STRING_VALUE_1);
+        s.flush();
+        final Entity e = s.read(ID_1).get();
+        s.hold(true);
+        s.writeAssignComponent(ID_1, COMPONENT_NAME_1, LONG_VALUE_2);
+        s.writeRemoveComponent(ID_1, COMPONENT_NAME_2);
+        assertEquals(Optional.of(LONG_VALUE_2), e.longValue(NUMBER_COMPONENT_1));
+        assertTrue(e.stringValue(STRING_COMPONENT_2).isEmpty());
+        s.hold(true);
+        assertEquals(Optional.of(LONG_VALUE_1), e.longValue(NUMBER_COMPONENT_1));
+        assertEquals(Optional.of(STRING_VALUE_1), e.stringValue(STRING_COMPONENT_2));
+        assertEquals(Optional.of(LONG_VALUE_1), elsewhere(() -> e.longValue(NUMBER_COMPONENT_1)));
+        s.hold(false);
+        assertEquals(Optional.of(LONG_VALUE_2), e.longValue(NUMBER_COMPONENT_1));
+        s.flush();
+        assertEquals(Optional.of(LONG_VALUE_2), elsewhere(() -> s.read(ID_1).get().longValue(NUMBER_COMPONENT_1)));
+    }
+
+    @Test
+    @DisplayName("An entity expired after it was read keeps the values it was read with")
+    void read_expiredAfterRead() {
+        final InMemoryStorage s = InMemoryStorage.of();
+        s.writeEntity(ID_1);
+        s.writeAssignComponent(ID_1, COMPONENT_NAME_1, LONG_VALUE_1);
+        final Entity e = s.read(ID_1).get();
+        s.writeAssignComponent(ID_1, Component.Core.EXPIRED.name());
+        assertEquals(ID_1, e.identifier());
+        assertEquals(Optional.of(LONG_VALUE_1), e.longValue(NUMBER_COMPONENT_1));
+        assertTrue(s.read(ID_1).isEmpty());
+        assertEquals(0L, EntityReader.of(s, s).read(Component.Core.IDENTITY).count());
+    }
+
+    @Test
+    @DisplayName("Expiring an entity is not seen by other threads until published")
+    void read_expiryPublished() {
+        final InMemoryStorage s = InMemoryStorage.of();
+        s.writeEntity(ID_1);
+        s.flush();
+        s.writeAssignComponent(ID_1, Component.Core.EXPIRED.name());
+        assertEquals(ID_1, elsewhere(() -> s.read(Component.Core.IDENTITY).findAny().get().identifier()));
+        s.flush();
+        assertFalse(elsewhere(() -> s.read(ID_1).isPresent()));
+    }
+
+    @Test
+    @DisplayName("References are added and removed one at a time")
+    void write_references() {
+        final InMemoryStorage s = InMemoryStorage.of();
+        s.writeAddReference(ID_1, COMPONENT_NAME_1, ID_2);
+        s.writeAddReference(ID_1, COMPONENT_NAME_1, ID_3);
+        s.writeAddReference(ID_1, COMPONENT_NAME_1, ID_2);
+        s.writeRemoveReference(ID_1, COMPONENT_NAME_1, ID_1);
+        assertEquals(List.of(ID_2, ID_3),
+                s.read(ID_1).get().referenceValues(MULTIREF_COMPONENT_1).collect(Collectors.toList()));
+        s.writeRemoveReference(ID_1, COMPONENT_NAME_1, ID_2);
+        assertEquals(List.of(ID_3),
+                s.read(ID_1).get().referenceValues(MULTIREF_COMPONENT_1).collect(Collectors.toList()));
+        assertEquals(1L, s.read(MULTIREF_COMPONENT_1).count());
+    }
+
+    @Test
+    @DisplayName("References written as a string are changed as a set")
+    void write_referencesFromString() {
+        final InMemoryStorage s = InMemoryStorage.of();
+        s.writeAssignComponent(ID_1, COMPONENT_NAME_1, MULTIREF_STRING_2);
+        s.writeRemoveReference(ID_1, COMPONENT_NAME_1, ID_2);
+        assertEquals(List.of(ID_1, ID_3),
+                s.read(ID_1).get().referenceValues(MULTIREF_COMPONENT_1).collect(Collectors.toList()));
+        assertTrue(s.read(ID_1).get().references(MULTIREF_COMPONENT_1).isPresent());
+    }
+
+    @Test
+    @DisplayName("References changed by a commit are not seen by a snapshot read before it")
+    void read_referencesStableSnapshot() {
+        final InMemoryStorage s = InMemoryStorage.of();
+        s.writeAddReference(ID_1, COMPONENT_NAME_1, ID_2);
+        s.flush();
+        final Entity e = elsewhere(() -> s.read(ID_1).get());
+        s.writeAddReference(ID_1, COMPONENT_NAME_1, ID_3);
+        s.writeRemoveReference(ID_1, COMPONENT_NAME_1, ID_2);
+        s.flush();
+        assertEquals(List.of(ID_2), elsewhere(() -> e.referenceValues(MULTIREF_COMPONENT_1).toList()));
+        assertEquals(List.of(ID_3),
+                elsewhere(() -> s.read(ID_1).get().referenceValues(MULTIREF_COMPONENT_1).toList()));
+    }
+
+    @Test
+    @DisplayName("IDs of a component spanning many chunks are published as changed")
+    void read_manyIdsPublished() {
+        final InMemoryStorage s = InMemoryStorage.of();
+        LongStream.rangeClosed(0, MANY).forEach(s::writeEntity);
+        LongStream.range(0, MANY).forEach(i -> s.writeAssignComponent(i, COMPONENT_NAME_3));
+        s.flush();
+        LongStream.range(0, MANY).filter(i -> i % 100 == 0).forEach(i -> s.writeRemoveComponent(i, COMPONENT_NAME_3));
+        s.writeAssignComponent(MANY, COMPONENT_NAME_3);
+        assertEquals(MANY, elsewhere(() -> s.read(FLAG_COMPONENT_3).count()));
+        s.flush();
+        final Set<Long> ids = LongStream
+                .concat(LongStream.range(0, MANY).filter(i -> i % 100 != 0), LongStream.of(MANY)).boxed()
+                .collect(Collectors.toSet());
+        assertEquals(ids, elsewhere(() -> s.read(FLAG_COMPONENT_3).map(Entity::identifier)
+                .collect(Collectors.toSet())));
+        assertEquals(ids.size(), elsewhere(() -> s.read(FLAG_COMPONENT_3).count()));
+    }
+
+    @Test
+    @DisplayName("Reads by component or ID know their size, before and after publishing")
+    void read_sized() {
+        final InMemoryStorage s = InMemoryStorage.of();
+        LongStream.range(0, MANY).forEach(s::writeEntity);
+        LongStream.range(0, MANY).forEach(i -> s.writeAssignComponent(i, COMPONENT_NAME_3));
+        final EntityReader.Record r = EntityReader.Record.of(COMPONENT_NAME_3);
+        assertEquals(MANY, s.read(r).spliterator().getExactSizeIfKnown());
+        s.flush();
+        assertEquals(MANY, elsewhere(() -> s.read(r).spliterator().getExactSizeIfKnown()));
+        assertEquals(1L, elsewhere(() -> s.read(EntityReader.Record.of(ID_1)).spliterator().getExactSizeIfKnown()));
+        assertEquals(0L, elsewhere(() -> s.read(EntityReader.Record.of(MANY)).spliterator().getExactSizeIfKnown()));
+    }
+
+    @Test
+    @DisplayName("The rarest component drives a read, even while holding a commit")
+    void read_rarestDrives() {
+        final InMemoryStorage.Versioned s = (InMemoryStorage.Versioned) InMemoryStorage.of();
+        final AtomicLong pulled = new AtomicLong();
+        final InMemoryStorage.Versioned counting = new InMemoryStorage.Versioned() {
+            @Override
+            public InMemoryStorage.Entities entities() {
+                return s.entities();
+            }
+
+            @Override
+            public Stream<Entity> handle(final EntityStorageDescriptor r, final boolean w) {
+                return w ? s.handle(r, w) : s.handle(r, w).peek(e -> pulled.incrementAndGet());
+            }
+        };
+        LongStream.range(0, MANY).forEach(i -> {
+            s.writeEntity(i);
+            s.writeAssignComponent(i, COMPONENT_NAME_1);
+        });
+        s.writeAssignComponent(ID_1, COMPONENT_NAME_2);
+        s.flush();
+        assertEquals(1, counting.cardinality(FLAG_COMPONENT_2));
+        s.hold(true);
+        try {
+            assertEquals(List.of(ID_1),
+                    counting.read(FLAG_COMPONENT_1, FLAG_COMPONENT_2).map(Entity::identifier).toList());
+        } finally {
+            s.hold(false);
+        }
+        assertEquals(1, pulled.get());
+    }
+
+    @Test
+    @DisplayName("Referrers are scanned for until the index requested is built by the next commit")
+    void readReferrers_indexedOnPublish() {
+        final InMemoryStorage s = InMemoryStorage.of();
+        s.writeEntity(ID_1);
+        s.writeEntity(ID_2);
+        s.writeEntity(ID_3);
+        s.writeAssignComponent(ID_2, COMPONENT_NAME_2, ID_1);
+        s.writeAddReference(ID_3, COMPONENT_NAME_1, ID_1);
+        s.flush();
+        assertEquals(List.of(ID_3), s.readReferrers(ID_1, MULTIREF_COMPONENT_1).map(Entity::identifier).toList());
+        assertEquals(List.of(ID_2), s.readReferrers(ID_1, REF_COMPONENT_2).map(Entity::identifier).toList());
+        final InMemoryStorage.Referrers r = ((InMemoryStorage.Versioned) s).entities().referrers();
+        assertFalse(r.indexed(COMPONENT_NAME_1));
+        s.writeAddReference(ID_1, COMPONENT_NAME_1, ID_1);
+        s.flush();
+        assertTrue(r.indexed(COMPONENT_NAME_1));
+        assertTrue(r.indexed(COMPONENT_NAME_2));
+        assertEquals(List.of(ID_1, ID_3),
+                s.readReferrers(ID_1, MULTIREF_COMPONENT_1).map(Entity::identifier).sorted().toList());
+        s.writeAssignComponent(ID_1, COMPONENT_NAME_2, ID_1);
+        s.writeAssignComponent(ID_2, COMPONENT_NAME_2, ID_3);
+        s.flush();
+        assertEquals(List.of(ID_1), s.readReferrers(ID_1, REF_COMPONENT_2).map(Entity::identifier).toList());
+        assertEquals(List.of(ID_2), s.readReferrers(ID_3, REF_COMPONENT_2).map(Entity::identifier).toList());
+    }
+
+    @Test
+    @DisplayName("Adding or removing one reference keeps the index current")
+    void readReferrers_singleReferences() {
+        final InMemoryStorage s = InMemoryStorage.of();
+        s.writeEntity(ID_1);
+        s.writeEntity(ID_2);
+        s.writeEntity(ID_3);
+        s.flush();
+        s.readReferrers(ID_1, MULTIREF_COMPONENT_1).count();
+        s.writeAddReference(ID_2, COMPONENT_NAME_1, ID_1);
+        s.flush();
+        final InMemoryStorage.Referrers r = ((InMemoryStorage.Versioned) s).entities().referrers();
+        s.writeAddReference(ID_2, COMPONENT_NAME_1, ID_3);
+        s.writeAddReference(ID_3, COMPONENT_NAME_1, ID_1);
+        s.flush();
+        assertEquals(Set.of(ID_2, ID_3), r.lookup(MULTIREF_COMPONENT_1, ID_1).get());
+        s.writeRemoveReference(ID_3, COMPONENT_NAME_1, ID_1);
+        s.writeRemoveReference(ID_2, COMPONENT_NAME_1, ID_1);
+        s.writeAddReference(ID_2, COMPONENT_NAME_1, ID_1);
+        s.flush();
+        assertEquals(Set.of(ID_2), r.lookup(MULTIREF_COMPONENT_1, ID_1).get());
+        assertEquals(Set.of(ID_2), r.lookup(MULTIREF_COMPONENT_1, ID_3).get());
+        assertEquals(List.of(ID_2), s.readReferrers(ID_1, MULTIREF_COMPONENT_1).map(Entity::identifier).toList());
+    }
+
+    @Test
+    @DisplayName("Components which are not references are scanned and never indexed")
+    void readReferrers_notReference() {
+        final InMemoryStorage s = InMemoryStorage.of();
+        s.writeEntity(ID_1);
+        s.writeEntity(ID_2);
+        s.writeEntity(ID_3);
+        s.writeAssignComponent(ID_2, COMPONENT_NAME_1, ID_1);
+        s.flush();
+        assertEquals(1L, s.readReferrers(ID_1, NUMBER_COMPONENT_1).count());
+        s.writeEntity(ID_1);
+        s.flush();
+        assertFalse(((InMemoryStorage.Versioned) s).entities().referrers().indexed(COMPONENT_NAME_1));
+    }
+
+    @Test
+    @DisplayName("A reference removed is found by readers of the last snapshot until published")
+    void readReferrers_removedPublished() {
+        final InMemoryStorage s = InMemoryStorage.of();
+        s.writeEntity(ID_1);
+        s.writeEntity(ID_2);
+        s.writeEntity(ID_3);
+        s.writeAddReference(ID_2, COMPONENT_NAME_1, ID_1);
+        s.flush();
+        s.readReferrers(ID_1, MULTIREF_COMPONENT_1).count();
+        s.writeEntity(ID_1);
+        s.flush();
+        s.writeRemoveReference(ID_2, COMPONENT_NAME_1, ID_1);
+        s.writeAddReference(ID_3, COMPONENT_NAME_1, ID_1);
+        assertEquals(List.of(ID_2), elsewhere(
+                () -> s.readReferrers(ID_1, MULTIREF_COMPONENT_1).map(Entity::identifier).toList()));
+        s.flush();
+        assertEquals(List.of(ID_3), elsewhere(
+                () -> s.readReferrers(ID_1, MULTIREF_COMPONENT_1).map(Entity::identifier).toList()));
+    }
+
+    @Test
+    @DisplayName("An expired entity no longer refers to anything")
+    void readReferrers_expired() {
+        final InMemoryStorage s = InMemoryStorage.of();
+        s.writeEntity(ID_1);
+        s.writeEntity(ID_2);
+        s.writeEntity(ID_3);
+        s.writeAddReference(ID_2, COMPONENT_NAME_1, ID_1);
+        s.flush();
+        s.readReferrers(ID_1, MULTIREF_COMPONENT_1).count();
+        s.writeEntity(ID_1);
+        s.flush();
+        s.writeAssignComponent(ID_2, Component.Core.EXPIRED.name());
+        s.flush();
+        assertEquals(0L, s.readReferrers(ID_1, MULTIREF_COMPONENT_1).count());
+        assertTrue(((InMemoryStorage.Versioned) s).entities().referrers().lookup(MULTIREF_COMPONENT_1, ID_1).get()
+                .isEmpty());
+    }
 }
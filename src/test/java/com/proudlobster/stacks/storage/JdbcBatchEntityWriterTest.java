@@ -0,0 +1,256 @@
+package com.proudlobster.stacks.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.proudlobster.stacks.Fallible;
+import com.proudlobster.stacks.TestContstants;
+import com.proudlobster.stacks.ecp.Component;
+import com.proudlobster.stacks.structure.Configuration;
+import com.proudlobster.stacks.structure.Dictionary;
+
+@Tag("Unit")
+public class JdbcBatchEntityWriterTest implements TestContstants {
+
+    // BEGIN TEST DATA
+    private static final EntityWriter.Record SOME_REC_1 = EntityWriter.Record.of(ID_1, Component.Core.IDENTITY.name(),
+            Optional.empty(), Optional.empty(), Boolean.TRUE);
+    private static final EntityWriter.Record SOME_REC_2 = EntityWriter.Record.of(ID_1, COMPONENT_NAME_1,
+            Optional.of(STRING_VALUE_1), Optional.empty(), Boolean.TRUE);
+    private static final EntityWriter.Record SOME_REC_3 = EntityWriter.Record.of(ID_1, COMPONENT_NAME_1,
+            Optional.of(STRING_VALUE_2), Optional.empty(), Boolean.TRUE);
+    private static final EntityWriter.Record SOME_REC_4 = EntityWriter.Record.of(ID_1, COMPONENT_NAME_2,
+            Optional.empty(), Optional.of(LONG_VALUE_1), Boolean.TRUE);
+    private static final EntityWriter.Record EXPIRE_REC = EntityWriter.Record.of(ID_1, Component.Core.EXPIRED.name(),
+            Optional.empty(), Optional.empty(), Boolean.TRUE);
+    private static final EntityWriter.Record DEL_REC = EntityWriter.Record.of(ID_1, Component.Core.IDENTITY.name(),
+            Optional.empty(), Optional.empty(), Boolean.FALSE);
+
+    // BEGIN CONFIGURATION
+    private static final String TEST_QUERY = "SELECT * FROM ENTITY_COMPONENT WHERE ACTIVE = true";
+    private static final String ID_COL_NAME = "ID";
+    private static final String STR_VAL_COL_NAME = "STR_VALUE";
+    private static final String COMP_COL_NAME = "COMPONENT";
+    private static final Configuration PROP_LIST = Configuration.of(JdbcConnectionProvider.CONF_DS_PROP_LIST,
+            "databaseName,createDatabase");
+    private static final Configuration DB_CLASS = Configuration.of(JdbcConnectionProvider.CONF_DS_CLASS_NAME,
+            "org.apache.derby.jdbc.EmbeddedDataSource");
+    private static final Configuration DB_NAME = Configuration
+            .of(JdbcConnectionProvider.CONF_DS_PREFIX + "databaseName", "STACKS_DB");
+    private static final Configuration CREATE_DB = Configuration
+            .of(JdbcConnectionProvider.CONF_DS_PREFIX + "createDatabase", "create");
+    private static final Map<String, Configuration> CONF = Stream.of(PROP_LIST, DB_CLASS, DB_NAME, CREATE_DB)
+            .collect(Collectors.toMap(Configuration::name, Function.identity()));
+    private static final Dictionary<Configuration> DICT = Dictionary.of(CONF);
+    private static final AtomicReference<JdbcConnectionProvider> PROVIDER = new AtomicReference<>();
+
+    // BEGIN WRITERS
+    private static final JdbcBatchEntityWriter WRITER = JdbcBatchEntityWriter.of(() -> PROVIDER.get().get());
+
+    @BeforeEach
+    public void deleteDatabase() throws IOException {
+        WRITER.batch().clear();
+        Optional.of(Paths.get(DB_NAME.value())).filter(Files::exists).map(p -> Fallible.attemptApply(Files::walk, p))
+                .orElseGet(Stream::empty).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        PROVIDER.set(JdbcConnectionProvider.of(DICT));
+    }
+
+    @AfterEach
+    public void shutDownDatabase() throws SQLException {
+        try {
+            DriverManager.getConnection("jdbc:derby:" + DB_NAME.value() + ";shutdown=true");
+        } catch (SQLNonTransientConnectionException e) {
+            if (!e.getSQLState().equals("08006")) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Records are held until flushed")
+    public void held_until_flush() {
+        WRITER.write(SOME_REC_1);
+        assertEquals(1, WRITER.batch().size());
+        assertTrue(PROVIDER.get().executeQuery(TEST_QUERY, rs -> rs.getLong(ID_COL_NAME)).findAny().isEmpty());
+        WRITER.flush();
+        assertEquals(0, WRITER.batch().size());
+        assertEquals(ID_1, PROVIDER.get().executeQuery(TEST_QUERY, rs -> rs.getLong(ID_COL_NAME)).findFirst().get());
+    }
+
+    @Test
+    @DisplayName("Only the last record for an entity component is written")
+    public void last_record_wins() {
+        WRITER.write(SOME_REC_2);
+        WRITER.write(SOME_REC_3);
+        assertEquals(1, WRITER.batch().size());
+        WRITER.flush();
+        assertEquals(List.of(SOME_REC_3.value()),
+                PROVIDER.get().executeQuery(TEST_QUERY, rs -> rs.getString(STR_VAL_COL_NAME)).toList());
+    }
+
+    @Test
+    @DisplayName("Upsert across flushes updates the existing row")
+    public void upsert_record() {
+        WRITER.write(SOME_REC_2);
+        WRITER.flush();
+        WRITER.write(SOME_REC_3);
+        WRITER.flush();
+        assertEquals(List.of(SOME_REC_3.value()),
+                PROVIDER.get().executeQuery(TEST_QUERY, rs -> rs.getString(STR_VAL_COL_NAME)).toList());
+    }
+
+    @Test
+    @DisplayName("Delete record works, and a later write reactivates the row")
+    public void delete_record() {
+        WRITER.write(SOME_REC_1);
+        WRITER.flush();
+        WRITER.write(DEL_REC);
+        WRITER.flush();
+        assertTrue(PROVIDER.get().executeQuery(TEST_QUERY, rs -> rs.getLong(ID_COL_NAME)).findAny().isEmpty());
+        WRITER.write(SOME_REC_1);
+        WRITER.flush();
+        assertEquals(ID_1, PROVIDER.get().executeQuery(TEST_QUERY, rs -> rs.getLong(ID_COL_NAME)).findFirst().get());
+    }
+
+    @Test
+    @DisplayName("Expiration applies before the records which follow it")
+    public void expire_then_write() {
+        WRITER.write(SOME_REC_1);
+        WRITER.write(SOME_REC_2);
+        WRITER.flush();
+        WRITER.write(SOME_REC_3);
+        WRITER.write(EXPIRE_REC);
+        WRITER.write(SOME_REC_4);
+        WRITER.flush();
+        assertEquals(List.of(COMPONENT_NAME_2),
+                PROVIDER.get().executeQuery(TEST_QUERY, rs -> rs.getString(COMP_COL_NAME)).toList());
+    }
+
+    @Test
+    @DisplayName("Many entities are written in one flush")
+    public void write_many() {
+        LongStream.range(0, 1000).mapToObj(i -> EntityWriter.Record.of(i, COMPONENT_NAME_1, Optional.empty(),
+                Optional.of(i), Boolean.TRUE)).forEach(WRITER::write);
+        WRITER.flush();
+        assertEquals(1000L, PROVIDER.get().executeQuery(TEST_QUERY, rs -> rs.getLong(ID_COL_NAME)).count());
+    }
+
+    @Test
+    @DisplayName("Only the last change to each reference is written")
+    public void last_reference_change_wins() {
+        WRITER.writeAddReference(ID_1, COMPONENT_NAME_1, ID_2);
+        WRITER.writeRemoveReference(ID_1, COMPONENT_NAME_1, ID_2);
+        WRITER.writeAddReference(ID_1, COMPONENT_NAME_1, ID_3);
+        assertEquals(2, WRITER.batch().size());
+        WRITER.flush();
+        assertEquals(0, WRITER.batch().size());
+        assertEquals(Set.of(ID_3), WRITER.reader().read(ID_1).get().referenceValues(MULTIREF_COMPONENT_1)
+                .collect(Collectors.toSet()));
+    }
+
+    @Test
+    @DisplayName("References change after the component is written in the same flush")
+    public void references_after_string() {
+        WRITER.writeAddReference(ID_1, COMPONENT_NAME_1, ID_1);
+        WRITER.writeAssignComponent(ID_1, COMPONENT_NAME_1, MULTIREF_STRING_2);
+        WRITER.writeRemoveReference(ID_1, COMPONENT_NAME_1, ID_2);
+        WRITER.flush();
+        assertEquals(Set.of(ID_1, ID_3), WRITER.reader().read(ID_1).get().referenceValues(MULTIREF_COMPONENT_1)
+                .collect(Collectors.toSet()));
+        WRITER.writeAssignComponent(ID_1, COMPONENT_NAME_1, ID_2.toString());
+        WRITER.flush();
+        assertEquals(Set.of(ID_2), WRITER.reader().read(ID_1).get().referenceValues(MULTIREF_COMPONENT_1)
+                .collect(Collectors.toSet()));
+    }
+
+    /**
+     * @param c a connection
+     * @return the connection, with batches reporting no update counts
+     */
+    private static Connection noInfo(final Connection c) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (p, m, as) -> {
+                    final Object o = m.invoke(c, as);
+                    return o instanceof PreparedStatement ? noInfo((PreparedStatement) o) : o;
+                });
+    }
+
+    private static PreparedStatement noInfo(final PreparedStatement s) {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, (p, m, as) -> {
+                    final Object o = m.invoke(s, as);
+                    if ("executeBatch".equals(m.getName())) {
+                        Arrays.fill((int[]) o, Statement.SUCCESS_NO_INFO);
+                    }
+                    return o;
+                });
+    }
+
+    @Test
+    @DisplayName("Updates without counts are repeated alone to learn whether to insert")
+    public void flush_successNoInfo() {
+        final JdbcBatchEntityWriter w = JdbcBatchEntityWriter
+                .of(JdbcConnectionProvider.of(() -> noInfo(PROVIDER.get().get()), JdbcDialect.GENERIC));
+        w.write(SOME_REC_2);
+        w.flush();
+        assertEquals(List.of(SOME_REC_2.value()),
+                PROVIDER.get().executeQuery(TEST_QUERY, rs -> rs.getString(STR_VAL_COL_NAME)).toList());
+        w.write(SOME_REC_3);
+        w.flush();
+        assertEquals(List.of(SOME_REC_3.value()),
+                PROVIDER.get().executeQuery(TEST_QUERY, rs -> rs.getString(STR_VAL_COL_NAME)).toList());
+    }
+
+    @Test
+    @DisplayName("Records are kept for the next flush when a flush fails")
+    public void flush_failureKeepsRecords() {
+        final AtomicBoolean fail = new AtomicBoolean(true);
+        final JdbcBatchEntityWriter w = JdbcBatchEntityWriter.of(() -> {
+            if (fail.getAndSet(false)) {
+                throw new IllegalStateException();
+            }
+            return PROVIDER.get().get();
+        });
+        w.write(SOME_REC_1);
+        w.writeAddReference(ID_1, COMPONENT_NAME_1, ID_2);
+        assertThrows(IllegalStateException.class, w::flush);
+        assertEquals(2, w.batch().size());
+        w.flush();
+        assertEquals(0, w.batch().size());
+        assertEquals(ID_1, PROVIDER.get().executeQuery(TEST_QUERY, rs -> rs.getLong(ID_COL_NAME)).findFirst().get());
+        assertEquals(Set.of(ID_2), w.reader().read(ID_1).get().referenceValues(MULTIREF_COMPONENT_1)
+                .collect(Collectors.toSet()));
+    }
+}
@@ -0,0 +1,256 @@
+package com.proudlobster.stacks.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.proudlobster.stacks.Fallible;
+import com.proudlobster.stacks.TestContstants;
+import com.proudlobster.stacks.structure.Configuration;
+import com.proudlobster.stacks.structure.Dictionary;
+
+@Tag("Unit")
+public class JdbcConnectionPoolTest implements TestContstants {
+
+    // BEGIN CONFIGURATION
+    private static final String TEST_QUERY = "SELECT * FROM ENTITY_COMPONENT";
+    private static final String TEST_ID_QUERY = "SELECT * FROM ENTITY_COMPONENT WHERE ID = ?";
+    private static final int VALID_TIMEOUT = 1;
+    private static final Configuration PROP_LIST = Configuration.of(JdbcConnectionProvider.CONF_DS_PROP_LIST,
+            "databaseName,createDatabase");
+    private static final Configuration DB_CLASS = Configuration.of(JdbcConnectionProvider.CONF_DS_CLASS_NAME,
+            "org.apache.derby.jdbc.EmbeddedDataSource");
+    private static final Configuration DB_NAME = Configuration
+            .of(JdbcConnectionProvider.CONF_DS_PREFIX + "databaseName", "STACKS_DB");
+    private static final Configuration CREATE_DB = Configuration
+            .of(JdbcConnectionProvider.CONF_DS_PREFIX + "createDatabase", "create");
+    private static final Map<String, Configuration> CONF = Stream.of(PROP_LIST, DB_CLASS, DB_NAME, CREATE_DB)
+            .collect(Collectors.toMap(Configuration::name, Function.identity()));
+    private static final Dictionary<Configuration> DICT = Dictionary.of(CONF);
+    private static final Dictionary<Configuration> POOLED_DICT = Dictionary.of(Stream
+            .concat(CONF.values().stream(), Stream.of(Configuration.of(JdbcConnectionPool.CONF_POOL_ENABLED, "true")))
+            .collect(Collectors.toMap(Configuration::name, Function.identity())));
+    private static final int WAIT_MILLIS = 50;
+
+    // BEGIN PROVIDERS
+    private static JdbcConnectionProvider SOURCE;
+
+    @BeforeEach
+    public void deleteDatabase() throws IOException {
+        Optional.of(Paths.get(DB_NAME.value())).filter(Files::exists).map(p -> Fallible.attemptApply(Files::walk, p))
+                .orElseGet(Stream::empty).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        SOURCE = JdbcConnectionProvider.of(DICT);
+    }
+
+    @AfterEach
+    public void shutDownDatabase() throws SQLException {
+        try {
+            DriverManager.getConnection("jdbc:derby:" + DB_NAME.value() + ";shutdown=true");
+        } catch (SQLNonTransientConnectionException e) {
+            if (!e.getSQLState().equals("08006")) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Pooling is enabled by configuration")
+    public void of_pooled() {
+        assertFalse(SOURCE instanceof JdbcConnectionPool);
+        assertTrue(JdbcConnectionProvider.of(POOLED_DICT) instanceof JdbcConnectionPool);
+    }
+
+    @Test
+    @DisplayName("Pool is filled to its minimum size")
+    public void of_filled() {
+        final JdbcConnectionPool p = JdbcConnectionPool.of(SOURCE, 2, 4, 60000, VALID_TIMEOUT, WAIT_MILLIS);
+        assertEquals(2, p.metrics().idle());
+        assertEquals(2, p.metrics().created());
+    }
+
+    @Test
+    @DisplayName("Dialect is resolved once for the life of the pool")
+    public void dialect_resolvedOnce() throws SQLException {
+        final JdbcConnectionPool p = JdbcConnectionPool.of(() -> SOURCE.get(), 1, 4, 60000, VALID_TIMEOUT, WAIT_MILLIS);
+        try (Connection c = p.get()) {
+            assertEquals(JdbcDialect.DERBY, p.dialect(c));
+        }
+        assertEquals(JdbcDialect.DERBY, p.dialect(null));
+    }
+
+    @Test
+    @DisplayName("Returned connections are reused")
+    public void get_reused() throws SQLException {
+        final JdbcConnectionPool p = JdbcConnectionPool.of(SOURCE, 1, 4, 60000, VALID_TIMEOUT, WAIT_MILLIS);
+        final Connection c = p.get();
+        assertEquals(1, p.metrics().active());
+        c.close();
+        p.get().close();
+        assertEquals(1, p.metrics().created());
+        assertEquals(2, p.metrics().borrowed());
+        assertEquals(0, p.metrics().active());
+    }
+
+    @Test
+    @DisplayName("Closed connections cannot be used")
+    public void get_closedUnusable() throws SQLException {
+        final JdbcConnectionPool p = JdbcConnectionPool.of(SOURCE, 1, 4, 60000, VALID_TIMEOUT, WAIT_MILLIS);
+        final Connection c = p.get();
+        c.close();
+        assertTrue(c.isClosed());
+        assertThrows(Fallible.StacksException.class, () -> c.prepareStatement(TEST_QUERY));
+    }
+
+    @Test
+    @DisplayName("Borrowing beyond the maximum size times out")
+    public void get_exhausted() {
+        final JdbcConnectionPool p = JdbcConnectionPool.of(SOURCE, 0, 1, 60000, VALID_TIMEOUT, WAIT_MILLIS);
+        p.get();
+        assertThrows(Fallible.StacksException.class, p::get);
+        assertEquals(1, p.metrics().waited());
+        assertEquals(1, p.metrics().exhausted());
+    }
+
+    @Test
+    @DisplayName("Idle connections beyond the minimum are evicted")
+    public void release_evicted() throws SQLException {
+        final JdbcConnectionPool p = JdbcConnectionPool.of(SOURCE, 1, 4, 0, VALID_TIMEOUT, WAIT_MILLIS);
+        final Connection c1 = p.get();
+        final Connection c2 = p.get();
+        c1.close();
+        c2.close();
+        assertEquals(1, p.metrics().idle());
+        assertEquals(1, p.metrics().evicted());
+    }
+
+    @Test
+    @DisplayName("Invalid idle connections are replaced")
+    public void get_invalidReplaced() throws SQLException {
+        final JdbcConnectionPool p = JdbcConnectionPool.of(SOURCE, 1, 4, 60000, VALID_TIMEOUT, WAIT_MILLIS);
+        shutDownDatabase();
+        assertTrue(p.get().isValid(VALID_TIMEOUT));
+        assertEquals(1, p.metrics().invalid());
+        assertEquals(2, p.metrics().created());
+    }
+
+    @Test
+    @DisplayName("Transactions return their connection to the pool")
+    public void runInTransaction_returned() {
+        final JdbcConnectionPool p = JdbcConnectionPool.of(SOURCE, 1, 4, 60000, VALID_TIMEOUT, WAIT_MILLIS);
+        p.runInTransaction(c -> c.prepareStatement(TEST_QUERY).executeQuery().close());
+        p.executeQuery(TEST_QUERY, rs -> rs.getLong(1)).count();
+        assertEquals(0, p.metrics().active());
+        assertEquals(1, p.metrics().created());
+    }
+
+    @Test
+    @DisplayName("Closed pool refuses borrows")
+    public void close_refused() {
+        final JdbcConnectionPool p = JdbcConnectionPool.of(SOURCE, 1, 4, 60000, VALID_TIMEOUT, WAIT_MILLIS);
+        p.close();
+        assertEquals(0, p.metrics().idle());
+        assertThrows(Fallible.StacksException.class, p::get);
+    }
+
+    @Test
+    @DisplayName("Statements are reused across borrows of a connection")
+    public void prepareStatement_reused() {
+        final JdbcConnectionPool p = JdbcConnectionPool.of(SOURCE, 1, 1, 60000, VALID_TIMEOUT, WAIT_MILLIS);
+        IntStream.range(0, 3).forEach(i -> p.executeQuery(TEST_QUERY, rs -> rs.getLong(1)).count());
+        assertEquals(1, p.metrics().prepared());
+        assertEquals(2, p.metrics().reused());
+    }
+
+    @Test
+    @DisplayName("Closed statements are cleared for reuse")
+    public void prepareStatement_cleared() throws SQLException {
+        final JdbcConnectionPool p = JdbcConnectionPool.of(SOURCE, 1, 1, 60000, VALID_TIMEOUT, WAIT_MILLIS);
+        try (Connection c = p.get()) {
+            final PreparedStatement s1 = c.prepareStatement(TEST_ID_QUERY);
+            s1.setLong(1, ID_1);
+            s1.close();
+            assertTrue(s1.isClosed());
+            assertThrows(Fallible.StacksException.class, s1::executeQuery);
+            final PreparedStatement s2 = c.prepareStatement(TEST_ID_QUERY);
+            assertThrows(SQLException.class, s2::executeQuery);
+            s2.close();
+        }
+        assertEquals(1, p.metrics().reused());
+    }
+
+    @Test
+    @DisplayName("Statements still open are not shared")
+    public void prepareStatement_notShared() throws SQLException {
+        final JdbcConnectionPool p = JdbcConnectionPool.of(SOURCE, 1, 1, 60000, VALID_TIMEOUT, WAIT_MILLIS);
+        try (Connection c = p.get()) {
+            final PreparedStatement s1 = c.prepareStatement(TEST_ID_QUERY);
+            final PreparedStatement s2 = c.prepareStatement(TEST_ID_QUERY);
+            s1.setLong(1, ID_1);
+            s2.setLong(1, ID_2);
+            assertFalse(s1.executeQuery().next());
+            s1.close();
+            s2.close();
+        }
+        assertEquals(2, p.metrics().prepared());
+        assertEquals(0, p.metrics().reused());
+    }
+
+    @Test
+    @DisplayName("Statements left open are released with their connection")
+    public void prepareStatement_releasedWithConnection() throws SQLException {
+        final JdbcConnectionPool p = JdbcConnectionPool.of(SOURCE, 1, 1, 60000, VALID_TIMEOUT, WAIT_MILLIS);
+        try (Connection c = p.get()) {
+            c.prepareStatement(TEST_ID_QUERY);
+        }
+        try (Connection c = p.get()) {
+            c.prepareStatement(TEST_ID_QUERY).close();
+        }
+        assertEquals(1, p.metrics().reused());
+    }
+
+    @Test
+    @DisplayName("Statements kept past their connection cannot reach the statement leased again")
+    public void prepareStatement_staleRejected() throws SQLException {
+        final JdbcConnectionPool p = JdbcConnectionPool.of(SOURCE, 1, 1, 60000, VALID_TIMEOUT, WAIT_MILLIS);
+        final PreparedStatement stale;
+        try (Connection c = p.get()) {
+            stale = c.prepareStatement(TEST_ID_QUERY);
+        }
+        try (Connection c = p.get()) {
+            final PreparedStatement s = c.prepareStatement(TEST_ID_QUERY);
+            s.setLong(1, ID_1);
+            assertTrue(stale.isClosed());
+            assertThrows(Fallible.StacksException.class, () -> stale.setLong(1, ID_2));
+            stale.close();
+            assertFalse(s.isClosed());
+            assertFalse(s.executeQuery().next());
+            s.close();
+        }
+        assertEquals(1, p.metrics().reused());
+    }
+}
@@ -1,6 +1,8 @@
 package com.proudlobster.stacks.storage;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
@@ -8,15 +10,19 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.SQLNonTransientConnectionException;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.api.AfterEach;
@@ -78,6 +84,16 @@ public class JdbcConnectionProviderTest implements TestContstants {
         assertTrue(PROVIDER.get().isValid(VALID_TIMEOUT));
     }
 
+    @Test
+    @DisplayName("Dialect is resolved once, when the provider is configured")
+    public void dialect_resolvedOnce() throws SQLException {
+        assertEquals(JdbcDialect.DERBY, PROVIDER.dialect(null));
+        final JdbcConnectionProvider p = PROVIDER::get;
+        try (Connection c = p.get()) {
+            assertEquals(JdbcDialect.DERBY, p.dialect(c));
+        }
+    }
+
     @Test
     @DisplayName("Empty database returns empty stream")
     public void executeQuery_emptyStream() {
@@ -99,4 +115,73 @@ public class JdbcConnectionProviderTest implements TestContstants {
         assertTrue(b.get());
     }
 
+    @Test
+    @DisplayName("Streamed query is not executed until results are pulled")
+    public void streamQuery_lazy() {
+        final List<Connection> cs = new ArrayList<>();
+        final JdbcConnectionProvider p = () -> {
+            cs.add(PROVIDER.get());
+            return cs.get(cs.size() - 1);
+        };
+        final Stream<Long> s = p.streamQuery(TEST_QUERY, rs -> rs.getLong(COLUMN_NAME), 2);
+        assertTrue(cs.isEmpty());
+        assertEquals(0, s.count());
+        assertEquals(1, cs.size());
+    }
+
+    @Test
+    @DisplayName("Query releases its connection before any result is consumed")
+    public void executeQuery_eager() throws SQLException {
+        final List<Connection> cs = new ArrayList<>();
+        final JdbcConnectionProvider p = () -> {
+            cs.add(PROVIDER.get());
+            return cs.get(cs.size() - 1);
+        };
+        LongStream.range(0, 3).forEach(
+                i -> PROVIDER.executeStatement(TEST_INSERT, i, Component.Core.IDENTITY.name(), null, i, Boolean.TRUE));
+        final Stream<Long> s = p.executeQuery(TEST_QUERY, rs -> rs.getLong(COLUMN_NAME));
+        assertTrue(cs.get(0).isClosed());
+        assertTrue(s.findFirst().isPresent());
+    }
+
+    @Test
+    @DisplayName("Failures of the consumer of a streamed query are not reported as read failures")
+    public void streamQuery_consumerFailure() throws SQLException {
+        PROVIDER.executeStatement(TEST_INSERT, ID_1, Component.Core.IDENTITY.name(), null, ID_1, Boolean.TRUE);
+        try (Stream<Long> s = PROVIDER.streamQuery(TEST_QUERY, rs -> rs.getLong(COLUMN_NAME), 2)) {
+            assertThrows(IllegalStateException.class, () -> s.forEach(l -> {
+                throw new IllegalStateException();
+            }));
+        }
+    }
+
+    @Test
+    @DisplayName("Cursor is closed once its results are exhausted")
+    public void streamQuery_closedWhenExhausted() throws SQLException {
+        final List<Connection> cs = new ArrayList<>();
+        final JdbcConnectionProvider p = () -> {
+            cs.add(PROVIDER.get());
+            return cs.get(cs.size() - 1);
+        };
+        PROVIDER.executeStatement(TEST_INSERT, ID_1, Component.Core.IDENTITY.name(), null, ID_1, Boolean.TRUE);
+        assertEquals(List.of(ID_1), p.streamQuery(TEST_QUERY, rs -> rs.getLong(COLUMN_NAME), 2).toList());
+        assertTrue(cs.get(0).isClosed());
+    }
+
+    @Test
+    @DisplayName("Cursor is closed with a partially consumed stream")
+    public void streamQuery_closedWithStream() throws SQLException {
+        final List<Connection> cs = new ArrayList<>();
+        final JdbcConnectionProvider p = () -> {
+            cs.add(PROVIDER.get());
+            return cs.get(cs.size() - 1);
+        };
+        LongStream.range(0, 10).forEach(
+                i -> PROVIDER.executeStatement(TEST_INSERT, i, Component.Core.IDENTITY.name(), null, i, Boolean.TRUE));
+        try (Stream<Long> s = p.streamQuery(TEST_QUERY, rs -> rs.getLong(COLUMN_NAME), 2)) {
+            assertEquals(3, s.limit(3).count());
+            assertFalse(cs.get(0).isClosed());
+        }
+        assertTrue(cs.get(0).isClosed());
+    }
 }
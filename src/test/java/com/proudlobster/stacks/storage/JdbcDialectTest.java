@@ -0,0 +1,44 @@
+package com.proudlobster.stacks.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.proudlobster.stacks.TestContstants;
+
+@Tag("Unit")
+public class JdbcDialectTest implements TestContstants {
+
+    private static final EntityWriter.Record REC = EntityWriter.Record.of(ID_1, COMPONENT_NAME_1,
+            Optional.of(STRING_VALUE_1), Optional.empty(), Boolean.TRUE);
+
+    @Test
+    @DisplayName("Known product names resolve to their dialect")
+    public void of_known() {
+        assertEquals(JdbcDialect.DERBY, JdbcDialect.of("Apache Derby"));
+        assertEquals(JdbcDialect.H2, JdbcDialect.of("H2"));
+    }
+
+    @Test
+    @DisplayName("Unknown product names resolve to the generic dialect")
+    public void of_unknown() {
+        assertEquals(JdbcDialect.GENERIC, JdbcDialect.of("SomeDB"));
+        assertEquals(JdbcDialect.GENERIC, JdbcDialect.of(""));
+        assertTrue(JdbcDialect.GENERIC.merge().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Merge parameters are bound once per use of the record values")
+    public void mergeParameters() {
+        assertArrayEquals(new Object[] { ID_1, COMPONENT_NAME_1, STRING_VALUE_1, null },
+                JdbcDialect.H2.mergeParameters(REC));
+        assertArrayEquals(new Object[] { ID_1, COMPONENT_NAME_1, STRING_VALUE_1, null, ID_1, COMPONENT_NAME_1,
+                STRING_VALUE_1, null }, JdbcDialect.DERBY.mergeParameters(REC));
+    }
+}
@@ -14,9 +14,11 @@ import java.sql.SQLNonTransientConnectionException;
 import java.util.Comparator;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.api.AfterEach;
@@ -100,6 +102,61 @@ public class JdbcEntityReaderTest implements TestContstants {
     @DisplayName("Database with component reads component")
     public void readIdsForComponent_componentPresent() {
         PROVIDER.get().executeStatement(TEST_INSERT, ID_1, Component.Core.IDENTITY.name(), null, ID_1, Boolean.TRUE);
-        assertEquals(ID_1, READER.readIdsForComponent(Component.Core.IDENTITY.name()).findAny().get());
+        try (Stream<Long> ids = READER.readIdsForComponent(Component.Core.IDENTITY.name())) {
+            assertEquals(ID_1, ids.findAny().get());
+        }
+    }
+
+    @Test
+    @DisplayName("Component reads are not queried until their results are pulled")
+    public void readForComponents_lazy() {
+        final Stream<Long> ids = READER.readIdsForComponents(Component.Core.IDENTITY.name());
+        final Stream<Entity> es = READER.readForComponents(Component.Core.IDENTITY.name());
+        PROVIDER.get().executeStatement(TEST_INSERT, ID_1, Component.Core.IDENTITY.name(), null, ID_1, Boolean.TRUE);
+        assertEquals(1, ids.count());
+        assertEquals(1, es.count());
+    }
+
+    @Test
+    @DisplayName("Database with components reads entities having all of them")
+    public void read_components() {
+        PROVIDER.get().executeStatement(TEST_INSERT, ID_1, Component.Core.IDENTITY.name(), null, ID_1, Boolean.TRUE);
+        PROVIDER.get().executeStatement(TEST_INSERT, ID_1, COMPONENT_NAME_1, null, null, Boolean.TRUE);
+        PROVIDER.get().executeStatement(TEST_INSERT, ID_2, Component.Core.IDENTITY.name(), null, ID_2, Boolean.TRUE);
+        try (Stream<Entity> es = READER.read(Component.Core.IDENTITY, FLAG_COMPONENT_1)) {
+            assertEquals(ID_1, es.map(Entity::identifier).findAny().get());
+        }
+        assertEquals(2, READER.read(Component.Core.IDENTITY, Component.Core.IDENTITY).count());
+    }
+
+    @Test
+    @DisplayName("Reading by component loads every entity with one query")
+    public void read_componentBulk() {
+        PROVIDER.get().executeStatement(TEST_INSERT, ID_1, Component.Core.IDENTITY.name(), null, ID_1, Boolean.TRUE);
+        PROVIDER.get().executeStatement(TEST_INSERT, ID_1, COMPONENT_NAME_1, STRING_VALUE_1, null, Boolean.TRUE);
+        PROVIDER.get().executeStatement(TEST_INSERT, ID_2, Component.Core.IDENTITY.name(), null, ID_2, Boolean.TRUE);
+        PROVIDER.get().executeStatement(TEST_INSERT, ID_2, COMPONENT_NAME_1, STRING_VALUE_2, null, Boolean.FALSE);
+        PROVIDER.get().executeStatement(TEST_INSERT, ID_3, Component.Core.IDENTITY.name(), null, ID_3, Boolean.TRUE);
+        PROVIDER.get().executeStatement(TEST_INSERT, ID_3, COMPONENT_NAME_1, STRING_VALUE_2, null, Boolean.TRUE);
+        final AtomicInteger connections = new AtomicInteger();
+        final JdbcEntityReader r = JdbcEntityReader.of(() -> {
+            connections.incrementAndGet();
+            return PROVIDER.get().get();
+        });
+        final Map<Long, Entity> es = r.read(EntityReader.Record.of(COMPONENT_NAME_1))
+                .collect(Collectors.toMap(Entity::identifier, Function.identity(), (a, b) -> a));
+        assertEquals(1, connections.get());
+        assertEquals(2, es.size());
+        assertEquals(STRING_VALUE_1, es.get(ID_1).stringValue(STRING_COMPONENT_1).get());
+        assertEquals(STRING_VALUE_2, es.get(ID_3).stringValue(STRING_COMPONENT_1).get());
+    }
+
+    @Test
+    @DisplayName("Reading on a thousand components counts them without grouping digits")
+    public void read_manyComponents() {
+        PROVIDER.get().executeStatement(TEST_INSERT, ID_1, COMPONENT_NAME_1, STRING_VALUE_1, null, Boolean.TRUE);
+        final String[] ns = IntStream.range(0, 1000).mapToObj(i -> COMPONENT_NAME_1 + i).toArray(String[]::new);
+        assertTrue(READER.readIdsForComponents(ns).findAny().isEmpty());
+        assertTrue(READER.readForComponents(ns).findAny().isEmpty());
     }
 }
@@ -12,8 +12,10 @@ import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.SQLNonTransientConnectionException;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -28,6 +30,7 @@ import org.junit.jupiter.api.Test;
 import com.proudlobster.stacks.Fallible;
 import com.proudlobster.stacks.TestContstants;
 import com.proudlobster.stacks.ecp.Component;
+import com.proudlobster.stacks.ecp.Entity;
 import com.proudlobster.stacks.structure.Configuration;
 import com.proudlobster.stacks.structure.Dictionary;
 
@@ -105,4 +108,86 @@ public class JdbcEntityWriterTest implements TestContstants {
         WRITER.write(DEL_REC);
         assertTrue(PROVIDER.get().executeQuery(TEST_QUERY, rs -> rs.getLong(ID_COL_NAME)).findAny().isEmpty());
     }
+
+    @Test
+    @DisplayName("Writing a deleted record reactivates it")
+    public void reactivate_record() {
+        WRITER.write(SOME_REC_2);
+        WRITER.write(EntityWriter.Record.of(ID_1, COMPONENT_NAME_1, Optional.empty(), Optional.empty(),
+                Boolean.FALSE));
+        WRITER.write(SOME_REC_3);
+        assertEquals(SOME_REC_3.value(),
+                PROVIDER.get().executeQuery(TEST_QUERY, rs -> rs.getString(STR_VAL_COL_NAME)).findFirst().get());
+    }
+
+    @Test
+    @DisplayName("References are written as rows and read back as a set")
+    public void references_roundTrip() {
+        WRITER.writeAddReference(ID_1, COMPONENT_NAME_1, ID_2);
+        WRITER.writeAddReference(ID_1, COMPONENT_NAME_1, ID_3);
+        WRITER.writeAddReference(ID_1, COMPONENT_NAME_1, ID_3);
+        WRITER.writeRemoveReference(ID_1, COMPONENT_NAME_1, ID_1);
+        assertEquals(Set.of(ID_2, ID_3), WRITER.reader().read(ID_1).get().referenceValues(MULTIREF_COMPONENT_1)
+                .collect(Collectors.toSet()));
+        WRITER.writeRemoveReference(ID_1, COMPONENT_NAME_1, ID_2);
+        assertEquals(Set.of(ID_3), WRITER.reader().read(MULTIREF_COMPONENT_1).findAny().get()
+                .referenceValues(MULTIREF_COMPONENT_1).collect(Collectors.toSet()));
+    }
+
+    @Test
+    @DisplayName("Removing every reference leaves the component with none")
+    public void references_empty() {
+        WRITER.writeAddReference(ID_1, COMPONENT_NAME_1, ID_2);
+        WRITER.writeRemoveReference(ID_1, COMPONENT_NAME_1, ID_2);
+        final Entity e = WRITER.reader().read(ID_1).get();
+        assertTrue(e.is(MULTIREF_COMPONENT_1));
+        assertEquals(0L, e.referenceValues(MULTIREF_COMPONENT_1).count());
+    }
+
+    @Test
+    @DisplayName("References written as a string are moved to rows when changed")
+    public void references_fromString() {
+        WRITER.writeAssignComponent(ID_1, COMPONENT_NAME_1, MULTIREF_STRING_2);
+        WRITER.writeRemoveReference(ID_1, COMPONENT_NAME_1, ID_2);
+        assertEquals(Set.of(ID_1, ID_3), WRITER.reader().read(ID_1).get().referenceValues(MULTIREF_COMPONENT_1)
+                .collect(Collectors.toSet()));
+        assertEquals("", PROVIDER.get().executeQuery(TEST_QUERY, rs -> rs.getString(STR_VAL_COL_NAME)).findFirst()
+                .get());
+    }
+
+    @Test
+    @DisplayName("Writing a string or removing the component replaces its references")
+    public void references_replaced() {
+        WRITER.writeAddReference(ID_1, COMPONENT_NAME_1, ID_2);
+        WRITER.writeAssignComponent(ID_1, COMPONENT_NAME_1, ID_3.toString());
+        assertEquals(List.of(ID_3), WRITER.reader().read(ID_1).get().referenceValues(MULTIREF_COMPONENT_1)
+                .collect(Collectors.toList()));
+        WRITER.writeAddReference(ID_1, COMPONENT_NAME_1, ID_2);
+        WRITER.writeRemoveComponent(ID_1, COMPONENT_NAME_1);
+        WRITER.writeAddReference(ID_1, COMPONENT_NAME_1, ID_1);
+        assertEquals(List.of(ID_1), WRITER.reader().read(ID_1).get().referenceValues(MULTIREF_COMPONENT_1)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("References are read back in the order they were added")
+    public void references_ordered() {
+        WRITER.writeAddReference(ID_1, COMPONENT_NAME_1, ID_3);
+        WRITER.writeAddReference(ID_1, COMPONENT_NAME_1, ID_1);
+        WRITER.writeAddReference(ID_1, COMPONENT_NAME_1, ID_2);
+        assertEquals(List.of(ID_3, ID_1, ID_2), WRITER.reader().read(ID_1).get()
+                .referenceValues(MULTIREF_COMPONENT_1).collect(Collectors.toList()));
+        assertEquals(List.of(ID_3, ID_1, ID_2), WRITER.reader().read(MULTIREF_COMPONENT_1).findFirst().get()
+                .referenceValues(MULTIREF_COMPONENT_1).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("Writing a component which is not a multiple reference keeps references, whatever its value")
+    public void references_keptByText() {
+        final String c = Component.of("TEXT_COMP", Component.DataType.STRING).name();
+        WRITER.writeAddReference(ID_1, c, ID_2);
+        WRITER.writeAssignComponent(ID_1, c, "");
+        WRITER.writeAssignComponent(ID_1, c, ID_3 + "|" + ID_2);
+        assertEquals(1L, PROVIDER.get().executeQuery("SELECT REF FROM ENTITY_REFERENCE", rs -> rs.getLong(1)).count());
+    }
 }
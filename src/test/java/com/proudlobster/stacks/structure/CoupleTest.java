@@ -56,4 +56,16 @@ public class CoupleTest implements TestContstants {
     public void second_emptyError() {
         assertThrows(Fallible.StacksException.class, EMPTY_COUPLE::second);
     }
+
+    @Test
+    @DisplayName("First of gets the element of the type")
+    public void firstOf_matchesType() {
+        assertEquals(SECOND, SOME_COUPLE.firstOf(Long.class).get());
+    }
+
+    @Test
+    @DisplayName("Couple returns empty for a position past the second")
+    public void get_pastSecondEmpty() {
+        assertEquals(Optional.empty(), SOME_COUPLE.get(Couple.COUNT));
+    }
 }
@@ -0,0 +1,82 @@
+package com.proudlobster.stacks.structure;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.proudlobster.stacks.TestContstants;
+
+@Tag("Unit")
+public class LongIntMapTest implements TestContstants {
+
+    // BEGIN VALUES
+    private static final long BASE = System.currentTimeMillis() * 1000;
+    private static final int MANY = 10_000;
+    private static final int VALUE_1 = 7;
+    private static final int VALUE_2 = 8;
+
+    @Test
+    @DisplayName("Missing key has no value")
+    public void get_missing() {
+        assertEquals(LongIntMap.NO_VALUE, LongIntMap.create().get(ID_1));
+    }
+
+    @Test
+    @DisplayName("Put then get returns the value")
+    public void put_get() {
+        final LongIntMap m = LongIntMap.create();
+        assertEquals(LongIntMap.NO_VALUE, m.put(ID_1, VALUE_1));
+        assertEquals(VALUE_1, m.put(ID_1, VALUE_2));
+        assertEquals(VALUE_2, m.get(ID_1));
+        assertEquals(1, m.size());
+    }
+
+    @Test
+    @DisplayName("Extreme keys are supported")
+    public void put_extremeKeys() {
+        final LongIntMap m = LongIntMap.create();
+        m.put(Long.MIN_VALUE, VALUE_1);
+        m.put(INVALID_ID, VALUE_2);
+        assertEquals(VALUE_1, m.get(Long.MIN_VALUE));
+        assertEquals(VALUE_2, m.get(INVALID_ID));
+        assertEquals(VALUE_1, m.remove(Long.MIN_VALUE));
+        assertFalse(m.containsKey(Long.MIN_VALUE));
+        assertEquals(1, m.size());
+    }
+
+    @Test
+    @DisplayName("Many dense keys survive growth and removal")
+    public void remove_many() {
+        final LongIntMap m = LongIntMap.create();
+        for (int i = 0; i < MANY; i++) {
+            m.put(BASE + i, i);
+        }
+        for (int i = 0; i < MANY; i += 2) {
+            assertEquals(i, m.remove(BASE + i));
+        }
+        assertEquals(MANY / 2, m.size());
+        for (int i = 0; i < MANY; i++) {
+            assertEquals(i % 2 == 0 ? LongIntMap.NO_VALUE : i, m.get(BASE + i));
+        }
+    }
+
+    @Test
+    @DisplayName("Keys are a snapshot of present keys")
+    public void keys_snapshot() {
+        final LongIntMap m = LongIntMap.create();
+        LongStream.of(ID_1, ID_2, ID_3).forEach(l -> m.put(l, VALUE_1));
+        m.remove(ID_2);
+        final long[] ks = m.keys();
+        Arrays.sort(ks);
+        assertArrayEquals(new long[] { ID_1, ID_3 }, ks);
+        assertTrue(m.keyStream().allMatch(m::containsKey));
+    }
+}
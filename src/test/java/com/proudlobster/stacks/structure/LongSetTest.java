@@ -0,0 +1,112 @@
+package com.proudlobster.stacks.structure;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.proudlobster.stacks.Fallible;
+import com.proudlobster.stacks.TestContstants;
+
+@Tag("Unit")
+public class LongSetTest implements TestContstants {
+
+    @Test
+    @DisplayName("Adding reports whether the element was new")
+    public void add_new() {
+        final LongSet s = LongSet.create();
+        assertTrue(s.add(ID_1));
+        assertFalse(s.add(ID_1));
+        assertEquals(1, s.size());
+    }
+
+    @Test
+    @DisplayName("Removing reports whether the element was present")
+    public void remove_present() {
+        final LongSet s = LongSet.of(ID_1, ID_2);
+        assertTrue(s.remove(ID_1));
+        assertFalse(s.remove(ID_1));
+        assertFalse(s.contains(ID_1));
+        assertTrue(s.contains(ID_2));
+    }
+
+    @Test
+    @DisplayName("Stream produces all elements")
+    public void stream_allElements() {
+        assertEquals(ID_1 + ID_2 + ID_3, LongSet.of(ID_1, ID_2, ID_3).stream().sum());
+    }
+
+    @Test
+    @DisplayName("Copy holds the same elements independently")
+    public void copy_independent() {
+        final LongSet s = LongSet.of(ID_1, ID_2);
+        final LongSet c = s.copy();
+        c.remove(ID_1);
+        c.add(ID_3);
+        assertTrue(s.contains(ID_1));
+        assertFalse(s.contains(ID_3));
+        assertEquals(ID_2 + ID_3, c.stream().sum());
+    }
+
+    @Test
+    @DisplayName("Ordered set iterates elements in the order added")
+    public void ordered_insertionOrder() {
+        final LongSet s = LongSet.ordered(ID_3, ID_1, ID_2);
+        s.remove(ID_1);
+        s.add(ID_1);
+        assertArrayEquals(new long[] { ID_3, ID_2, ID_1 }, s.stream().toArray());
+    }
+
+    @Test
+    @DisplayName("Unmodifiable set reads through to the set it wraps")
+    public void unmodifiable_readsThrough() {
+        final LongSet s = LongSet.ordered(ID_2, ID_1);
+        final LongSet u = LongSet.unmodifiable(s);
+        s.add(ID_3);
+        assertTrue(u.contains(ID_3));
+        assertEquals(3, u.size());
+        assertArrayEquals(new long[] { ID_2, ID_1, ID_3 }, u.toArray());
+        assertSame(u, LongSet.unmodifiable(u));
+    }
+
+    @Test
+    @DisplayName("Unmodifiable set refuses changes")
+    public void unmodifiable_refusesChanges() {
+        final LongSet s = LongSet.of(ID_1);
+        final LongSet u = LongSet.unmodifiable(s);
+        assertThrows(Fallible.StacksException.class, () -> u.add(ID_2));
+        assertThrows(Fallible.StacksException.class, () -> u.remove(ID_1));
+        assertTrue(s.contains(ID_1));
+        assertFalse(s.contains(ID_2));
+        final LongSet c = u.copy();
+        c.add(ID_2);
+        assertFalse(u.contains(ID_2));
+    }
+
+    @Test
+    @DisplayName("Ordered set keeps its order as it grows past removed elements")
+    public void ordered_growsPastRemoved() {
+        final LongSet s = LongSet.ordered();
+        LongStream.range(0, 100).forEach(l -> {
+            s.add(l);
+            s.remove(l - 1);
+        });
+        LongStream.range(100, 110).forEach(s::add);
+        assertArrayEquals(LongStream.range(99, 110).toArray(), s.toArray());
+        assertEquals(11, s.size());
+    }
+
+    @Test
+    @DisplayName("Copy of an ordered set keeps its order")
+    public void ordered_copyKeepsOrder() {
+        assertArrayEquals(new long[] { ID_2, ID_1 }, LongSet.ordered(ID_2, ID_1).copy().toArray());
+    }
+}
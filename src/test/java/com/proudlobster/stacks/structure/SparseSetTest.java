@@ -0,0 +1,82 @@
+package com.proudlobster.stacks.structure;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.proudlobster.stacks.TestContstants;
+
+@Tag("Unit")
+public class SparseSetTest implements TestContstants {
+
+    // BEGIN VALUES
+    private static final int MANY = 1_000;
+
+    @Test
+    @DisplayName("Adding reports whether the element was new")
+    public void add_new() {
+        final SparseSet s = SparseSet.create();
+        assertTrue(s.add(ID_1));
+        assertFalse(s.add(ID_1));
+        assertEquals(1, s.size());
+    }
+
+    @Test
+    @DisplayName("Removing moves the last element into the gap")
+    public void remove_swap() {
+        final SparseSet s = SparseSet.of(ID_1, ID_2, ID_3);
+        assertTrue(s.remove(ID_1));
+        assertFalse(s.remove(ID_1));
+        assertArrayEquals(new long[] { ID_3, ID_2 }, s.toArray());
+        assertTrue(s.contains(ID_3));
+        assertFalse(s.contains(ID_1));
+    }
+
+    @Test
+    @DisplayName("Position of an element follows it as the last element moves")
+    public void indexOf_moved() {
+        final SparseSet s = SparseSet.of(ID_1, ID_2, ID_3);
+        assertEquals(0, s.indexOf(ID_1));
+        s.remove(ID_1);
+        assertEquals(-1, s.indexOf(ID_1));
+        assertEquals(0, s.indexOf(ID_3));
+        assertEquals(1, s.indexOf(ID_2));
+    }
+
+    @Test
+    @DisplayName("Many elements survive growth and removal")
+    public void remove_many() {
+        final SparseSet s = SparseSet.create();
+        for (long i = 0; i < MANY; i++) {
+            s.add(i);
+        }
+        for (long i = 0; i < MANY; i += 2) {
+            s.remove(i);
+        }
+        assertEquals(MANY / 2, s.size());
+        assertTrue(s.stream().allMatch(l -> l % 2 == 1));
+    }
+
+    @Test
+    @DisplayName("Iteration visits every element")
+    public void forEach_all() {
+        final AtomicLong sum = new AtomicLong();
+        SparseSet.of(ID_1, ID_2, ID_3).forEach(sum::addAndGet);
+        assertEquals(ID_1 + ID_2 + ID_3, sum.get());
+    }
+
+    @Test
+    @DisplayName("Stream is unaffected by later modification")
+    public void stream_snapshot() {
+        final SparseSet s = SparseSet.of(ID_1, ID_2);
+        final long[] seen = s.stream().peek(l -> s.remove(ID_2)).toArray();
+        assertArrayEquals(new long[] { ID_1, ID_2 }, seen);
+    }
+}
@@ -69,4 +69,16 @@ public class TripleTest implements TestContstants {
     public void third_emptyError() {
         assertThrows(Fallible.StacksException.class, EMPTY_TRIPLE::third);
     }
+
+    @Test
+    @DisplayName("First of gets the element of the type")
+    public void firstOf_matchesType() {
+        assertEquals(SECOND, SOME_TRIPLE.firstOf(Long.class).get());
+    }
+
+    @Test
+    @DisplayName("Triple returns empty for a null element")
+    public void get_nullElementEmpty() {
+        assertEquals(Optional.empty(), Triple.of(FIRST, null, THIRD).get(Triple.SECOND_POSITION));
+    }
 }
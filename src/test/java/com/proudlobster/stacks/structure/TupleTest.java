@@ -55,6 +55,12 @@ public class TupleTest implements TestContstants {
         assertTrue(EMPTY.get(BASE_INDEX).isEmpty());
     }
 
+    @Test
+    @DisplayName("Tuple returns empty optional for a null element")
+    void get_nullElementEmpty() {
+        assertTrue(Tuple.of(STRING_VALUE_1, null).get(1).isEmpty());
+    }
+
     @Test
     @DisplayName("Non-empty tuple returns empty optional when missing")
     void get_nonEmptyEmptyWhenMissing() {
@@ -132,6 +138,33 @@ public class TupleTest implements TestContstants {
                 ((Tuple<?>) TUPLE_OF_TUPLES.firstOf(Tuple.class).get()).firstOf(Object.class).get());
     }
 
+    @Test
+    @DisplayName("First of skips elements of other types")
+    void firstOf_skipsOtherTypes() {
+        assertEquals(LONG_VALUE_1, NON_EMPTY.firstOf(Long.class).get());
+    }
+
+    // nthOf(c, n)
+    @Test
+    @DisplayName("Nth of gets the element after n of the type")
+    void nthOf_passesOver() {
+        assertEquals(STRING_VALUE_2,
+                Tuple.of(STRING_VALUE_1, LONG_VALUE_1, STRING_VALUE_2).nthOf(String.class, 1).get());
+    }
+
+    @Test
+    @DisplayName("Nth of is empty past the last element of the type")
+    void nthOf_emptyPastEnd() {
+        assertTrue(NON_EMPTY.nthOf(String.class, 1).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Nth of matches a streamed tuple")
+    void nthOf_matchesStreamed() {
+        final Tuple<Object> t = () -> Arrays.stream(NON_EMPTY_CONTENTS);
+        assertEquals(NON_EMPTY.nthOf(Long.class, 0), t.nthOf(Long.class, 0));
+    }
+
     // count()
     @Test
     @DisplayName("Count of empty tuple is zero")
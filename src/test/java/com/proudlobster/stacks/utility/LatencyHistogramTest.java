@@ -0,0 +1,57 @@
+package com.proudlobster.stacks.utility;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.proudlobster.stacks.Fallible;
+
+@Tag("Unit")
+public class LatencyHistogramTest {
+
+    private LatencyHistogram histogram;
+
+    @BeforeEach
+    public void initialize() {
+        histogram = LatencyHistogram.create();
+    }
+
+    @Test
+    @DisplayName("Empty histogram reports zeroes")
+    public void create_empty() {
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.max());
+        assertEquals(0, histogram.mean());
+        assertEquals(0, histogram.percentile(0.99));
+    }
+
+    @Test
+    @DisplayName("Recorded durations are counted, with their largest and mean")
+    public void record_counts() {
+        LongStream.rangeClosed(1, 100).forEach(histogram::record);
+        assertEquals(100, histogram.count());
+        assertEquals(100, histogram.max());
+        assertEquals(50, histogram.mean());
+    }
+
+    @Test
+    @DisplayName("Percentiles are bounded within a power of two")
+    public void percentile_bounds() {
+        LongStream.rangeClosed(1, 100).forEach(histogram::record);
+        assertEquals(63, histogram.percentile(0.5));
+        assertEquals(100, histogram.percentile(0.99));
+        assertEquals(1, histogram.percentile(0));
+    }
+
+    @Test
+    @DisplayName("Percentile requires a quantile between 0 and 1")
+    public void percentile_invalid() {
+        assertThrows(Fallible.StacksException.class, () -> histogram.percentile(1.5));
+    }
+}